@@ -0,0 +1,26 @@
+package com.speedit.inventorysystem.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * JDBC batching for Hibernate flushes. Statements of the same shape (e.g. the stock row UPDATEs of an
+ * unload) are sent together instead of one round trip each; ordering groups them by entity first.
+ * Entities with IDENTITY keys are still inserted one by one, so bulk inserts go through JDBC
+ * (InventoryStockBulkRepository).
+ */
+@Configuration
+public class HibernateBatchConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer(@Value("${hibernate.jdbc.batch-size:50}") int batchSize) {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.STATEMENT_BATCH_SIZE, batchSize);
+            properties.putIfAbsent(AvailableSettings.ORDER_UPDATES, true);
+            properties.putIfAbsent(AvailableSettings.ORDER_INSERTS, true);
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package com.speedit.inventorysystem.config;
+
+import com.speedit.inventorysystem.service.routing.OrsEndpoint;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Tuning for calls to OpenRouteService (prefix "ors.gateway").
+ * Defaults keep a single allocation request bounded to a few seconds even when ORS is down.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "ors.gateway")
+public class OrsGatewayProperties {
+
+    // --- Timeouts & retries ---
+    private Duration attemptTimeout = Duration.ofSeconds(4);
+    private Duration deadline = Duration.ofSeconds(10); // whole call, including retries and hedges
+    private int maxRetries = 2;
+    private Duration retryBackoff = Duration.ofMillis(200);
+    private Duration hedgeDelay = Duration.ofMillis(1500); // zero or negative disables hedging
+
+    // --- Bulkhead: concurrent ORS calls across all endpoints ---
+    private int bulkheadMaxConcurrent = 8;
+    private Duration bulkheadMaxWait = Duration.ofMillis(500);
+
+    // --- Rate limiting (token bucket per endpoint) ---
+    private Map<OrsEndpoint, Integer> requestsPerMinute = new EnumMap<>(OrsEndpoint.class);
+    private int rateLimitBurst = 10;
+    private Duration rateLimitMaxWait = Duration.ofSeconds(2);
+
+    // --- Circuit breaker (per endpoint, count-based window) ---
+    private double breakerFailureRateThreshold = 0.5;
+    private int breakerWindowSize = 20;
+    private int breakerMinimumCalls = 10;
+    private Duration breakerOpenDuration = Duration.ofSeconds(30);
+
+    // --- Degraded mode estimate: straight line * detour factor at an average speed ---
+    private double fallbackDetourFactor = 1.3;
+    private double fallbackAverageSpeedKmh = 40.0;
+
+    public int getRequestsPerMinute(OrsEndpoint endpoint) {
+        return requestsPerMinute.getOrDefault(endpoint, endpoint.getDefaultRequestsPerMinute());
+    }
+}
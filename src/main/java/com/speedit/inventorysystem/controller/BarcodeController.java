@@ -0,0 +1,114 @@
+package com.speedit.inventorysystem.controller;
+
+import com.speedit.inventorysystem.dto.LabelSheetRequestDto;
+import com.speedit.inventorysystem.dto.ScanResultDTO;
+import com.speedit.inventorysystem.service.BarcodeIndex;
+import com.speedit.inventorysystem.service.BarcodeScanService;
+import com.speedit.inventorysystem.service.BarcodeService;
+import com.speedit.inventorysystem.service.LabelSheetService;
+import jakarta.validation.Valid;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.regex.Pattern;
+
+@RestController
+@RequestMapping("/barcode")
+public class BarcodeController {
+
+    private static final Logger log = LoggerFactory.getLogger(BarcodeController.class);
+
+    // Only the 13-digit barcodes of existing products are rendered; anything else (or an oversized image) is rejected
+    private static final Pattern BARCODE_TEXT = Pattern.compile("[0-9]{13}");
+    private static final int MAX_WIDTH = 1200;
+    private static final int MAX_HEIGHT = 600;
+
+    @Autowired
+    private BarcodeService barcodeService;
+    @Autowired
+    private LabelSheetService labelSheetService;
+    @Autowired
+    private BarcodeScanService barcodeScanService;
+    @Autowired
+    private BarcodeIndex barcodeIndex;
+
+    @Value("${barcode.scan.max-batch:1000}")
+    private int maxScanBatch;
+
+    /**
+     * Serves the barcode PNG of a product (404 for codes no product has). The image is fully
+     * determined by the URL, so browsers and proxies may keep it forever.
+     */
+    @GetMapping("/{code}.png")
+    public ResponseEntity<byte[]> getBarcodePng(@PathVariable String code,
+                                                @RequestParam(defaultValue = "" + BarcodeService.DEFAULT_WIDTH) int width,
+                                                @RequestParam(defaultValue = "" + BarcodeService.DEFAULT_HEIGHT) int height) {
+        if (!BARCODE_TEXT.matcher(code).matches() || width < 1 || width > MAX_WIDTH || height < 1 || height > MAX_HEIGHT) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (barcodeIndex.lookup(Long.parseLong(code)) == BarcodeIndex.NOT_FOUND) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            byte[] image = barcodeService.getBarcodeImage(code, width, height);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.IMAGE_PNG)
+                    .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                    .eTag(barcodeService.cacheKey(code, width, height))
+                    .body(image);
+        } catch (Exception e) {
+            log.error("Error rendering barcode {}", code, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Label sheets for a list of products or a load manifest ({@code productIds} plus optional
+     * {@code amounts} copies each). One page is returned as a PNG, more as a ZIP of pages.
+     */
+    @PostMapping("/labels")
+    public ResponseEntity<?> getLabelSheets(@RequestBody @Valid LabelSheetRequestDto request) {
+        LabelSheetService.LabelSheet sheet;
+        try {
+            sheet = labelSheetService.prepare(request.getProductIds(), request.getAmounts());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        StreamingResponseBody body = out -> labelSheetService.write(sheet, out);
+        return ResponseEntity.ok()
+                .contentType(sheet.isSinglePage() ? MediaType.IMAGE_PNG : MediaType.parseMediaType("application/zip"))
+                .header("Content-Disposition", "attachment; filename=\"labels." + (sheet.isSinglePage() ? "png" : "zip") + "\"")
+                .body(body);
+    }
+
+    /** Resolves one scanned barcode to its product, stock and container hierarchy. */
+    @GetMapping("/scan/{code}")
+    public ScanResultDTO scan(@PathVariable String code) {
+        return barcodeScanService.resolve(List.of(code)).get(0);
+    }
+
+    /** Batched scans (e.g. a whole pallet): one result per code, in the order sent. */
+    @PostMapping("/scan")
+    public ResponseEntity<?> scanBatch(@RequestBody List<String> codes) {
+        if (codes.size() > maxScanBatch) {
+            return ResponseEntity.badRequest().body("At most " + maxScanBatch + " codes per request");
+        }
+        return ResponseEntity.ok(barcodeScanService.resolve(codes));
+    }
+}
@@ -6,8 +6,10 @@ import com.speedit.inventorysystem.dto.ContainerViewDTO;
 import com.speedit.inventorysystem.dto.ProductSummaryDTO;
 import com.speedit.inventorysystem.model.Container;
 import com.speedit.inventorysystem.repository.ContainerRepository;
+import com.speedit.inventorysystem.service.AggregateVersionService;
 import com.speedit.inventorysystem.service.ContainerService;
 import com.speedit.inventorysystem.service.ProductService;
+import com.speedit.inventorysystem.service.VersionedResponseCache;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,9 +23,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 
 @Controller
 @RequestMapping("/containers")
@@ -35,6 +39,12 @@ public class ContainerController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+
+    @Autowired
+    private VersionedResponseCache responseCache;
+
     /**
      * Displays the Container Management page.
      * Fetches a page of containers with their hierarchical strain data.
@@ -237,6 +247,9 @@ public class ContainerController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", ex.getMessage()));
         } catch (DataIntegrityViolationException ex) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Update failed due to a conflict (e.g., data integrity issue)."));
+        } catch (IllegalArgumentException ex) {
+            // e.g., the new child product already contains this container
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("error", ex.getMessage()));
         } catch (Exception ex) {
             // Log the exception for debugging
             ex.printStackTrace(); // Use a logger in production
@@ -276,17 +289,24 @@ public class ContainerController {
     /**
      * Fetches detailed information for a specific container to display in the View modal.
      *
+     * Served with an ETag; the hierarchy levels depend on the child products, hence the catalog version.
+     *
      * @param id The ID of the container's parent product.
-     * @return ResponseEntity containing the ContainerViewDTO or a 404 Not Found.
+     * @return ResponseEntity containing the ContainerViewDTO, 304 Not Modified or 404 Not Found.
      */
     @GetMapping("/{id}/details") // <-- Use /details for view, consistent with ProductController
     @ResponseBody
-    public ResponseEntity<?> getContainerViewDetails(@PathVariable Integer id) {
+    public ResponseEntity<?> getContainerViewDetails(@PathVariable Integer id, ServletWebRequest request) {
         try {
-            ContainerViewDTO viewData = containerService.getContainerViewData(id);
-            return ResponseEntity.ok(viewData);
-        } catch (EntityNotFoundException ex) {
-            return ResponseEntity.notFound().build();
+            String etag = aggregateVersionService.etag(
+                    AggregateVersionService.productKey(id), AggregateVersionService.CATALOG);
+            return responseCache.respond(request, "container-details:" + id, etag, () -> {
+                try {
+                    return Optional.of(containerService.getContainerViewData(id));
+                } catch (EntityNotFoundException ex) {
+                    return Optional.empty();
+                }
+            });
         } catch (Exception ex) {
             // Log the exception
             ex.printStackTrace(); // Use a logger in production
@@ -6,6 +6,9 @@ import com.speedit.inventorysystem.model.Inventory;
 import com.speedit.inventorysystem.enums.InventoryTypeEnum;
 import com.speedit.inventorysystem.repository.InventoryRepository;
 import com.speedit.inventorysystem.service.InventoryService; // ✨ NEW import
+import com.speedit.inventorysystem.service.AggregateVersionService;
+import com.speedit.inventorysystem.service.OccupiedVolumeService;
+import com.speedit.inventorysystem.service.VersionedResponseCache;
 import jakarta.validation.Valid;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,6 +17,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -28,6 +32,15 @@ public class InventoryController {
     @Autowired
     private InventoryService inventoryService;
 
+    @Autowired
+    private OccupiedVolumeService occupiedVolumeService;
+
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+
+    @Autowired
+    private VersionedResponseCache responseCache;
+
     @GetMapping("/manage")
     public String manageInventory(Model model) {
         List<Inventory> inventories = inventoryRepository.findAll();
@@ -38,17 +51,15 @@ public class InventoryController {
 
     @GetMapping("/{id}/details")
     @ResponseBody
-    public ResponseEntity<InventoryDTO> getInventoryDetails(@PathVariable Integer id) {
-        return inventoryRepository.findById(id).map(inventory -> {
-                    // ✨ NEW: Calculate total volume of all stock in this inventory
-                    BigDecimal totalVolume = inventory.getInventoryStocks().stream()
-                            .map(stock -> stock.getProduct().getVolume().multiply(new BigDecimal(stock.getAmount())))
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public ResponseEntity<InventoryDTO> getInventoryDetails(@PathVariable Integer id, ServletWebRequest request) {
+        String etag = aggregateVersionService.etag(AggregateVersionService.inventoryKey(id));
+        return responseCache.respond(request, "inventory-details:" + id, etag,
+                () -> inventoryRepository.findById(id).map(inventory -> {
+                    // ✨ NEW: Total volume of all stock in this inventory (maintained counter)
+                    BigDecimal totalVolume = occupiedVolumeService.getOccupiedVolume(inventory.getInventoryId());
 
                     return new InventoryDTO(inventory, totalVolume);
-                })
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+                }));
     }
 
     @PostMapping("/create")
@@ -77,8 +88,7 @@ public class InventoryController {
     @DeleteMapping("/{id}/delete")
     @ResponseBody
     public ResponseEntity<?> deleteInventory(@PathVariable Integer id) {
-        if (inventoryRepository.existsById(id)) {
-            inventoryRepository.deleteById(id);
+        if (inventoryService.deleteInventory(id)) {
             return ResponseEntity.ok().build();
         }
         return ResponseEntity.notFound().build();
@@ -9,6 +9,9 @@ import com.speedit.inventorysystem.repository.ProductRepository;
 import com.speedit.inventorysystem.service.ContainerService;
 import com.speedit.inventorysystem.service.InventoryStockService;
 import com.speedit.inventorysystem.service.ProductService;
+import com.speedit.inventorysystem.service.StockCompactionService;
+import com.speedit.inventorysystem.service.StockImportService;
+import com.speedit.inventorysystem.service.StockLedgerService;
 import jakarta.validation.Valid;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -18,12 +21,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -37,6 +44,9 @@ public class InventoryStockController {
     @Autowired private InventoryStockService stockService;
     @Autowired private InventoryRepository inventoryRepository;
     @Autowired private ProductRepository productRepository;
+    @Autowired private StockImportService stockImportService;
+    @Autowired private StockCompactionService stockCompactionService;
+    @Autowired private StockLedgerService stockLedgerService;
 
 
     @GetMapping("/load")
@@ -141,6 +151,51 @@ public class InventoryStockController {
         }
     }
 
+    /**
+     * Streamed CSV import of available stock, one {@code inventoryId,productId,amount} line each.
+     * Pass the {@code importId} of a failed import, with the same file, to resume after its last
+     * committed chunk.
+     */
+    @PostMapping("/import")
+    @ResponseBody
+    public ResponseEntity<?> importStock(InputStream csv,
+                                         @RequestParam(required = false) Long importId,
+                                         @RequestParam(required = false) Integer chunkSize) {
+        try {
+            return ResponseEntity.ok(stockImportService.importCsv(csv, importId, chunkSize));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new SimpleResponse(false, e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new SimpleResponse(false, e.getMessage()));
+        }
+    }
+
+    // Progress of an import, also while it runs (advances with every committed chunk)
+    @GetMapping("/import/{importId}")
+    @ResponseBody
+    public ResponseEntity<?> getImportProgress(@PathVariable Long importId) {
+        return stockImportService.findImport(importId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // Runs the stock row compaction now instead of waiting for the nightly run
+    @PostMapping("/compact")
+    @ResponseBody
+    public StockCompactionService.CompactionReport compactStockRows() {
+        return stockCompactionService.compact();
+    }
+
+    // Stock positions as of a point in time, rebuilt from the stock ledger (now when asOf is omitted)
+    @GetMapping("/positions")
+    @ResponseBody
+    public List<StockLedgerService.Position> getPositionsAsOf(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf,
+            @RequestParam(required = false) Integer inventoryId,
+            @RequestParam(required = false) Integer productId) {
+        return stockLedgerService.positionsAsOf(asOf != null ? asOf : LocalDateTime.now(), inventoryId, productId);
+    }
+
     // Simple response DTO
     @Getter
     @AllArgsConstructor
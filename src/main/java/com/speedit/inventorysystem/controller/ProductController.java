@@ -3,7 +3,9 @@ package com.speedit.inventorysystem.controller;
 import com.speedit.inventorysystem.dto.ProductDTO;
 import com.speedit.inventorysystem.model.*;
 import com.speedit.inventorysystem.repository.ProductRepository;
+import com.speedit.inventorysystem.service.AggregateVersionService;
 import com.speedit.inventorysystem.service.ProductService;
+import com.speedit.inventorysystem.service.VersionedResponseCache;
 import jakarta.validation.Valid;
 import lombok.Data;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,6 +19,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -30,6 +33,12 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+
+    @Autowired
+    private VersionedResponseCache responseCache;
+
     @Value("${barcode.prefix.country}")
     private String countryPrefix;
 
@@ -69,10 +78,11 @@ public class ProductController {
 
     @GetMapping("/{id}/details")
     @ResponseBody
-    public ResponseEntity<ProductDTO> getProductDetails(@PathVariable Integer id) {
-        return productService.getProductDetails(id, countryPrefix, companyPrefix)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<ProductDTO> getProductDetails(@PathVariable Integer id, ServletWebRequest request) {
+        String etag = aggregateVersionService.etag(
+                AggregateVersionService.productKey(id), AggregateVersionService.OPTIONS);
+        return responseCache.respond(request, "product-details:" + id, etag,
+                () -> productService.getProductDetails(id, countryPrefix, companyPrefix));
     }
 
     @PostMapping("/create")
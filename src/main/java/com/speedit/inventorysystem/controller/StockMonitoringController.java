@@ -3,16 +3,32 @@ package com.speedit.inventorysystem.controller;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.speedit.inventorysystem.dto.StockMonitorDTO;
 import com.speedit.inventorysystem.model.Inventory;
+import com.speedit.inventorysystem.model.Product;
 import com.speedit.inventorysystem.repository.InventoryRepository;
+import com.speedit.inventorysystem.repository.InventoryStockRepository;
+import com.speedit.inventorysystem.repository.ProductRepository;
+import com.speedit.inventorysystem.service.AggregateVersionService;
+import com.speedit.inventorysystem.service.FleetMonitoringService;
+import com.speedit.inventorysystem.service.StockDataStreamService;
+import com.speedit.inventorysystem.service.StockMonitorEventService;
 import com.speedit.inventorysystem.service.StockMonitoringService;
+import com.speedit.inventorysystem.service.VersionedResponseCache;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Map;
 
@@ -22,28 +38,110 @@ public class StockMonitoringController {
     @Autowired private InventoryRepository inventoryRepository;
     @Autowired private StockMonitoringService stockMonitoringService;
     @Autowired private ObjectMapper objectMapper; // Spring Boot provides this bean
+    @Autowired private InventoryStockRepository inventoryStockRepository;
+    @Autowired private StockDataStreamService stockDataStreamService;
+    @Autowired private StockMonitorEventService stockMonitorEventService;
+    @Autowired private AggregateVersionService aggregateVersionService;
+    @Autowired private VersionedResponseCache responseCache;
+    @Autowired private FleetMonitoringService fleetMonitoringService;
+    @Autowired private ProductRepository productRepository;
+
+    // Above this many stock rows the page no longer inlines the JSON and fetches it from /data
+    @Value("${monitor.inline-json-max-rows:2000}")
+    private long inlineJsonMaxRows;
 
     @GetMapping("/inventory/{id}")
     public String monitorInventoryStock(@PathVariable Integer id,
                                         @RequestParam(defaultValue = "product") String viewBy,
+                                        ServletWebRequest request,
                                         Model model) throws Exception {
+        // The page shows this inventory's stock, product info strings, orders and users
+        String etag = aggregateVersionService.etag(AggregateVersionService.inventoryKey(id),
+                AggregateVersionService.CATALOG, AggregateVersionService.ORDERS);
+        if (responseCache.checkNotModified(request, etag)) {
+            return null; // 304, the browser's copy is current
+        }
+
         Inventory inventory = inventoryRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Inventory not found with id: " + id));
 
-        Map<String, Object> dataMap = stockMonitoringService.prepareStockMonitorPageData(inventory);
+        // Read the delta sequence before the data, so any change after this point is replayed over SSE
+        long stockSeq = stockMonitorEventService.currentSeq(id);
+        boolean inlineJson = inventoryStockRepository.countByInventoryInventoryId(id) <= inlineJsonMaxRows;
+        Map<String, Object> dataMap = stockMonitoringService.prepareStockMonitorPageData(inventory, inlineJson);
 
         // Data for server-side rendering (Thymeleaf)
         model.addAttribute("pageData", dataMap.get("pageData"));
         model.addAttribute("viewBy", viewBy);
+        model.addAttribute("stockSeq", stockSeq);
 
-        // Full dataset, serialized to a JSON string for client-side JavaScript
-        model.addAttribute("jsonData", objectMapper.writeValueAsString(dataMap.get("jsonData")));
+        // Full dataset for client-side JavaScript: inlined as a JSON string for small inventories,
+        // otherwise null and the script loads it from the streaming endpoint below
+        model.addAttribute("jsonData", inlineJson ? objectMapper.writeValueAsString(dataMap.get("jsonData")) : null);
 
         return "stock-monitoring/inventory-view";
     }
 
-    // @GetMapping("/product/{id}")
-    // public String monitorProductStock(...) { /* To be implemented later */ }
+    /**
+     * Streams the same dataset as the inlined JSON (products, inventory-stocks, users, orders,
+     * order-items) directly to the response, in constant memory regardless of inventory size.
+     */
+    @GetMapping("/inventory/{id}/data")
+    public ResponseEntity<StreamingResponseBody> streamInventoryStockData(@PathVariable Integer id) {
+        if (!inventoryRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        long stockSeq = stockMonitorEventService.currentSeq(id);
+        StreamingResponseBody body = out -> stockDataStreamService.writeInventoryStockData(id, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header("X-Stock-Seq", String.valueOf(stockSeq))
+                .body(body);
+    }
+
+    /**
+     * Server-sent events with stock deltas for one inventory. Clients pass the sequence number of
+     * their snapshot as {@code since}; on reconnect the browser sends Last-Event-ID instead.
+     */
+    @GetMapping(value = "/inventory/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamInventoryEvents(@PathVariable Integer id,
+                                            @RequestParam(required = false) Long since,
+                                            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        if (!inventoryRepository.existsById(id)) {
+            throw new EntityNotFoundException("Inventory not found with id: " + id);
+        }
+        return stockMonitorEventService.subscribe(id, lastEventId != null ? lastEventId : since);
+    }
+
+    /**
+     * Fill ratio, SKU count, available vs reserved units and open movements of every inventory,
+     * optionally limited to one inventory type. Served from a short-lived cache.
+     */
+    @GetMapping("/fleet")
+    @ResponseBody
+    public FleetMonitoringService.FleetSnapshot getFleetOverview(@RequestParam(required = false) String type) {
+        FleetMonitoringService.FleetSnapshot fleet = fleetMonitoringService.getFleetOverview();
+        if (type == null || type.isBlank()) {
+            return fleet;
+        }
+        return new FleetMonitoringService.FleetSnapshot(fleet.generatedAt(), fleet.inventories().stream()
+                .filter(inv -> type.equalsIgnoreCase(inv.getInventoryType()))
+                .toList());
+    }
+
+    /**
+     * Where one product is held across all inventories, available vs reserved,
+     * counting units packed inside its container parents.
+     */
+    @GetMapping("/product/{id}")
+    public String monitorProductStock(@PathVariable Integer id, Model model) {
+        Product product = productRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException("Product not found with id: " + id));
+
+        model.addAttribute("pageData", stockMonitoringService.prepareProductStockPageData(product));
+        return "stock-monitoring/product-view";
+    }
 
     // @GetMapping("/order/{id}")
     // public String monitorOrderStock(...) { /* To be implemented later */ }
@@ -0,0 +1,16 @@
+package com.speedit.inventorysystem.dto;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+@Getter
+public class InventoryVolumeDTO {
+    private final Integer inventoryId;
+    private final BigDecimal totalVolume;
+
+    public InventoryVolumeDTO(Integer inventoryId, BigDecimal totalVolume) {
+        this.inventoryId = inventoryId;
+        this.totalVolume = totalVolume != null ? totalVolume : BigDecimal.ZERO;
+    }
+}
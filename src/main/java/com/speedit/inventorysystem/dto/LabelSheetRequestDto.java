@@ -0,0 +1,21 @@
+package com.speedit.inventorysystem.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Products to print labels for. Shaped like {@link LoadStockDto}, so a load manifest can be posted
+ * as-is: {@code amounts[i]} labels are printed for {@code productIds[i]} (one each when omitted).
+ */
+@Getter @Setter
+public class LabelSheetRequestDto {
+    @NotEmpty(message="Add at least one product")
+    private List<@NotNull(message="Select a product") Integer> productIds;
+
+    private List<@NotNull(message="Enter an amount") @PositiveOrZero(message="Amount must be ≥ 0") Integer> amounts;
+}
@@ -0,0 +1,59 @@
+package com.speedit.inventorysystem.dto;
+
+import com.speedit.inventorysystem.model.Product;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Page model of the product stock monitor: where one product is held, across all inventories,
+ * counting units packed inside its container parents (all amounts are in units of the product).
+ */
+@Getter
+@Setter
+public class ProductStockMonitorDTO {
+    // Level 1 Data
+    private Product product;
+    private String productInfo;
+    private long totalAvailable;
+    private long totalReserved;
+
+    // Level 2 / 3 Data
+    private List<InventoryPosition> inventories = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class InventoryPosition {
+        private Integer inventoryId;
+        private String inventoryType;
+        private String location;
+        private long available;
+        private long reserved;
+        private List<Holding> holdings = new ArrayList<>();
+
+        public long getTotal() {
+            return available + reserved;
+        }
+    }
+
+    /** Stock of the product itself (multiplier 1) or of a container parent holding it. */
+    @Getter
+    @Setter
+    public static class Holding {
+        private Integer productId;
+        private String productInfo;
+        private long unitsPerItem;
+        private long availableItems;
+        private long reservedItems;
+
+        public long getAvailableUnits() {
+            return availableItems * unitsPerItem;
+        }
+
+        public long getReservedUnits() {
+            return reservedItems * unitsPerItem;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.speedit.inventorysystem.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Resolution of one scanned barcode. Only {@code code} and {@code status} are set unless the
+ * status is FOUND.
+ */
+@Getter
+@AllArgsConstructor
+public class ScanResultDTO {
+    public enum Status { FOUND, INVALID_FORMAT, UNKNOWN_PREFIX, CHECKSUM_MISMATCH, NOT_FOUND }
+
+    private String code;
+    private Status status;
+    private Integer productId;
+    private boolean container;
+    private String productInfo;        // options, or the container chain ("BOX contains 20 -> ...")
+    private Integer leafProductId;     // the base product inside a container, the product itself otherwise
+    private long unitsPerItem;         // leaf units in one item of this product
+    private long availableItems;
+    private long reservedItems;
+    private List<InventoryAmount> inventories;
+    private List<Integer> heldIn;      // container products holding this one, nearest first
+
+    public static ScanResultDTO unresolved(String code, Status status) {
+        return new ScanResultDTO(code, status, null, false, null, null, 0, 0, 0, List.of(), List.of());
+    }
+
+    /** Items of the scanned product in one inventory. */
+    @Getter
+    @AllArgsConstructor
+    public static class InventoryAmount {
+        private Integer inventoryId;
+        private long availableItems;
+        private long reservedItems;
+    }
+}
@@ -0,0 +1,26 @@
+package com.speedit.inventorysystem.dto.stockmonitoring;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * One row of the fleet overview: fill level, stock mix and open movements of an inventory.
+ */
+@Getter
+@AllArgsConstructor
+public class FleetInventoryJsonDTO {
+    private int inventoryId;
+    private String inventoryType;
+    private String location;
+    private boolean status;
+    private BigDecimal capacity;
+    private BigDecimal occupiedVolume;
+    private BigDecimal fillRatio;
+    private long skuCount;
+    private long availableUnits;
+    private long reservedUnits;
+    private long pendingMovementsOut;
+    private long pendingMovementsIn;
+}
@@ -12,4 +12,10 @@ public class InventoryStockJsonDTO {
     private Integer orderItemId; // Can be null
     private int amount;
     private Integer employeeId; // Can be null
+
+    /** From a row of InventoryStockRepository's stock row queries. */
+    public static InventoryStockJsonDTO fromRow(Object[] row) {
+        return new InventoryStockJsonDTO((Integer) row[0], (Integer) row[1], (Integer) row[2],
+                (Integer) row[3], (Integer) row[4], (Integer) row[5]);
+    }
 }
\ No newline at end of file
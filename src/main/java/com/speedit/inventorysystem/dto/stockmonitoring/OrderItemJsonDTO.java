@@ -11,4 +11,10 @@ public class OrderItemJsonDTO {
     private int productId;
     private int quantity;
     private long discount;
+
+    /** From a row of OrderItemRepository's order item row queries; a missing discount is 0. */
+    public static OrderItemJsonDTO fromRow(Object[] row) {
+        return new OrderItemJsonDTO((Integer) row[0], (Integer) row[1], (Integer) row[2],
+                (Integer) row[3], row[4] != null ? ((Number) row[4]).longValue() : 0L);
+    }
 }
\ No newline at end of file
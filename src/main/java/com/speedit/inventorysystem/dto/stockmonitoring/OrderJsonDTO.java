@@ -13,4 +13,10 @@ public class OrderJsonDTO {
     private String deliveryLocation;
     private long totalOrderItems;
     private int totalOrderItemsQuantities;
+
+    /** From a row of OrderRepository's order row queries (status is the enum constant). */
+    public static OrderJsonDTO fromRow(Object[] row) {
+        return new OrderJsonDTO((Integer) row[0], ((Enum<?>) row[1]).name(), (Integer) row[2], (Integer) row[3],
+                (String) row[4], ((Number) row[5]).longValue(), ((Number) row[6]).intValue());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.speedit.inventorysystem.dto.stockmonitoring;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental update for one inventory's stock monitor, pushed over SSE.
+ * Rows use the same DTOs and keys as StockDataJson; the client upserts them by ID
+ * and deletes the removed IDs. {@code seq} increases by one per delta for the inventory.
+ */
+@Getter
+@Setter
+public class StockDeltaJson {
+    private long seq;
+    private int inventoryId;
+
+    private List<ProductJsonDTO> products = new ArrayList<>();
+
+    @JsonProperty("inventory-stocks")
+    private List<InventoryStockJsonDTO> inventoryStocks = new ArrayList<>();
+
+    private List<UserJsonDTO> users = new ArrayList<>();
+    private List<OrderJsonDTO> orders = new ArrayList<>();
+
+    @JsonProperty("order-items")
+    private List<OrderItemJsonDTO> orderItems = new ArrayList<>();
+
+    @JsonProperty("removed-inventory-stocks")
+    private List<Integer> removedInventoryStockIds = new ArrayList<>();
+
+    @JsonProperty("removed-orders")
+    private List<Integer> removedOrderIds = new ArrayList<>();
+}
@@ -8,4 +8,9 @@ import lombok.Getter;
 public class UserJsonDTO {
     private int userId;
     private String name;
+
+    /** From a row of UserRepository's user row queries. */
+    public static UserJsonDTO fromRow(Object[] row) {
+        return new UserJsonDTO((Integer) row[0], (String) row[1]);
+    }
 }
\ No newline at end of file
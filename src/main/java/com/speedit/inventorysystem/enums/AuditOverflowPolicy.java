@@ -0,0 +1,8 @@
+package com.speedit.inventorysystem.enums;
+
+/** What AuditLogService does with a new entry when its buffer is full. */
+public enum AuditOverflowPolicy {
+    DROP_NEWEST,  // discard the new entry
+    DROP_OLDEST,  // discard the oldest buffered entry to make room
+    BLOCK         // wait for the writer up to the configured timeout, then discard the new entry
+}
@@ -0,0 +1,7 @@
+package com.speedit.inventorysystem.enums;
+
+public enum ImportStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,12 @@
+package com.speedit.inventorysystem.enums;
+
+public enum LedgerReason {
+    OPENING,
+    LOAD,
+    TRANSFER_OUT,
+    TRANSFER_IN,
+    DELIVERED,
+    RESERVED,
+    PRODUCT_DELETED,
+    INVENTORY_DELETED
+}
@@ -0,0 +1,39 @@
+package com.speedit.inventorysystem.event;
+
+import com.speedit.inventorysystem.model.*;
+import com.speedit.inventorysystem.service.AggregateVersionService;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import static com.speedit.inventorysystem.service.AggregateVersionService.*;
+
+/**
+ * JPA entity listener that bumps the {@link AggregateVersionService} keys an entity write affects,
+ * once the transaction commits. Stock rows are covered by {@link StockChangedEvent} instead.
+ */
+@Component
+public class AggregateVersionListener {
+
+    @Autowired
+    private AggregateVersionService aggregateVersionService;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onWrite(Object entity) {
+        if (entity instanceof Inventory inventory) {
+            aggregateVersionService.bumpAfterCommit(inventoryKey(inventory.getInventoryId()));
+        } else if (entity instanceof Product product) {
+            aggregateVersionService.bumpAfterCommit(productKey(product.getProductId()), CATALOG);
+        } else if (entity instanceof Container container) {
+            aggregateVersionService.bumpAfterCommit(productKey(container.getParentProduct().getProductId()), CATALOG);
+        } else if (entity instanceof ProductOption || entity instanceof OptionCategory) {
+            aggregateVersionService.bumpAfterCommit(OPTIONS, CATALOG);
+        } else if (entity instanceof Order || entity instanceof OrderItem || entity instanceof User) {
+            aggregateVersionService.bumpAfterCommit(ORDERS);
+        }
+    }
+}
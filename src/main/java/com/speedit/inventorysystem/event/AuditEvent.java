@@ -0,0 +1,10 @@
+package com.speedit.inventorysystem.event;
+
+/**
+ * An action worth a TransactionLog row. Published inside the transaction that performs it;
+ * AuditLogService picks it up after commit, so rolled-back actions are not logged.
+ *
+ * @param action what happened, in words (stored as TransactionLog.action)
+ */
+public record AuditEvent(String action) {
+}
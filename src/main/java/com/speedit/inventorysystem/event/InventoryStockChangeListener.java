@@ -0,0 +1,124 @@
+package com.speedit.inventorysystem.event;
+
+import com.speedit.inventorysystem.model.InventoryStock;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * JPA entity listener on InventoryStock that collects the rows changed in the current transaction
+ * and publishes a single {@link StockChangedEvent} after commit (nothing on rollback).
+ * Hibernate obtains it from the Spring context, so it can be injected.
+ *
+ * Writes that bypass JPA (bulk JPQL/JDBC) are not seen here and must publish the event themselves.
+ */
+@Component
+public class InventoryStockChangeListener {
+
+    private static final Object PENDING_CHANGES_KEY = new Object();
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PostLoad
+    public void onLoad(InventoryStock stock) {
+        stock.setLoadedInventoryId(inventoryIdOf(stock));
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(InventoryStock stock) {
+        PendingChanges pending = pendingChanges();
+        Integer current = inventoryIdOf(stock);
+        Integer previous = stock.getLoadedInventoryId();
+        if (pending != null) {
+            pending.product(stock);
+            if (previous != null && !previous.equals(current)) {
+                pending.removed(previous, stock.getInventoryStockId()); // moved out or delivered
+            }
+            if (current != null) {
+                pending.upserted(current, stock.getInventoryStockId());
+            }
+        }
+        stock.setLoadedInventoryId(current);
+    }
+
+    @PostRemove
+    public void onRemove(InventoryStock stock) {
+        PendingChanges pending = pendingChanges();
+        Integer inventoryId = stock.getLoadedInventoryId() != null ? stock.getLoadedInventoryId() : inventoryIdOf(stock);
+        if (pending != null && inventoryId != null) {
+            pending.product(stock);
+            pending.removed(inventoryId, stock.getInventoryStockId());
+        }
+    }
+
+    private static Integer inventoryIdOf(InventoryStock stock) {
+        return stock.getInventory() != null ? stock.getInventory().getInventoryId() : null;
+    }
+
+    /** Changes of the current transaction; null outside a transaction (nothing will be committed then). */
+    private PendingChanges pendingChanges() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(PENDING_CHANGES_KEY);
+        if (pending != null) {
+            return pending;
+        }
+
+        PendingChanges created = new PendingChanges();
+        TransactionSynchronizationManager.bindResource(PENDING_CHANGES_KEY, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eventPublisher.publishEvent(created.toEvent());
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_CHANGES_KEY);
+            }
+        });
+        return created;
+    }
+
+    private static class PendingChanges {
+        private final Map<Integer, Set<Integer>> upserted = new HashMap<>();
+        private final Map<Integer, Set<Integer>> removed = new HashMap<>();
+        private final Set<Integer> productIds = new HashSet<>();
+
+        void product(InventoryStock stock) {
+            if (stock.getProduct() != null) productIds.add(stock.getProduct().getProductId());
+        }
+
+        void upserted(Integer inventoryId, Integer stockId) {
+            upserted.computeIfAbsent(inventoryId, id -> new HashSet<>()).add(stockId);
+            Set<Integer> removedHere = removed.get(inventoryId);
+            if (removedHere != null) removedHere.remove(stockId); // moved back within the same transaction
+        }
+
+        void removed(Integer inventoryId, Integer stockId) {
+            removed.computeIfAbsent(inventoryId, id -> new HashSet<>()).add(stockId);
+            Set<Integer> upsertedHere = upserted.get(inventoryId);
+            if (upsertedHere != null) upsertedHere.remove(stockId);
+        }
+
+        StockChangedEvent toEvent() {
+            upserted.values().removeIf(Set::isEmpty);
+            removed.values().removeIf(Set::isEmpty);
+            return new StockChangedEvent(upserted, removed, productIds);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.speedit.inventorysystem.event;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Published once per committed transaction that inserted, updated or removed InventoryStock rows.
+ *
+ * @param upsertedStockIds stock rows now present in each inventory (inventoryId -> stock ids)
+ * @param removedStockIds  stock rows that left each inventory, by move, delivery or delete
+ * @param productIds       products of all those rows (their stock totals changed)
+ */
+public record StockChangedEvent(Map<Integer, Set<Integer>> upsertedStockIds,
+                                Map<Integer, Set<Integer>> removedStockIds,
+                                Set<Integer> productIds) {
+
+    /** Every inventory affected by the transaction. */
+    public Set<Integer> inventoryIds() {
+        Set<Integer> ids = new HashSet<>(upsertedStockIds.keySet());
+        ids.addAll(removedStockIds.keySet());
+        return ids;
+    }
+}
@@ -1,6 +1,7 @@
 package com.speedit.inventorysystem.model;
 
 import com.speedit.inventorysystem.enums.UnitType;
+import com.speedit.inventorysystem.event.AggregateVersionListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
@@ -21,6 +22,7 @@ import java.math.BigDecimal;
  * The parentProduct is mandatory and unique to this container definition.
  */
 @Entity
+@EntityListeners(AggregateVersionListener.class)
 @Table(name = "container") // Explicitly specify table name
 @Getter
 @Setter
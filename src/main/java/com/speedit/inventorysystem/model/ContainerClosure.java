@@ -0,0 +1,53 @@
+package com.speedit.inventorysystem.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+
+/**
+ * One row of the container hierarchy closure: {@code ancestorProductId} is a container parent that
+ * holds {@code descendantProductId}, directly (depth 1) or through nested containers.
+ * {@code multiplier} is how many descendant units one ancestor item holds.
+ *
+ * Read-only mapping; rows are written with bulk SQL by ContainerClosureService.
+ */
+@Entity
+@Immutable
+@Table(name = "container_closure")
+@IdClass(ContainerClosure.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContainerClosure {
+
+    @Id
+    @Column(name = "ancestor_product_id")
+    private Integer ancestorProductId;
+
+    @Id
+    @Column(name = "descendant_product_id")
+    private Integer descendantProductId;
+
+    @Column(name = "depth", nullable = false)
+    private int depth;
+
+    @Column(name = "multiplier", nullable = false)
+    private long multiplier;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Integer ancestorProductId;
+        private Integer descendantProductId;
+    }
+}
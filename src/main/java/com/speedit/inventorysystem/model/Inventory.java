@@ -2,6 +2,7 @@ package com.speedit.inventorysystem.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.speedit.inventorysystem.enums.InventoryTypeEnum;
+import com.speedit.inventorysystem.event.AggregateVersionListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotBlank;
@@ -18,6 +19,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(AggregateVersionListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -61,6 +63,13 @@ public class Inventory extends BaseEntity {
     @DecimalMin(value = "0.0", inclusive = false)
     private BigDecimal capacity;
 
+    /**
+     * Total volume (cm³) of all stock held here, available and reserved.
+     * Maintained by OccupiedVolumeService with SQL increments, never written through the entity.
+     */
+    @Column(name = "occupied_volume_cc", precision = 30, scale = 10, insertable = false, updatable = false)
+    private BigDecimal occupiedVolumeCc;
+
     @OneToMany(mappedBy = "inventory", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
     private List<InventoryStock> inventoryStocks = new ArrayList<>();
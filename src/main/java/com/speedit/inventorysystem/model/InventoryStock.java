@@ -1,5 +1,6 @@
 package com.speedit.inventorysystem.model;
 
+import com.speedit.inventorysystem.event.InventoryStockChangeListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.PositiveOrZero;
@@ -11,6 +12,7 @@ import org.hibernate.annotations.GenericGenerator;
 
 @Entity
 @Table(name = "inventory_stock") // Specify the correct table name
+@EntityListeners(InventoryStockChangeListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -43,4 +45,8 @@ public class InventoryStock extends BaseEntity {
     @ManyToOne(optional = true, fetch = FetchType.LAZY) // optional = true tells JPA the relationship can be null
     @JoinColumn(name = "employee_id", nullable = true) // nullable = true tells Hibernate to generate a nullable column
     private User employee;
-}
\ No newline at end of file
+
+    /** Inventory this row was in when loaded, so moves can be reported to the old inventory too. */
+    @Transient
+    private Integer loadedInventoryId;
+}
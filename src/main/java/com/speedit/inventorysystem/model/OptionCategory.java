@@ -1,5 +1,6 @@
 package com.speedit.inventorysystem.model;
 
+import com.speedit.inventorysystem.event.AggregateVersionListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import lombok.*;
@@ -7,6 +8,7 @@ import lombok.*;
 import java.util.List;
 
 @Entity
+@EntityListeners(AggregateVersionListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
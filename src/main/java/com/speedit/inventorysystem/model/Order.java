@@ -1,6 +1,7 @@
 package com.speedit.inventorysystem.model;
 
 import com.speedit.inventorysystem.enums.OrderStatusEnum;
+import com.speedit.inventorysystem.event.AggregateVersionListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -16,6 +17,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(AggregateVersionListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -1,5 +1,6 @@
 package com.speedit.inventorysystem.model;
 
+import com.speedit.inventorysystem.event.AggregateVersionListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -14,6 +15,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(AggregateVersionListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -2,6 +2,7 @@ package com.speedit.inventorysystem.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.speedit.inventorysystem.event.AggregateVersionListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.NotNull;
@@ -14,10 +15,17 @@ import lombok.Setter;
 import org.hibernate.annotations.GenericGenerator;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Entity
+@EntityListeners(AggregateVersionListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -81,6 +89,33 @@ public class Product extends BaseEntity {
     @DecimalMin(value = "0.0", inclusive = false)
     private BigDecimal length;
 
+    /**
+     * Canonical key of a base product's option set (see {@link #optionSignature}); null for container
+     * parents. Unique, so no two base products can have the same options.
+     */
+    @Column(name = "option_signature", length = 64, unique = true)
+    @JsonIgnore
+    private String optionSignature;
+
+    /**
+     * SHA-256 (lowercase hex) of the distinct option IDs, sorted and joined with ','. Same value as
+     * SHA2(GROUP_CONCAT(option_id ORDER BY option_id), 256) in MySQL, which the V8 backfill uses.
+     */
+    public static String optionSignature(Collection<ProductOption> options) {
+        String canonical = options.stream()
+                .map(ProductOption::getOptionId)
+                .distinct()
+                .sorted()
+                .map(String::valueOf)
+                .collect(Collectors.joining(","));
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // required on every JVM
+        }
+    }
+
     public String getProductOptionsDisplay() {
         if (productOptions == null || productOptions.isEmpty()) return "";
         return productOptions.stream()
@@ -0,0 +1,39 @@
+package com.speedit.inventorysystem.model;
+
+import com.speedit.inventorysystem.enums.ImportStatus;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+
+/**
+ * One streamed CSV stock import and how far it got. See StockImportService.
+ */
+@Entity
+@Table(name = "stock_import")
+@Getter
+@Setter
+@NoArgsConstructor
+public class StockImport extends BaseEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO, generator = "native")
+    @GenericGenerator(name = "native", strategy = "native")
+    private Long importId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private ImportStatus status;
+
+    /** File lines (header and rejected lines included) whose stock is committed; a resume skips these. */
+    private long committedLines;
+
+    /** Valid lines loaded into stock. */
+    private long loadedLines;
+
+    /** Lines skipped as invalid. */
+    private long rejectedLines;
+
+    private String lastError;
+}
@@ -2,6 +2,7 @@ package com.speedit.inventorysystem.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.speedit.inventorysystem.enums.UserRoleEnum;
+import com.speedit.inventorysystem.event.AggregateVersionListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -14,6 +15,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@EntityListeners(AggregateVersionListener.class)
 @Getter
 @Setter
 @NoArgsConstructor
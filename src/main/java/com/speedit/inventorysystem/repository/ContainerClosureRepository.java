@@ -0,0 +1,93 @@
+package com.speedit.inventorysystem.repository;
+
+import com.speedit.inventorysystem.model.ContainerClosure;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ContainerClosureRepository extends JpaRepository<ContainerClosure, ContainerClosure.Key> {
+
+    /** Every container parent holding a product, nearest first: [ancestorProductId, depth, multiplier]. */
+    @Query("""
+        SELECT c.ancestorProductId, c.depth, c.multiplier FROM ContainerClosure c
+        WHERE c.descendantProductId = :productId
+        ORDER BY c.depth
+    """)
+    List<Object[]> findAncestorRows(@Param("productId") Integer productId);
+
+    /** Container parents holding a product, farthest first (the order they can be deleted in). */
+    @Query("""
+        SELECT c.ancestorProductId FROM ContainerClosure c
+        WHERE c.descendantProductId = :productId
+        ORDER BY c.depth DESC
+    """)
+    List<Integer> findAncestorIdsFarthestFirst(@Param("productId") Integer productId);
+
+    /** Container parents holding any of the given products, at any depth. */
+    @Query("""
+        SELECT DISTINCT c.ancestorProductId FROM ContainerClosure c
+        WHERE c.descendantProductId IN :productIds
+    """)
+    List<Integer> findAncestorIdsOf(@Param("productIds") Collection<Integer> productIds);
+
+    /** Bulk variant of {@link #findAncestorRows}: [descendantProductId, ancestorProductId, depth, multiplier]. */
+    @Query("""
+        SELECT c.descendantProductId, c.ancestorProductId, c.depth, c.multiplier FROM ContainerClosure c
+        WHERE c.descendantProductId IN :productIds
+        ORDER BY c.descendantProductId, c.depth
+    """)
+    List<Object[]> findAncestorRowsOf(@Param("productIds") Collection<Integer> productIds);
+
+    @Query("""
+        SELECT COUNT(c) > 0 FROM ContainerClosure c
+        WHERE c.ancestorProductId = :ancestorId AND c.descendantProductId = :descendantId
+    """)
+    boolean existsPath(@Param("ancestorId") Integer ancestorId, @Param("descendantId") Integer descendantId);
+
+    /**
+     * Adds the paths created by the link parent -> child (quantity): every ancestor of the parent
+     * (and the parent itself) now reaches the child and everything below it.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+        INSERT INTO container_closure (ancestor_product_id, descendant_product_id, depth, multiplier)
+        SELECT a.product_id, d.product_id, a.depth + d.depth + 1, a.multiplier * :quantity * d.multiplier
+        FROM (
+            SELECT :parentId AS product_id, 0 AS depth, 1 AS multiplier
+            UNION ALL
+            SELECT ancestor_product_id, depth, multiplier FROM container_closure WHERE descendant_product_id = :parentId
+        ) a
+        CROSS JOIN (
+            SELECT :childId AS product_id, 0 AS depth, 1 AS multiplier
+            UNION ALL
+            SELECT descendant_product_id, depth, multiplier FROM container_closure WHERE ancestor_product_id = :childId
+        ) d
+    """, nativeQuery = true)
+    int insertPaths(@Param("parentId") Integer parentId,
+                    @Param("childId") Integer childId,
+                    @Param("quantity") long quantity);
+
+    /** Removes the paths that go through the link parent -> child. */
+    @Transactional
+    @Modifying
+    @Query(value = """
+        DELETE cc FROM container_closure cc
+        JOIN (
+            SELECT :parentId AS product_id
+            UNION ALL
+            SELECT ancestor_product_id FROM container_closure WHERE descendant_product_id = :parentId
+        ) a ON cc.ancestor_product_id = a.product_id
+        JOIN (
+            SELECT :childId AS product_id
+            UNION ALL
+            SELECT descendant_product_id FROM container_closure WHERE ancestor_product_id = :childId
+        ) d ON cc.descendant_product_id = d.product_id
+    """, nativeQuery = true)
+    int deletePaths(@Param("parentId") Integer parentId, @Param("childId") Integer childId);
+}
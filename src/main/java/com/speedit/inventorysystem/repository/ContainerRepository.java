@@ -10,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List; // Keep for non-paginated version if needed
 import java.util.Optional;
 
@@ -43,51 +44,100 @@ public interface ContainerRepository extends JpaRepository<Container, Integer> {
     Optional<Container> findByParentProduct_ProductId(Integer parentProductId);
 
     /**
-     * Finds a page of containers based on container filters and keyset pagination.
-     * For 'NEXT' page: finds containers with ID > :afterId, ordered by ID ASC.
-     * For 'PREVIOUS' page: finds containers with ID < :beforeId, ordered by ID DESC.
-     * The service layer will reverse the order if needed for 'PREVIOUS'.
+     * Filters applied to every container, to its parent product and to the base product at the end of
+     * its chain (found through the closure table: the descendant that is not a container parent itself).
+     * - minStock: all stock (available + reserved) of the container's parent product, summed per container
+     * - optionIds: the base product must have all of them; optionCount is their distinct count (0 = no filter)
+     */
+    String FILTERED_KEYSET_QUERY = """
+        SELECT c FROM Container c
+        JOIN FETCH c.parentProduct pp
+        JOIN FETCH c.childProduct
+        JOIN ContainerClosure leaf ON leaf.ancestorProductId = pp.productId
+        WHERE NOT EXISTS (SELECT 1 FROM Container lc WHERE lc.parentProduct.productId = leaf.descendantProductId)
+        AND (:minQuantity IS NULL OR c.quantity >= :minQuantity)
+        AND (:maxQuantity IS NULL OR c.quantity <= :maxQuantity)
+        AND (:unit IS NULL OR c.unit = :unit)
+        AND (:minPrice IS NULL OR pp.price >= :minPrice)
+        AND (:maxPrice IS NULL OR pp.price <= :maxPrice)
+        AND (:minVolume IS NULL OR pp.volume >= :minVolume)
+        AND (:maxVolume IS NULL OR pp.volume <= :maxVolume)
+        AND (:minStock IS NULL OR
+             (SELECT COALESCE(SUM(s.amount), 0) FROM InventoryStock s WHERE s.product.productId = pp.productId) >= :minStock)
+        AND (:optionCount = 0 OR
+             (SELECT COUNT(DISTINCT o.optionId) FROM Product lp JOIN lp.productOptions o
+              WHERE lp.productId = leaf.descendantProductId AND o.optionId IN :optionIds) = :optionCount)
+        AND (COALESCE(:afterId, -1) = -1 OR c.containerId > :afterId)
+        AND (COALESCE(:beforeId, -1) = -1 OR c.containerId < :beforeId)
+        """;
+
+    /**
+     * One keyset page of containers matching all filters, ordered by ID ascending ('NEXT' and first pages).
+     * All filters are evaluated here, so the page is full whenever enough matches exist.
      *
-     * @param minQuantity  Minimum quantity (inclusive), can be null.
-     * @param maxQuantity  Maximum quantity (inclusive), can be null.
-     * @param unit         Specific unit type, can be null.
-     * @param minPrice
-     * @param maxPrice
-     * @param minVolume
-     * @param maxVolume
-     * @param afterId      The ID to start fetching *after* (for NEXT page).
-     * @param beforeId     The ID to start fetching *before* (for PREVIOUS page).
-     * @param pageable not limit    The maximum number of results to fetch.
-     * @return A List of Container entities matching the criteria.
+     * @param optionIds must not be empty; pass a placeholder when optionCount is 0
+     * @param afterId   fetch containers after this ID, null for the first page
+     * @param beforeId  always null here (kept so both directions share one WHERE clause)
+     * @param pageable  limit only (page 0, size = page size + 1 to detect a further page)
      */
-    @Query("SELECT c FROM Container c " +
-            "JOIN FETCH c.parentProduct " +
-            "JOIN FETCH c.childProduct " +
-            "WHERE (:minQuantity IS NULL OR c.quantity >= :minQuantity) " +
-            "AND (:maxQuantity IS NULL OR c.quantity <= :maxQuantity) " +
-            "AND (:unit IS NULL OR c.unit = :unit) " +
-            // filters for the parent product
-            "AND (:minPrice IS NULL OR c.parentProduct.price >= :minPrice) " +
-            "AND (:maxPrice IS NULL OR c.parentProduct.price <= :maxPrice) " +
-            "AND (:minVolume IS NULL OR c.parentProduct.volume >= :minVolume) " +
-            "AND (:maxVolume IS NULL OR c.parentProduct.volume <= :maxVolume) " +
-            // Keyset pagination logic
-            "AND (COALESCE(:afterId, -1) = -1 OR c.containerId > :afterId) " +
-            "AND (COALESCE(:beforeId, -1) = -1 OR c.containerId < :beforeId) " +
-            "ORDER BY c.containerId ASC")
-    List<Container> findByContainerFiltersKeyset(
+    @Query(FILTERED_KEYSET_QUERY + "ORDER BY c.containerId ASC")
+    List<Container> findFilteredKeysetAscending(
+            @Param("minQuantity") Integer minQuantity,
+            @Param("maxQuantity") Integer maxQuantity,
+            @Param("unit") UnitType unit,
+            @Param("minPrice") Long minPrice,
+            @Param("maxPrice") Long maxPrice,
+            @Param("minVolume") BigDecimal minVolume,
+            @Param("maxVolume") BigDecimal maxVolume,
+            @Param("minStock") Integer minStock,
+            @Param("optionIds") Collection<Integer> optionIds,
+            @Param("optionCount") long optionCount,
+            @Param("afterId") Integer afterId,
+            @Param("beforeId") Integer beforeId,
+            Pageable pageable);
+
+    /** Same as {@link #findFilteredKeysetAscending}, ordered by ID descending ('PREVIOUS' pages, reversed by the caller). */
+    @Query(FILTERED_KEYSET_QUERY + "ORDER BY c.containerId DESC")
+    List<Container> findFilteredKeysetDescending(
             @Param("minQuantity") Integer minQuantity,
             @Param("maxQuantity") Integer maxQuantity,
             @Param("unit") UnitType unit,
-            // ✨ NEW parameters
             @Param("minPrice") Long minPrice,
             @Param("maxPrice") Long maxPrice,
             @Param("minVolume") BigDecimal minVolume,
             @Param("maxVolume") BigDecimal maxVolume,
-            // Keyset pagination parameters
+            @Param("minStock") Integer minStock,
+            @Param("optionIds") Collection<Integer> optionIds,
+            @Param("optionCount") long optionCount,
             @Param("afterId") Integer afterId,
             @Param("beforeId") Integer beforeId,
             Pageable pageable);
 
     List<Container> findByChildProduct_ProductId(Integer id);
-}
\ No newline at end of file
+
+    /**
+     * One level of container links for the given parent products, without loading entities:
+     * [parentProductId, unit, quantity, childProductId].
+     */
+    @Query("""
+       SELECT c.parentProduct.productId, c.unit, c.quantity, c.childProduct.productId
+       FROM Container c
+       WHERE c.parentProduct.productId IN :parentProductIds
+    """)
+    List<Object[]> findLinkRowsByParentProductIds(@Param("parentProductIds") Collection<Integer> parentProductIds);
+
+    /** Same columns as {@link #findLinkRowsByParentProductIds}, for the containers holding the given products. */
+    @Query("""
+       SELECT c.parentProduct.productId, c.unit, c.quantity, c.childProduct.productId
+       FROM Container c
+       WHERE c.childProduct.productId IN :childProductIds
+    """)
+    List<Object[]> findLinkRowsByChildProductIds(@Param("childProductIds") Collection<Integer> childProductIds);
+
+    /** Every container link, same columns as {@link #findLinkRowsByParentProductIds}. */
+    @Query("""
+       SELECT c.parentProduct.productId, c.unit, c.quantity, c.childProduct.productId
+       FROM Container c
+    """)
+    List<Object[]> findAllLinkRows();
+}
@@ -1,11 +1,15 @@
 package com.speedit.inventorysystem.repository;
 
+import com.speedit.inventorysystem.dto.InventoryVolumeDTO;
 import com.speedit.inventorysystem.enums.InventoryTypeEnum;
 import com.speedit.inventorysystem.model.Inventory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
 public interface InventoryRepository extends JpaRepository<Inventory, Integer> {
@@ -15,4 +19,50 @@ public interface InventoryRepository extends JpaRepository<Inventory, Integer> {
           AND inv.status = true
     """)
     List<Inventory> findActiveByType(@Param("type") InventoryTypeEnum type);
+
+    @Query("SELECT i.inventoryId FROM Inventory i")
+    List<Integer> findAllInventoryIds();
+
+    @Query("SELECT i.occupiedVolumeCc FROM Inventory i WHERE i.inventoryId = :inventoryId")
+    BigDecimal findOccupiedVolumeById(@Param("inventoryId") Integer inventoryId);
+
+    @Query("""
+        SELECT NEW com.speedit.inventorysystem.dto.InventoryVolumeDTO(i.inventoryId, i.occupiedVolumeCc)
+        FROM Inventory i
+        WHERE i.inventoryId IN :inventoryIds
+    """)
+    List<InventoryVolumeDTO> findOccupiedVolumesByIds(@Param("inventoryIds") Collection<Integer> inventoryIds);
+
+    @Modifying
+    @Query("""
+        UPDATE Inventory i
+        SET i.occupiedVolumeCc = i.occupiedVolumeCc + :delta
+        WHERE i.inventoryId = :inventoryId
+    """)
+    int addOccupiedVolume(@Param("inventoryId") Integer inventoryId, @Param("delta") BigDecimal delta);
+
+    /**
+     * Recomputes every counter from inventory_stock in one statement and returns how many had drifted.
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE inventory i
+        LEFT JOIN (
+            SELECT s.inventory_id, SUM(p.volume * s.amount) AS volume
+            FROM inventory_stock s
+            JOIN product p ON p.product_id = s.product_id
+            GROUP BY s.inventory_id
+        ) actual ON actual.inventory_id = i.inventory_id
+        SET i.occupied_volume_cc = COALESCE(actual.volume, 0)
+        WHERE i.occupied_volume_cc <> COALESCE(actual.volume, 0)
+    """, nativeQuery = true)
+    int reconcileOccupiedVolumes();
+
+    /** [inventoryId, inventoryType, location, status, capacity, occupiedVolumeCc] of every inventory. */
+    @Query("""
+        SELECT i.inventoryId, i.inventoryType, i.location, i.status, i.capacity, i.occupiedVolumeCc
+        FROM Inventory i
+        ORDER BY i.inventoryId
+    """)
+    List<Object[]> findFleetRows();
 }
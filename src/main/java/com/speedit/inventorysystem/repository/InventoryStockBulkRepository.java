@@ -0,0 +1,157 @@
+package com.speedit.inventorysystem.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based JDBC writes to inventory_stock for bulk paths, where one JPA save per row would mean
+ * thousands of statements. These bypass the entity listeners: callers record the occupied volume
+ * and publish the StockChangedEvent themselves. Audit columns are filled here.
+ */
+@Repository
+@RequiredArgsConstructor
+public class InventoryStockBulkRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final AuditorAware<String> auditorAware;
+
+    /**
+     * Available stock rows (no order item) of the given products in one inventory, locked until
+     * the transaction ends so a concurrent load can't add a second row for the same product.
+     *
+     * @return productId -> inventoryStockId
+     */
+    public Map<Integer, Integer> lockAvailableStockIds(Integer inventoryId, Collection<Integer> productIds) {
+        Map<Integer, Integer> stockIds = new HashMap<>();
+        jdbc.query("""
+                SELECT product_id, inventory_stock_id FROM inventory_stock
+                WHERE inventory_id = :inventoryId AND order_item_id IS NULL AND product_id IN (:productIds)
+                ORDER BY inventory_stock_id
+                FOR UPDATE
+                """,
+                new MapSqlParameterSource("inventoryId", inventoryId).addValue("productIds", productIds),
+                rs -> {
+                    stockIds.putIfAbsent(rs.getInt(1), rs.getInt(2));
+                });
+        return stockIds;
+    }
+
+    /** Adds {@code deltas[i]} to the amount of stock row {@code stockIds[i]}, as one JDBC batch. */
+    public void addToAmounts(List<Integer> stockIds, List<Integer> deltas) {
+        if (stockIds.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = currentAuditor();
+        jdbc.getJdbcOperations().batchUpdate("""
+                UPDATE inventory_stock SET amount = amount + ?, updated_at = ?, updated_by = ?
+                WHERE inventory_stock_id = ?
+                """, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setInt(1, deltas.get(i));
+                ps.setTimestamp(2, now);
+                setNullableString(ps, 3, auditor);
+                ps.setInt(4, stockIds.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return stockIds.size();
+            }
+        });
+    }
+
+    /**
+     * Inserts available stock rows ({@code amounts[i]} of {@code productIds[i]}) as one JDBC batch.
+     *
+     * @return the generated stock IDs, in input order
+     */
+    public List<Integer> insertAvailable(Integer inventoryId, List<Integer> productIds, List<Integer> amounts) {
+        return insertRows(inventoryId, productIds, Collections.nCopies(productIds.size(), null), amounts);
+    }
+
+    /**
+     * Inserts stock rows ({@code amounts[i]} of {@code productIds[i]}, reserved for {@code orderItemIds[i]}
+     * when not null) as one JDBC batch. A null {@code inventoryId} records stock delivered to a client.
+     *
+     * @return the generated stock IDs, in input order
+     */
+    public List<Integer> insertRows(Integer inventoryId, List<Integer> productIds, List<Integer> orderItemIds,
+                                    List<Integer> amounts) {
+        if (productIds.isEmpty()) {
+            return List.of();
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        String auditor = currentAuditor();
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.getJdbcOperations().batchUpdate(con -> con.prepareStatement("""
+                INSERT INTO inventory_stock (inventory_id, product_id, order_item_id, amount, created_at, created_by)
+                VALUES (?, ?, ?, ?, ?, ?)
+                """, Statement.RETURN_GENERATED_KEYS), new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                setNullableInt(ps, 1, inventoryId);
+                ps.setInt(2, productIds.get(i));
+                setNullableInt(ps, 3, orderItemIds.get(i));
+                ps.setInt(4, amounts.get(i));
+                ps.setTimestamp(5, now);
+                setNullableString(ps, 6, auditor);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return productIds.size();
+            }
+        }, keys);
+
+        List<Integer> stockIds = new ArrayList<>(productIds.size());
+        for (Map<String, Object> row : keys.getKeyList()) {
+            stockIds.add(((Number) row.values().iterator().next()).intValue());
+        }
+        return stockIds;
+    }
+
+    private String currentAuditor() {
+        try {
+            return auditorAware.getCurrentAuditor().orElse(null);
+        } catch (RuntimeException e) {
+            return null; // no authenticated user, e.g. a background job
+        }
+    }
+
+    private static void setNullableString(PreparedStatement ps, int index, String value) throws SQLException {
+        if (value != null) {
+            ps.setString(index, value);
+        } else {
+            ps.setNull(index, Types.VARCHAR);
+        }
+    }
+
+    private static void setNullableInt(PreparedStatement ps, int index, Integer value) throws SQLException {
+        if (value != null) {
+            ps.setInt(index, value);
+        } else {
+            ps.setNull(index, Types.INTEGER);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.speedit.inventorysystem.repository;
 
+import com.speedit.inventorysystem.dto.InventoryVolumeDTO;
 import com.speedit.inventorysystem.dto.OrderDTO;
 import com.speedit.inventorysystem.dto.ProductStockDTO;
 import com.speedit.inventorysystem.enums.InventoryTypeEnum;
@@ -7,12 +8,18 @@ import com.speedit.inventorysystem.model.Inventory;
 import com.speedit.inventorysystem.model.InventoryStock;
 import com.speedit.inventorysystem.model.OrderItem;
 import com.speedit.inventorysystem.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface InventoryStockRepository extends JpaRepository<InventoryStock, Integer> {
     Optional<InventoryStock> findByInventoryAndProductAndOrderItemIsNull(Inventory inv, Product p);
@@ -99,4 +106,147 @@ public interface InventoryStockRepository extends JpaRepository<InventoryStock,
             @Param("inventory") Inventory inventory,
             @Param("product") Product product
     );
+
+    /**
+     * Total occupied volume (product volume x amount, available + reserved) of one inventory,
+     * computed in the database instead of hydrating every stock row and product.
+     */
+    @Query("""
+       SELECT COALESCE(SUM(p.volume * s.amount), 0) FROM InventoryStock s
+       JOIN s.product p
+       WHERE s.inventory.inventoryId = :inventoryId
+    """)
+    BigDecimal sumVolumeByInventoryId(@Param("inventoryId") Integer inventoryId);
+
+    /**
+     * Bulk variant of {@link #sumVolumeByInventoryId}. Inventories without stock have no row.
+     */
+    @Query("""
+       SELECT NEW com.speedit.inventorysystem.dto.InventoryVolumeDTO(s.inventory.inventoryId, SUM(p.volume * s.amount))
+       FROM InventoryStock s
+       JOIN s.product p
+       WHERE s.inventory.inventoryId IN :inventoryIds
+       GROUP BY s.inventory.inventoryId
+    """)
+    List<InventoryVolumeDTO> sumVolumeByInventoryIds(@Param("inventoryIds") Collection<Integer> inventoryIds);
+
+    /** Total amount (available + reserved) of one product per inventory, as [inventoryId, amount] rows. */
+    @Query("""
+       SELECT s.inventory.inventoryId, SUM(s.amount) FROM InventoryStock s
+       WHERE s.product.productId = :productId
+       GROUP BY s.inventory.inventoryId
+    """)
+    List<Object[]> sumAmountByInventoryForProduct(@Param("productId") Integer productId);
+
+    /** Amount held per position of one product, as [inventoryId, orderItemId, amount] rows (orderItemId null for available stock). */
+    @Query("""
+       SELECT s.inventory.inventoryId, oi.orderItemId, SUM(s.amount) FROM InventoryStock s
+       LEFT JOIN s.orderItem oi
+       WHERE s.product.productId = :productId
+       GROUP BY s.inventory.inventoryId, oi.orderItemId
+    """)
+    List<Object[]> sumAmountByPositionForProduct(@Param("productId") Integer productId);
+
+    /** Amount held per position in one inventory, as [productId, orderItemId, amount] rows (orderItemId null for available stock). */
+    @Query("""
+       SELECT s.product.productId, oi.orderItemId, SUM(s.amount) FROM InventoryStock s
+       LEFT JOIN s.orderItem oi
+       WHERE s.inventory.inventoryId = :inventoryId
+       GROUP BY s.product.productId, oi.orderItemId
+    """)
+    List<Object[]> sumAmountByPositionForInventory(@Param("inventoryId") Integer inventoryId);
+
+    /**
+     * Stock rows of the given products in one inventory, in stock ID order: the available ones when
+     * {@code orderId} is null, otherwise the ones reserved for that order.
+     */
+    @Query("""
+       SELECT s FROM InventoryStock s
+       JOIN FETCH s.inventory
+       JOIN FETCH s.product p
+       LEFT JOIN FETCH s.orderItem oi
+       LEFT JOIN oi.order o
+       WHERE s.inventory.inventoryId = :inventoryId
+         AND p.productId IN :productIds
+         AND ((:orderId IS NULL AND oi IS NULL) OR o.orderId = :orderId)
+       ORDER BY s.inventoryStockId
+    """)
+    List<InventoryStock> findUnloadRows(@Param("inventoryId") Integer inventoryId,
+                                        @Param("productIds") Collection<Integer> productIds,
+                                        @Param("orderId") Integer orderId);
+
+    long countByInventoryInventoryId(Integer inventoryId);
+
+    /**
+     * JDBC fetch size that makes MySQL Connector/J stream rows one at a time instead of
+     * buffering the whole result. While such a stream is open, the connection can't run
+     * other queries, so consume and close it before issuing the next one.
+     */
+    String STREAMING_FETCH_SIZE = "-2147483648"; // Integer.MIN_VALUE
+
+    /**
+     * Flat stock rows of one inventory for the streamed monitoring JSON:
+     * [inventoryStockId, inventoryId, productId, orderItemId, amount, employeeId].
+     * Must be consumed inside a (read-only) transaction and closed.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+       SELECT s.inventoryStockId, s.inventory.inventoryId, s.product.productId, oi.orderItemId, s.amount, e.userId
+       FROM InventoryStock s
+       LEFT JOIN s.orderItem oi
+       LEFT JOIN s.employee e
+       WHERE s.inventory.inventoryId = :inventoryId
+    """)
+    Stream<Object[]> streamStockRowsByInventoryId(@Param("inventoryId") Integer inventoryId);
+
+    /** Same columns as {@link #streamStockRowsByInventoryId}, for specific stock rows. */
+    @Query("""
+       SELECT s.inventoryStockId, s.inventory.inventoryId, s.product.productId, oi.orderItemId, s.amount, e.userId
+       FROM InventoryStock s
+       LEFT JOIN s.orderItem oi
+       LEFT JOIN s.employee e
+       WHERE s.inventoryStockId IN :stockIds
+    """)
+    List<Object[]> findStockRowsByIds(@Param("stockIds") Collection<Integer> stockIds);
+
+    /** Orders whose items are reserved by the given stock rows. */
+    @Query("""
+       SELECT DISTINCT oi.order.orderId FROM InventoryStock s
+       JOIN s.orderItem oi
+       WHERE s.inventoryStockId IN :stockIds
+    """)
+    List<Integer> findOrderIdsByStockIds(@Param("stockIds") Collection<Integer> stockIds);
+
+    /**
+     * Stock mix of every inventory in one grouped pass:
+     * [inventoryId, distinct products, available units, reserved units].
+     */
+    @Query("""
+       SELECT s.inventory.inventoryId,
+              COUNT(DISTINCT s.product.productId),
+              SUM(CASE WHEN s.orderItem IS NULL THEN s.amount ELSE 0 END),
+              SUM(CASE WHEN s.orderItem IS NOT NULL THEN s.amount ELSE 0 END)
+       FROM InventoryStock s
+       WHERE s.inventory IS NOT NULL
+       GROUP BY s.inventory.inventoryId
+    """)
+    List<Object[]> summarizeStockByInventory();
+
+    /**
+     * Units of the given products per inventory, split into available and reserved:
+     * [inventoryId, productId, available units, reserved units].
+     */
+    @Query("""
+       SELECT s.inventory.inventoryId, s.product.productId,
+              SUM(CASE WHEN s.orderItem IS NULL THEN s.amount ELSE 0 END),
+              SUM(CASE WHEN s.orderItem IS NOT NULL THEN s.amount ELSE 0 END)
+       FROM InventoryStock s
+       WHERE s.product.productId IN :productIds
+         AND s.inventory IS NOT NULL
+       GROUP BY s.inventory.inventoryId, s.product.productId
+    """)
+    List<Object[]> sumAmountsByInventoryForProducts(@Param("productIds") Collection<Integer> productIds);
 }
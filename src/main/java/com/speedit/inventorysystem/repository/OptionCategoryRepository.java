@@ -2,9 +2,15 @@ package com.speedit.inventorysystem.repository;
 
 import com.speedit.inventorysystem.model.OptionCategory;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface OptionCategoryRepository extends JpaRepository<OptionCategory, Integer> {
     Optional<OptionCategory> findByCategoryName(String name);
+
+    /** Every category with its options, in one query. */
+    @Query("SELECT DISTINCT c FROM OptionCategory c LEFT JOIN FETCH c.options ORDER BY c.optionCategoryId")
+    List<OptionCategory> findAllWithOptions();
 }
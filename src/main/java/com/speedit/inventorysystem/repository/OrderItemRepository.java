@@ -1,7 +1,32 @@
 package com.speedit.inventorysystem.repository;
 
 import com.speedit.inventorysystem.model.OrderItem;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.stream.Stream;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Integer> {
+
+    /**
+     * Order items with stock reserved in one inventory, as flat rows:
+     * [orderItemId, orderId, productId, quantity, discount].
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = InventoryStockRepository.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+       SELECT oi.orderItemId, oi.order.orderId, oi.product.productId, oi.quantity, oi.discount
+       FROM OrderItem oi
+       WHERE oi.orderItemId IN (
+           SELECT s.orderItem.orderItemId FROM InventoryStock s
+           WHERE s.inventory.inventoryId = :inventoryId
+       )
+    """)
+    Stream<Object[]> streamOrderItemRowsByInventoryId(@Param("inventoryId") Integer inventoryId);
 }
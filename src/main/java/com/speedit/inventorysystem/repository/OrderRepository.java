@@ -1,7 +1,54 @@
 package com.speedit.inventorysystem.repository;
 
 import com.speedit.inventorysystem.model.Order;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface OrderRepository extends JpaRepository<Order, Integer> {
+
+    /**
+     * Orders with stock reserved in one inventory, with item count and quantity totals over
+     * the items held there: [orderId, orderStatus, clientId, supervisorId, deliveryLocation,
+     * itemCount, quantitySum].
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = InventoryStockRepository.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+       SELECT o.orderId, o.orderStatus, o.client.userId, o.supervisor.userId, o.deliveryLocation,
+              COUNT(oi), COALESCE(SUM(oi.quantity), 0)
+       FROM OrderItem oi
+       JOIN oi.order o
+       WHERE oi.orderItemId IN (
+           SELECT s.orderItem.orderItemId FROM InventoryStock s
+           WHERE s.inventory.inventoryId = :inventoryId
+       )
+       GROUP BY o.orderId, o.orderStatus, o.client.userId, o.supervisor.userId, o.deliveryLocation
+    """)
+    Stream<Object[]> streamOrderRowsByInventoryId(@Param("inventoryId") Integer inventoryId);
+
+    /** Same columns as {@link #streamOrderRowsByInventoryId}, limited to specific orders. */
+    @Query("""
+       SELECT o.orderId, o.orderStatus, o.client.userId, o.supervisor.userId, o.deliveryLocation,
+              COUNT(oi), COALESCE(SUM(oi.quantity), 0)
+       FROM OrderItem oi
+       JOIN oi.order o
+       WHERE o.orderId IN :orderIds
+         AND oi.orderItemId IN (
+           SELECT s.orderItem.orderItemId FROM InventoryStock s
+           WHERE s.inventory.inventoryId = :inventoryId
+       )
+       GROUP BY o.orderId, o.orderStatus, o.client.userId, o.supervisor.userId, o.deliveryLocation
+    """)
+    List<Object[]> findOrderRowsByInventoryIdAndOrderIds(@Param("inventoryId") Integer inventoryId,
+                                                         @Param("orderIds") Collection<Integer> orderIds);
 }
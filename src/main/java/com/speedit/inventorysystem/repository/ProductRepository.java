@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -81,4 +82,61 @@ public interface ProductRepository extends JpaRepository<Product, Integer> {
     @Query("SELECT p FROM Product p WHERE p.container IS NULL")
     Page<Product> findBaseProductsWithPagination(Pageable pageable);
 
-}
\ No newline at end of file
+    /**
+     * Products stocked in an inventory, in ID order after {@code afterProductId}.
+     * Used to walk large inventories in fixed-size chunks (keyset paging).
+     */
+    @Query("SELECT p FROM Product p " +
+            "WHERE p.productId > :afterProductId " +
+            "AND p.productId IN (SELECT s.product.productId FROM InventoryStock s WHERE s.inventory.inventoryId = :inventoryId) " +
+            "ORDER BY p.productId")
+    List<Product> findStockedInInventoryAfter(@Param("inventoryId") Integer inventoryId,
+                                              @Param("afterProductId") Integer afterProductId,
+                                              Pageable pageable);
+
+    /** [productId, price] of every product stocked in an inventory. */
+    @Query("""
+       SELECT p.productId, p.price FROM Product p
+       WHERE p.productId IN (SELECT s.product.productId FROM InventoryStock s WHERE s.inventory.inventoryId = :inventoryId)
+    """)
+    List<Object[]> findPriceRowsByInventoryId(@Param("inventoryId") Integer inventoryId);
+
+    /** [productId, optionValue] for the given products, in mapping order per product. */
+    @Query("""
+       SELECT p.productId, o.optionValue FROM Product p
+       JOIN p.productOptions o
+       WHERE p.productId IN :productIds
+    """)
+    List<Object[]> findOptionValueRowsByProductIds(@Param("productIds") Collection<Integer> productIds);
+
+    /** [productId, optionValue] for every product, in mapping order per product. */
+    @Query("""
+       SELECT p.productId, o.optionValue FROM Product p
+       JOIN p.productOptions o
+    """)
+    List<Object[]> findAllOptionValueRows();
+
+    @Query("SELECT p.productId FROM Product p ORDER BY p.productId")
+    List<Integer> findAllProductIds();
+
+    /** [productId, volume] of the given products. */
+    @Query("SELECT p.productId, p.volume FROM Product p WHERE p.productId IN :productIds")
+    List<Object[]> findVolumesByIds(@Param("productIds") Collection<Integer> productIds);
+
+    /** [productId, barcodeChecksum] of every product, for the barcode index. */
+    @Query("SELECT p.productId, p.barcodeChecksum FROM Product p")
+    List<Object[]> findAllBarcodeChecksums();
+
+    /** Rows of [productId, barcodeChecksum] for label printing and barcode index refreshes. */
+    @Query("SELECT p.productId, p.barcodeChecksum FROM Product p WHERE p.productId IN :productIds")
+    List<Object[]> findBarcodeChecksums(@Param("productIds") Collection<Integer> productIds);
+
+    /** The given IDs that still exist. */
+    @Query("SELECT p.productId FROM Product p WHERE p.productId IN :productIds")
+    List<Integer> findExistingProductIds(@Param("productIds") Collection<Integer> productIds);
+
+    /** Duplicate check on the indexed option-set signature (see Product.optionSignature). */
+    boolean existsByOptionSignature(String optionSignature);
+
+    boolean existsByOptionSignatureAndProductIdNot(String optionSignature, Integer productId);
+}
@@ -0,0 +1,121 @@
+package com.speedit.inventorysystem.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JDBC statements of the inventory_stock compaction job (StockCompactionService). Rows that stock
+ * movements reference are never archived or merged away.
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockCompactionRepository {
+
+    private static final String UNREFERENCED =
+            "NOT EXISTS (SELECT 1 FROM stock_movement m WHERE m.inventory_stock_id = s.inventory_stock_id)";
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public long countRows() {
+        return jdbc.getJdbcOperations().queryForObject("SELECT COUNT(*) FROM inventory_stock", Long.class);
+    }
+
+    /** Average stored row size of inventory_stock in bytes, from the table statistics (0 if unknown). */
+    public long averageRowLength() {
+        List<Long> lengths = jdbc.getJdbcOperations().queryForList("""
+                SELECT AVG_ROW_LENGTH FROM information_schema.TABLES
+                WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'inventory_stock'
+                """, Long.class);
+        return lengths.isEmpty() || lengths.get(0) == null ? 0L : lengths.get(0);
+    }
+
+    /**
+     * Locks up to {@code limit} delivered (no inventory) or empty rows: [stockId, inventoryId, productId].
+     * Rows locked by running transactions are skipped and picked up by a later run.
+     */
+    public List<Object[]> lockArchivableRows(int limit) {
+        return jdbc.query("""
+                SELECT s.inventory_stock_id, s.inventory_id, s.product_id FROM inventory_stock s
+                WHERE (s.inventory_id IS NULL OR s.amount = 0) AND %s
+                ORDER BY s.inventory_stock_id
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+                """.formatted(UNREFERENCED),
+                new MapSqlParameterSource("limit", limit),
+                (rs, i) -> new Object[]{rs.getInt(1), (Integer) rs.getObject(2), rs.getInt(3)});
+    }
+
+    /**
+     * Up to {@code limit} positions (inventory, product, order item) held by several rows of which at
+     * least one besides the oldest can be merged away: [inventoryId, productId, orderItemId].
+     */
+    public List<Object[]> findDuplicatePositions(int limit) {
+        return jdbc.query("""
+                SELECT s.inventory_id, s.product_id, s.order_item_id FROM inventory_stock s
+                LEFT JOIN (SELECT DISTINCT inventory_stock_id FROM stock_movement) m
+                       ON m.inventory_stock_id = s.inventory_stock_id
+                WHERE s.inventory_id IS NOT NULL
+                GROUP BY s.inventory_id, s.product_id, s.order_item_id
+                HAVING MAX(CASE WHEN m.inventory_stock_id IS NULL THEN s.inventory_stock_id END) > MIN(s.inventory_stock_id)
+                LIMIT :limit
+                """,
+                new MapSqlParameterSource("limit", limit),
+                (rs, i) -> new Object[]{rs.getInt(1), rs.getInt(2), (Integer) rs.getObject(3)});
+    }
+
+    /**
+     * Locks the rows of the given inventories and products, oldest first:
+     * [stockId, inventoryId, productId, orderItemId, amount, referenced by a movement].
+     */
+    public List<Object[]> lockPositionRows(Collection<Integer> inventoryIds, Collection<Integer> productIds) {
+        return jdbc.query("""
+                SELECT s.inventory_stock_id, s.inventory_id, s.product_id, s.order_item_id, s.amount, NOT %s
+                FROM inventory_stock s
+                WHERE s.inventory_id IN (:inventoryIds) AND s.product_id IN (:productIds)
+                ORDER BY s.inventory_stock_id
+                FOR UPDATE
+                """.formatted(UNREFERENCED),
+                new MapSqlParameterSource("inventoryIds", inventoryIds).addValue("productIds", productIds),
+                (rs, i) -> new Object[]{rs.getInt(1), rs.getInt(2), rs.getInt(3), (Integer) rs.getObject(4),
+                        rs.getInt(5), rs.getBoolean(6)});
+    }
+
+    /**
+     * Copies rows to inventory_stock_history. {@code reason} null derives DELIVERED or EMPTY per row.
+     */
+    public int archive(Collection<Integer> stockIds, String reason) {
+        return jdbc.update("""
+                INSERT INTO inventory_stock_history
+                    (inventory_stock_id, inventory_id, product_id, order_item_id, amount, employee_id,
+                     created_at, created_by, updated_at, updated_by, archive_reason, archived_at)
+                SELECT inventory_stock_id, inventory_id, product_id, order_item_id, amount, employee_id,
+                       created_at, created_by, updated_at, updated_by,
+                       COALESCE(:reason, CASE WHEN inventory_id IS NULL THEN 'DELIVERED' ELSE 'EMPTY' END), NOW(6)
+                FROM inventory_stock
+                WHERE inventory_stock_id IN (:stockIds)
+                """, new MapSqlParameterSource("stockIds", stockIds).addValue("reason", reason));
+    }
+
+    /** Records which row each merged (archived) row was added to, as one batch. */
+    public void setMergedInto(Map<Integer, Integer> keeperByStockId) {
+        SqlParameterSource[] batch = keeperByStockId.entrySet().stream()
+                .map(e -> new MapSqlParameterSource("stockId", e.getKey()).addValue("keeperId", e.getValue()))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate("""
+                UPDATE inventory_stock_history SET merged_into_stock_id = :keeperId
+                WHERE inventory_stock_id = :stockId
+                """, batch);
+    }
+
+    public int delete(Collection<Integer> stockIds) {
+        return jdbc.update("DELETE FROM inventory_stock WHERE inventory_stock_id IN (:stockIds)",
+                new MapSqlParameterSource("stockIds", stockIds));
+    }
+}
@@ -0,0 +1,40 @@
+package com.speedit.inventorysystem.repository;
+
+import com.speedit.inventorysystem.enums.ImportStatus;
+import com.speedit.inventorysystem.model.StockImport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface StockImportRepository extends JpaRepository<StockImport, Long> {
+
+    // Both clear the persistence context, so a later findById sees the new counters and status
+
+    /**
+     * Records a committed chunk, inside the chunk's transaction. Only applies when the import is still
+     * at {@code expectedLines}, so two runs resuming the same import can't both load a chunk (0 = lost).
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("""
+        UPDATE StockImport s
+        SET s.committedLines = :committedLines,
+            s.loadedLines = s.loadedLines + :loadedLines,
+            s.rejectedLines = s.rejectedLines + :rejectedLines
+        WHERE s.importId = :importId AND s.committedLines = :expectedLines
+    """)
+    int advance(@Param("importId") Long importId,
+                @Param("expectedLines") long expectedLines,
+                @Param("committedLines") long committedLines,
+                @Param("loadedLines") long loadedLines,
+                @Param("rejectedLines") long rejectedLines);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE StockImport s SET s.status = :status, s.lastError = :lastError WHERE s.importId = :importId")
+    int updateStatus(@Param("importId") Long importId,
+                     @Param("status") ImportStatus status,
+                     @Param("lastError") String lastError);
+}
@@ -0,0 +1,174 @@
+package com.speedit.inventorysystem.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * JDBC access to stock_ledger and its snapshots (see StockLedgerService).
+ */
+@Repository
+@RequiredArgsConstructor
+public class StockLedgerRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final AuditorAware<String> auditorAware;
+
+    /** One ledger entry to append. */
+    public record Entry(Integer inventoryId, Integer productId, Integer orderItemId, int quantityDelta,
+                        String reason, Long movementId) {
+    }
+
+    /** The newest snapshot covering entries up to {@code lastEntryId}. */
+    public record Snapshot(long snapshotId, long lastEntryId) {
+    }
+
+    /** Appends entries as one JDBC batch, stamped with the database time. */
+    public void append(List<Entry> entries) {
+        String recordedBy = currentAuditor();
+        SqlParameterSource[] batch = entries.stream()
+                .map(e -> new MapSqlParameterSource()
+                        .addValue("inventoryId", e.inventoryId())
+                        .addValue("productId", e.productId())
+                        .addValue("orderItemId", e.orderItemId())
+                        .addValue("quantityDelta", e.quantityDelta())
+                        .addValue("reason", e.reason())
+                        .addValue("movementId", e.movementId())
+                        .addValue("recordedBy", recordedBy))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate("""
+                INSERT INTO stock_ledger
+                    (inventory_id, product_id, order_item_id, quantity_delta, reason, movement_id, recorded_at, recorded_by)
+                VALUES (:inventoryId, :productId, :orderItemId, :quantityDelta, :reason, :movementId, NOW(6), :recordedBy)
+                """, batch);
+    }
+
+    // ----------------- Snapshots -----------------
+
+    public Optional<Snapshot> findLatestSnapshot() {
+        return jdbc.query("SELECT snapshot_id, last_entry_id FROM stock_snapshot ORDER BY snapshot_id DESC LIMIT 1",
+                        (rs, i) -> new Snapshot(rs.getLong(1), rs.getLong(2)))
+                .stream().findFirst();
+    }
+
+    /** Newest snapshot whose entries were all recorded by {@code asOf}. */
+    public Optional<Snapshot> findSnapshotCovering(LocalDateTime asOf) {
+        return jdbc.query("""
+                        SELECT snapshot_id, last_entry_id FROM stock_snapshot
+                        WHERE covers_until <= :asOf
+                        ORDER BY snapshot_id DESC LIMIT 1
+                        """, new MapSqlParameterSource("asOf", Timestamp.valueOf(asOf)),
+                        (rs, i) -> new Snapshot(rs.getLong(1), rs.getLong(2)))
+                .stream().findFirst();
+    }
+
+    /** Newest entry recorded before {@code cutoff}: [entryId, recordedAt], or empty. */
+    public Optional<Object[]> findLastEntryBefore(LocalDateTime cutoff) {
+        return jdbc.query("""
+                        SELECT entry_id, recorded_at FROM stock_ledger
+                        WHERE recorded_at < :cutoff
+                        ORDER BY recorded_at DESC, entry_id DESC LIMIT 1
+                        """, new MapSqlParameterSource("cutoff", Timestamp.valueOf(cutoff)),
+                        (rs, i) -> new Object[]{rs.getLong(1), rs.getTimestamp(2)})
+                .stream().findFirst();
+    }
+
+    /**
+     * Writes a snapshot of entries up to {@code lastEntryId}: the positions of {@code base} (null = none)
+     * plus the entries after it, summed in one INSERT ... SELECT.
+     *
+     * @return the new snapshot's ID
+     */
+    public long createSnapshot(Snapshot base, long lastEntryId, Timestamp coversUntil) {
+        KeyHolder key = new GeneratedKeyHolder();
+        jdbc.update("""
+                INSERT INTO stock_snapshot (last_entry_id, covers_until, position_count, taken_at)
+                VALUES (:lastEntryId, :coversUntil, 0, NOW(6))
+                """, new MapSqlParameterSource("lastEntryId", lastEntryId).addValue("coversUntil", coversUntil),
+                key, new String[]{"snapshot_id"});
+        long snapshotId = key.getKey().longValue();
+
+        MapSqlParameterSource params = new MapSqlParameterSource("snapshotId", snapshotId)
+                .addValue("baseSnapshotId", base != null ? base.snapshotId() : -1L)
+                .addValue("afterEntryId", base != null ? base.lastEntryId() : 0L)
+                .addValue("lastEntryId", lastEntryId);
+        int positions = jdbc.update("""
+                INSERT INTO stock_snapshot_position (snapshot_id, inventory_id, product_id, order_item_id, amount)
+                SELECT :snapshotId, inventory_id, product_id, order_item_id, SUM(amount) FROM (
+                    SELECT inventory_id, product_id, order_item_id, amount FROM stock_snapshot_position
+                    WHERE snapshot_id = :baseSnapshotId
+                    UNION ALL
+                    SELECT inventory_id, product_id, order_item_id, quantity_delta FROM stock_ledger
+                    WHERE entry_id > :afterEntryId AND entry_id <= :lastEntryId
+                ) changes
+                GROUP BY inventory_id, product_id, order_item_id
+                HAVING SUM(amount) <> 0
+                """, params);
+        jdbc.update("UPDATE stock_snapshot SET position_count = :positions WHERE snapshot_id = :snapshotId",
+                new MapSqlParameterSource("positions", positions).addValue("snapshotId", snapshotId));
+        return snapshotId;
+    }
+
+    /** Drops all but the newest {@code retain} snapshots (their positions go with them). */
+    public int deleteOldSnapshots(int retain) {
+        return jdbc.update("""
+                DELETE FROM stock_snapshot WHERE snapshot_id < (
+                    SELECT min_kept FROM (
+                        SELECT MIN(snapshot_id) AS min_kept FROM (
+                            SELECT snapshot_id FROM stock_snapshot ORDER BY snapshot_id DESC LIMIT :retain
+                        ) newest
+                    ) kept
+                )
+                """, new MapSqlParameterSource("retain", retain));
+    }
+
+    // ----------------- Replay -----------------
+
+    /**
+     * Non-zero positions after applying every entry recorded by {@code asOf}, starting from
+     * {@code base} (null = the beginning of the ledger): [inventoryId, productId, orderItemId, amount].
+     * {@code inventoryId} and {@code productId} narrow the result when not null.
+     */
+    public List<Object[]> replayPositions(Snapshot base, LocalDateTime asOf, Integer inventoryId, Integer productId) {
+        MapSqlParameterSource params = new MapSqlParameterSource("baseSnapshotId", base != null ? base.snapshotId() : -1L)
+                .addValue("afterEntryId", base != null ? base.lastEntryId() : 0L)
+                .addValue("asOf", Timestamp.valueOf(asOf))
+                .addValue("inventoryId", inventoryId)
+                .addValue("productId", productId);
+        return jdbc.query("""
+                SELECT inventory_id, product_id, order_item_id, SUM(amount) FROM (
+                    SELECT inventory_id, product_id, order_item_id, amount FROM stock_snapshot_position
+                    WHERE snapshot_id = :baseSnapshotId
+                      AND (:inventoryId IS NULL OR inventory_id = :inventoryId)
+                      AND (:productId IS NULL OR product_id = :productId)
+                    UNION ALL
+                    SELECT inventory_id, product_id, order_item_id, quantity_delta FROM stock_ledger
+                    WHERE entry_id > :afterEntryId AND recorded_at <= :asOf
+                      AND (:inventoryId IS NULL OR inventory_id = :inventoryId)
+                      AND (:productId IS NULL OR product_id = :productId)
+                ) changes
+                GROUP BY inventory_id, product_id, order_item_id
+                HAVING SUM(amount) <> 0
+                ORDER BY inventory_id, product_id, order_item_id
+                """, params,
+                (rs, i) -> new Object[]{rs.getInt(1), rs.getInt(2), (Integer) rs.getObject(3), rs.getLong(4)});
+    }
+
+    private String currentAuditor() {
+        try {
+            return auditorAware.getCurrentAuditor().orElse(null);
+        } catch (RuntimeException e) {
+            return null; // no authenticated user, e.g. a background job
+        }
+    }
+}
@@ -39,4 +39,23 @@ public interface StockMovementRepository extends JpaRepository<StockMovement, Lo
             @Param("inventory") Inventory inventory,
             @Param("after") OffsetDateTime after
     );
+
+    /**
+     * Open (PLANNED / IN_PROGRESS) movements per inventory in one pass:
+     * [inventoryId, outbound count, inbound count].
+     */
+    @Query(value = """
+       SELECT m.inventory_id, SUM(m.outbound), SUM(m.inbound)
+       FROM (
+           SELECT from_inventory_id AS inventory_id, 1 AS outbound, 0 AS inbound
+           FROM stock_movement
+           WHERE movement_status IN ('PLANNED', 'IN_PROGRESS') AND from_inventory_id IS NOT NULL
+           UNION ALL
+           SELECT to_inventory_id, 0, 1
+           FROM stock_movement
+           WHERE movement_status IN ('PLANNED', 'IN_PROGRESS') AND to_inventory_id IS NOT NULL
+       ) m
+       GROUP BY m.inventory_id
+    """, nativeQuery = true)
+    List<Object[]> countPendingMovementsByInventory();
 }
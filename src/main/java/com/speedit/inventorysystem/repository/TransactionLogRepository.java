@@ -0,0 +1,57 @@
+package com.speedit.inventorysystem.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Batched JDBC writes to transaction_log (the TransactionLog entity), used by AuditLogService.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionLogRepository {
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    /** One row to insert; {@code actor} is the auditor name (the user's email). */
+    public record Row(String action, Integer userId, String actor, LocalDateTime timestamp) {
+    }
+
+    /** Inserts all rows as one JDBC batch. */
+    public void insertAll(List<Row> rows) {
+        SqlParameterSource[] batch = rows.stream()
+                .map(row -> new MapSqlParameterSource()
+                        .addValue("action", row.action())
+                        .addValue("userId", row.userId())
+                        .addValue("timestamp", Timestamp.valueOf(row.timestamp()))
+                        .addValue("createdBy", row.actor()))
+                .toArray(SqlParameterSource[]::new);
+        jdbc.batchUpdate("""
+                INSERT INTO transaction_log (action, user_id, timestamp, created_at, created_by)
+                VALUES (:action, :userId, :timestamp, :timestamp, :createdBy)
+                """, batch);
+    }
+
+    /** email -> userId for the given emails (unknown emails are absent). */
+    public Map<String, Integer> findUserIdsByEmails(Collection<String> emails) {
+        Map<String, Integer> ids = new HashMap<>();
+        if (emails.isEmpty()) {
+            return ids;
+        }
+        jdbc.query("SELECT email, user_id FROM user WHERE email IN (:emails)",
+                new MapSqlParameterSource("emails", emails),
+                rs -> {
+                    ids.put(rs.getString(1), rs.getInt(2));
+                });
+        return ids;
+    }
+}
@@ -1,8 +1,37 @@
 package com.speedit.inventorysystem.repository;
 
 import com.speedit.inventorysystem.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Integer> {
     User findByEmail(String email);
-}
\ No newline at end of file
+
+    /**
+     * Users referenced by one inventory's stock (employees) and by the orders reserved there
+     * (clients, supervisors), as [userId, name] rows.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = InventoryStockRepository.STREAMING_FETCH_SIZE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+       SELECT u.userId, u.name FROM User u
+       WHERE u.userId IN (
+               SELECT s.employee.userId FROM InventoryStock s
+               WHERE s.inventory.inventoryId = :inventoryId)
+          OR u.userId IN (
+               SELECT oi.order.client.userId FROM InventoryStock s JOIN s.orderItem oi
+               WHERE s.inventory.inventoryId = :inventoryId)
+          OR u.userId IN (
+               SELECT oi.order.supervisor.userId FROM InventoryStock s JOIN s.orderItem oi
+               WHERE s.inventory.inventoryId = :inventoryId)
+    """)
+    Stream<Object[]> streamUserRowsByInventoryId(@Param("inventoryId") Integer inventoryId);
+}
@@ -0,0 +1,128 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.event.StockChangedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version stamps of the aggregates behind the cacheable read endpoints. They drive the strong
+ * ETags and the {@link VersionedResponseCache}.
+ *
+ * Keys:
+ * - inventory:{id} - the inventory row, the stock rows in it and its occupied volume
+ * - product:{id}   - the product row, its stock totals and the container it is the parent of
+ * - options        - option categories and values
+ * - catalog        - any product, container or option (product info strings, container hierarchies)
+ * - orders         - orders, order items and users
+ *
+ * Every bump takes the next value of one global counter, so a key never gets the same version twice.
+ * Bumps happen after commit, so a new version is never visible before the data behind it.
+ * The counters live in memory. The boot epoch in every ETag keeps tags from a previous run from matching.
+ *
+ * JPA writes are picked up by AggregateVersionListener and StockChangedEvent. Bulk JPQL/JDBC writes
+ * must call {@link #bumpAfterCommit} (or {@link #invalidateAll}) themselves.
+ */
+@Service
+public class AggregateVersionService {
+
+    public static final String OPTIONS = "options";
+    public static final String CATALOG = "catalog";
+    public static final String ORDERS = "orders";
+
+    // Transaction resource key for the keys to bump when the current transaction commits
+    private static final Object PENDING_KEYS_KEY = new Object();
+
+    private final String bootEpoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong clock = new AtomicLong();
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    private volatile long generation; // advanced by invalidateAll, part of every ETag
+
+    public static String inventoryKey(Integer inventoryId) {
+        return "inventory:" + inventoryId;
+    }
+
+    public static String productKey(Integer productId) {
+        return "product:" + productId;
+    }
+
+    // ----------------- Reads -----------------
+
+    public long version(String key) {
+        return versions.getOrDefault(key, 0L);
+    }
+
+    /** Strong ETag covering the given keys; changes whenever any of them is bumped. */
+    public String etag(String... keys) {
+        StringBuilder tag = new StringBuilder("\"").append(bootEpoch).append('-').append(Long.toString(generation, 36));
+        for (String key : keys) {
+            tag.append('-').append(Long.toString(version(key), 36));
+        }
+        return tag.append('"').toString();
+    }
+
+    // ----------------- Writes -----------------
+
+    /** Bumps the keys when the current transaction commits (immediately when there is none). */
+    public void bumpAfterCommit(String... keys) {
+        bumpAfterCommit(Arrays.asList(keys));
+    }
+
+    public void bumpAfterCommit(Collection<String> keys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            keys.forEach(this::bump);
+            return;
+        }
+        pendingKeys().addAll(keys);
+    }
+
+    /** Invalidates every ETag and cached response, for writes too broad to enumerate. Call after commit. */
+    public void invalidateAll() {
+        generation = clock.incrementAndGet();
+    }
+
+    /** Published after commit, so the stock-dependent versions can be bumped right away. */
+    @EventListener
+    public void onStockChanged(StockChangedEvent event) {
+        event.inventoryIds().forEach(id -> bump(inventoryKey(id)));
+        event.productIds().forEach(id -> bump(productKey(id)));
+    }
+
+    void bump(String key) {
+        versions.put(key, clock.incrementAndGet());
+    }
+
+    // ----------------- Helpers -----------------
+
+    @SuppressWarnings("unchecked")
+    private Set<String> pendingKeys() {
+        Set<String> pending = (Set<String>) TransactionSynchronizationManager.getResource(PENDING_KEYS_KEY);
+        if (pending != null) {
+            return pending;
+        }
+
+        Set<String> keys = new HashSet<>();
+        TransactionSynchronizationManager.bindResource(PENDING_KEYS_KEY, keys);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                keys.forEach(AggregateVersionService.this::bump);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_KEYS_KEY);
+            }
+        });
+        return keys;
+    }
+}
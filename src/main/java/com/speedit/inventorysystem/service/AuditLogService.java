@@ -0,0 +1,312 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.enums.AuditOverflowPolicy;
+import com.speedit.inventorysystem.event.AuditEvent;
+import com.speedit.inventorysystem.event.StockChangedEvent;
+import com.speedit.inventorysystem.repository.TransactionLogRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes TransactionLog rows off the request path.
+ *
+ * - Committed domain events ({@link AuditEvent}, {@link StockChangedEvent}) become entries in a bounded
+ *   lock-free ring buffer; a request thread pays for one CAS, never for a database write.
+ * - One background writer drains the buffer and inserts the entries as JDBC batches, resolving the
+ *   actors (auditor emails) to user IDs with one query per batch.
+ * - When the buffer is full the configured {@link AuditOverflowPolicy} applies; dropped entries are
+ *   counted and reported in the log.
+ * - On shutdown the writer drains whatever is still buffered before the data source goes away.
+ *
+ * TransactionLog requires a user, so entries without one (e.g. from scheduled jobs) are written for
+ * {@code audit.system-user-id} when set and skipped otherwise.
+ */
+@Service
+public class AuditLogService {
+
+    private static final Logger log = LoggerFactory.getLogger(AuditLogService.class);
+
+    private static final int MAX_ACTION_LENGTH = 255;
+
+    private final TransactionLogRepository transactionLogRepository;
+    private final AuditorAware<String> auditorAware;
+    private final Ring<Entry> buffer;
+    private final AuditOverflowPolicy overflowPolicy;
+
+    @Value("${audit.batch-size:200}")
+    private int batchSize;
+
+    @Value("${audit.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${audit.block-timeout-ms:50}")
+    private long blockTimeoutMs;
+
+    @Value("${audit.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    @Value("${audit.system-user-id:#{null}}")
+    private Integer systemUserId;
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile boolean running;
+    private Thread writer;
+
+    private record Entry(String action, String actor, LocalDateTime timestamp) {
+    }
+
+    public AuditLogService(TransactionLogRepository transactionLogRepository,
+                           AuditorAware<String> auditorAware,
+                           @Value("${audit.buffer-capacity:8192}") int capacity,
+                           @Value("${audit.overflow-policy:DROP_NEWEST}") AuditOverflowPolicy overflowPolicy) {
+        this.transactionLogRepository = transactionLogRepository;
+        this.auditorAware = auditorAware;
+        this.buffer = new Ring<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::drainLoop, "audit-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Wakes the writer and waits for it to write out everything still buffered. */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(shutdownTimeoutMs);
+        if (writer.isAlive()) {
+            log.warn("Audit log writer did not finish within {} ms; {} entries not written", shutdownTimeoutMs, buffer.size());
+        }
+    }
+
+    // ----------------- Producers -----------------
+
+    /** Logs an action for the current user. Returns immediately; the row is written in the background. */
+    public void record(String action) {
+        enqueue(new Entry(truncate(action), currentAuditor(), LocalDateTime.now()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onAuditEvent(AuditEvent event) {
+        record(event.action());
+    }
+
+    @EventListener
+    public void onStockChanged(StockChangedEvent event) {
+        Set<Integer> inventoryIds = new TreeSet<>(event.inventoryIds());
+        record("Stock changed in inventories " + inventoryIds + " for products " + new TreeSet<>(event.productIds()));
+    }
+
+    private void enqueue(Entry entry) {
+        if (buffer.offer(entry)) {
+            return;
+        }
+        switch (overflowPolicy) {
+            case DROP_NEWEST -> dropped.incrementAndGet();
+            case DROP_OLDEST -> {
+                // Make room by discarding the oldest entry; another producer may take the slot first
+                while (!buffer.offer(entry)) {
+                    if (buffer.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                }
+            }
+            case BLOCK -> {
+                LockSupport.unpark(writer);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+                while (!buffer.offer(entry)) {
+                    if (System.nanoTime() >= deadline) {
+                        dropped.incrementAndGet();
+                        return;
+                    }
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                }
+            }
+        }
+    }
+
+    // ----------------- Writer -----------------
+
+    private void drainLoop() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        long reportedDrops = 0;
+        while (true) {
+            boolean stopping = !running; // read before draining, so nothing offered before shutdown is missed
+            Entry entry;
+            while (batch.size() < batchSize && (entry = buffer.poll()) != null) {
+                batch.add(entry);
+            }
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.clear();
+            }
+
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                log.warn("Audit buffer full ({} policy): {} entries dropped so far", overflowPolicy, drops);
+                reportedDrops = drops;
+            }
+
+            if (buffer.size() >= batchSize) {
+                continue; // a full batch is waiting, write it now
+            }
+            if (stopping) {
+                if (buffer.size() == 0) {
+                    return;
+                }
+                continue;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+        }
+    }
+
+    private void write(List<Entry> batch) {
+        try {
+            Set<String> actors = new HashSet<>();
+            batch.forEach(entry -> {
+                if (entry.actor() != null) actors.add(entry.actor());
+            });
+            Map<String, Integer> userIds = transactionLogRepository.findUserIdsByEmails(actors);
+
+            List<TransactionLogRepository.Row> rows = new ArrayList<>(batch.size());
+            for (Entry entry : batch) {
+                Integer userId = entry.actor() != null ? userIds.get(entry.actor()) : null;
+                if (userId == null) {
+                    userId = systemUserId;
+                }
+                if (userId == null) {
+                    skipped.incrementAndGet();
+                    continue;
+                }
+                rows.add(new TransactionLogRepository.Row(entry.action(), userId, entry.actor(), entry.timestamp()));
+            }
+            if (!rows.isEmpty()) {
+                transactionLogRepository.insertAll(rows);
+            }
+        } catch (RuntimeException e) {
+            // Never let a database hiccup stop the writer; this batch is lost
+            log.error("Failed to write {} audit log entries", batch.size(), e);
+        }
+    }
+
+    // ----------------- Helpers -----------------
+
+    /** Entries dropped because the buffer was full, and skipped because no user could be attributed. */
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    public long skippedCount() {
+        return skipped.get();
+    }
+
+    private String currentAuditor() {
+        try {
+            return auditorAware.getCurrentAuditor().orElse(null);
+        } catch (RuntimeException e) {
+            return null; // no authenticated user, e.g. a background job
+        }
+    }
+
+    private static String truncate(String action) {
+        return action.length() <= MAX_ACTION_LENGTH ? action : action.substring(0, MAX_ACTION_LENGTH - 3) + "...";
+    }
+
+    /**
+     * Bounded multi-producer/multi-consumer ring (Vyukov). Each slot carries a sequence number that tells
+     * producers when it is free and consumers when it is filled, so offer and poll are a CAS on the tail
+     * or head counter and never block. Multiple consumers are needed for the DROP_OLDEST policy, where
+     * producers poll too.
+     */
+    static final class Ring<E> {
+        private final int mask;
+        private final AtomicReferenceArray<E> slots;
+        private final AtomicLongArray sequences;
+        private final AtomicLong tail = new AtomicLong(); // next position to fill
+        private final AtomicLong head = new AtomicLong(); // next position to take
+
+        Ring(int capacity) {
+            int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1; // next power of two, at least 2
+            mask = size - 1;
+            slots = new AtomicReferenceArray<>(size);
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        /** False when full. */
+        boolean offer(E element) {
+            long pos = tail.get();
+            while (true) {
+                int index = (int) (pos & mask);
+                long diff = sequences.get(index) - pos;
+                if (diff == 0) {
+                    if (tail.compareAndSet(pos, pos + 1)) {
+                        slots.set(index, element);
+                        sequences.set(index, pos + 1); // publish to consumers
+                        return true;
+                    }
+                    pos = tail.get();
+                } else if (diff < 0) {
+                    return false; // the slot still holds an element from the previous lap
+                } else {
+                    pos = tail.get(); // another producer took this position
+                }
+            }
+        }
+
+        /** Null when empty. */
+        E poll() {
+            long pos = head.get();
+            while (true) {
+                int index = (int) (pos & mask);
+                long diff = sequences.get(index) - (pos + 1);
+                if (diff == 0) {
+                    if (head.compareAndSet(pos, pos + 1)) {
+                        E element = slots.get(index);
+                        slots.set(index, null);
+                        sequences.set(index, pos + mask + 1); // free for the next lap
+                        return element;
+                    }
+                    pos = head.get();
+                } else if (diff < 0) {
+                    return null; // not filled yet
+                } else {
+                    pos = head.get(); // another consumer took this position
+                }
+            }
+        }
+
+        int size() {
+            return (int) Math.max(0, tail.get() - head.get());
+        }
+    }
+}
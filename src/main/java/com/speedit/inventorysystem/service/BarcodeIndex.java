@@ -0,0 +1,264 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * In-memory index from the 13-digit barcode of every product (as a number) to its product ID,
+ * used to resolve scans without a query.
+ *
+ * Backed by a primitive open-addressing table, so a lookup is one hash and a few array reads with no
+ * boxing. Built on first use; writers call {@link #refreshAfterCommit} with the products they
+ * created or deleted.
+ */
+@Component
+@RequiredArgsConstructor
+public class BarcodeIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BarcodeIndex.class);
+
+    public static final int NOT_FOUND = -1;
+
+    // Transaction resource key for the product IDs to refresh when the current transaction commits
+    private static final Object PENDING_PRODUCTS_KEY = new Object();
+
+    private final ProductRepository productRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${barcode.prefix.country}")
+    private String countryPrefix;
+    @Value("${barcode.prefix.company}")
+    private String companyPrefix;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private LongIntTable table; // guarded by lock, null until built
+
+    /** Product ID of a barcode, or {@link #NOT_FOUND}. */
+    public int lookup(long barcode) {
+        ensureBuilt();
+        lock.readLock().lock();
+        try {
+            return table.get(barcode);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Numeric barcode of a product: prefixes, 5-digit product reference, check digit. */
+    public long barcodeOf(int productId, int checksum) {
+        return Long.parseLong(countryPrefix + companyPrefix + String.format("%05d", productId) + checksum);
+    }
+
+    /**
+     * Re-reads the barcodes of the given products when the current transaction commits (immediately
+     * without one). Products that no longer exist are dropped from the index.
+     */
+    public void refreshAfterCommit(Collection<Integer> changedProductIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(changedProductIds);
+            return;
+        }
+        pendingProductIds().addAll(changedProductIds);
+    }
+
+    // Serialized, so an older reload never overwrites a newer one
+    private synchronized void refresh(Collection<Integer> changedProductIds) {
+        if (changedProductIds.isEmpty() || !isBuilt()) {
+            return; // the first lookup builds everything from scratch anyway
+        }
+        List<Object[]> rows = readOnly(() -> productRepository.findBarcodeChecksums(changedProductIds));
+
+        lock.writeLock().lock();
+        try {
+            for (Integer productId : changedProductIds) {
+                removeProduct(productId);
+            }
+            for (Object[] row : rows) {
+                if (row[1] != null) {
+                    table.put(barcodeOf((Integer) row[0], (Integer) row[1]), (Integer) row[0]);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // A product's barcode differs from the others' only in its reference and check digit, so its
+    // entry is one of ten keys. Caller holds the write lock.
+    private void removeProduct(int productId) {
+        for (int checksum = 0; checksum <= 9; checksum++) {
+            long barcode = barcodeOf(productId, checksum);
+            if (table.get(barcode) == productId) {
+                table.remove(barcode);
+            }
+        }
+    }
+
+    private boolean isBuilt() {
+        lock.readLock().lock();
+        try {
+            return table != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureBuilt() {
+        if (isBuilt()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (table == null) {
+                List<Object[]> rows = readOnly(productRepository::findAllBarcodeChecksums);
+                LongIntTable built = new LongIntTable(rows.size());
+                for (Object[] row : rows) {
+                    if (row[1] != null) {
+                        built.put(barcodeOf((Integer) row[0], (Integer) row[1]), (Integer) row[0]);
+                    }
+                }
+                table = built;
+                log.info("Barcode index built with {} entries", built.size());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private <T> T readOnly(Supplier<T> work) {
+        // Own read-only transaction: this also runs from afterCommit, where the caller's one is finished
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readOnlyTx.setReadOnly(true);
+        return readOnlyTx.execute(status -> work.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Integer> pendingProductIds() {
+        Set<Integer> pending = (Set<Integer>) TransactionSynchronizationManager.getResource(PENDING_PRODUCTS_KEY);
+        if (pending != null) {
+            return pending;
+        }
+
+        Set<Integer> productIds = new HashSet<>();
+        TransactionSynchronizationManager.bindResource(PENDING_PRODUCTS_KEY, productIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refresh(productIds);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_PRODUCTS_KEY);
+            }
+        });
+        return productIds;
+    }
+
+    /**
+     * Open-addressing long -> int map with linear probing and backward-shift deletion (no tombstones).
+     * Key 0 marks an empty slot; it is never a barcode. Kept at most half full.
+     */
+    static final class LongIntTable {
+        private long[] keys;
+        private int[] values;
+        private int mask;
+        private int size;
+
+        LongIntTable(int expectedSize) {
+            int capacity = 16;
+            while (capacity < expectedSize * 2) {
+                capacity <<= 1;
+            }
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(long key) {
+            for (int i = slot(key); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return NOT_FOUND;
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 2 > keys.length) {
+                resize(keys.length * 2);
+            }
+            int i = slot(key);
+            while (keys[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == 0) {
+                keys[i] = key;
+                size++;
+            }
+            values[i] = value;
+        }
+
+        void remove(long key) {
+            int hole = slot(key);
+            while (keys[hole] != key) {
+                if (keys[hole] == 0) {
+                    return;
+                }
+                hole = (hole + 1) & mask;
+            }
+            // Pull later entries of the probe run back into the hole when that keeps them reachable
+            for (int i = (hole + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+                int home = slot(keys[i]);
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    hole = i;
+                }
+            }
+            keys[hole] = 0;
+            size--;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[capacity];
+            values = new int[capacity];
+            mask = capacity - 1;
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private int slot(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.dto.ScanResultDTO;
+import com.speedit.inventorysystem.dto.ScanResultDTO.Status;
+import com.speedit.inventorysystem.repository.InventoryStockRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Resolves scanned barcodes to products. Codes are validated (format, prefixes, check digit) and
+ * looked up in the {@link BarcodeIndex}; stock and container hierarchy of every resolved product
+ * in a batch are then loaded with one query each, so a whole pallet costs the same as one scan.
+ */
+@Service
+@RequiredArgsConstructor
+public class BarcodeScanService {
+
+    private static final Pattern EAN13 = Pattern.compile("\\d{13}");
+
+    private final BarcodeIndex barcodeIndex;
+    private final ProductService productService;
+    private final ContainerService containerService;
+    private final ContainerGraphService containerGraphService;
+    private final ContainerClosureService containerClosureService;
+    private final InventoryStockRepository inventoryStockRepository;
+
+    @Value("${barcode.prefix.country}")
+    private String countryPrefix;
+    @Value("${barcode.prefix.company}")
+    private String companyPrefix;
+
+    /** One result per code, in the order scanned (duplicates included). */
+    @Transactional(readOnly = true)
+    public List<ScanResultDTO> resolve(List<String> codes) {
+        // 1. Codes -> product IDs, without touching the database
+        List<String> normalized = new ArrayList<>(codes.size());
+        List<Object> resolved = new ArrayList<>(codes.size()); // product ID or failure Status
+        Set<Integer> productIds = new LinkedHashSet<>();
+        for (String raw : codes) {
+            String code = raw != null ? raw.trim() : "";
+            normalized.add(code);
+            Object outcome = resolveCode(code);
+            resolved.add(outcome);
+            if (outcome instanceof Integer productId) {
+                productIds.add(productId);
+            }
+        }
+
+        // 2. Stock, info strings and holding containers of all found products, one query each
+        Map<Integer, List<ScanResultDTO.InventoryAmount>> stockByProduct = new HashMap<>();
+        if (!productIds.isEmpty()) {
+            for (Object[] row : inventoryStockRepository.sumAmountsByInventoryForProducts(productIds)) {
+                stockByProduct.computeIfAbsent((Integer) row[1], id -> new ArrayList<>())
+                        .add(new ScanResultDTO.InventoryAmount((Integer) row[0], longValue(row[2]), longValue(row[3])));
+            }
+        }
+        Map<Integer, List<Integer>> heldIn = new HashMap<>();
+        for (Object[] row : containerClosureService.findAncestorRowsOf(productIds)) {
+            heldIn.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((Integer) row[1]);
+        }
+        Map<Integer, String> infoStrings = productIds.isEmpty() ? Map.of() : containerService.buildProductInfoStrings(productIds);
+        ContainerGraph graph = containerGraphService.current();
+
+        // 3. Results in scan order
+        List<ScanResultDTO> results = new ArrayList<>(codes.size());
+        for (int i = 0; i < normalized.size(); i++) {
+            if (!(resolved.get(i) instanceof Integer productId)) {
+                results.add(ScanResultDTO.unresolved(normalized.get(i), (Status) resolved.get(i)));
+                continue;
+            }
+            ContainerGraph.Node node = graph.node(productId);
+            List<ScanResultDTO.InventoryAmount> inventories = stockByProduct.getOrDefault(productId, List.of());
+            results.add(new ScanResultDTO(
+                    normalized.get(i),
+                    Status.FOUND,
+                    productId,
+                    node != null,
+                    infoStrings.get(productId),
+                    node != null ? node.leafProductId() : productId,
+                    node != null ? node.multiplier() : 1L,
+                    inventories.stream().mapToLong(ScanResultDTO.InventoryAmount::getAvailableItems).sum(),
+                    inventories.stream().mapToLong(ScanResultDTO.InventoryAmount::getReservedItems).sum(),
+                    inventories,
+                    heldIn.getOrDefault(productId, List.of())
+            ));
+        }
+        return results;
+    }
+
+    // Product ID of a valid, known code, otherwise the Status saying why not
+    private Object resolveCode(String code) {
+        if (!EAN13.matcher(code).matches()) {
+            return Status.INVALID_FORMAT;
+        }
+        String prefix = countryPrefix + companyPrefix;
+        if (!code.startsWith(prefix) || prefix.length() != 7) {
+            return Status.UNKNOWN_PREFIX;
+        }
+        int productId = Integer.parseInt(code.substring(7, 12));
+        if (productService.calculateChecksumDigit(productId) != code.charAt(12) - '0') {
+            return Status.CHECKSUM_MISMATCH;
+        }
+        int found = barcodeIndex.lookup(Long.parseLong(code));
+        return found != BarcodeIndex.NOT_FOUND ? (Object) found : Status.NOT_FOUND;
+    }
+
+    private static long longValue(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+}
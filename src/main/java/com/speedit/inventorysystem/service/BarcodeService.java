@@ -6,18 +6,67 @@ import com.google.zxing.WriterException;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.oned.Code128Writer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Code128 barcode images.
+ *
+ * A rendered image depends only on (text, width, height, format), so it is cached under the SHA-256
+ * of that key: first in a bounded in-memory LRU, then as a file in the disk cache directory, which
+ * survives restarts. Only default-size images go to disk, so the directory holds at most one file per
+ * barcode; other sizes live in memory only. Only a miss in both runs the ZXing encode and PNG write. New products are
+ * pre-rendered on a background thread so their first details view is already a cache hit.
+ */
 @Service
 public class BarcodeService {
 
+    private static final Logger log = LoggerFactory.getLogger(BarcodeService.class);
+
+    public static final int DEFAULT_WIDTH = 300;
+    public static final int DEFAULT_HEIGHT = 80;
+    private static final String FORMAT = "png";
+
+    private final Map<String, byte[]> memory;
+    private final Path diskDir;
+    private final ExecutorService prerenderer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "barcode-prerender");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public BarcodeService(@Value("${barcode.cache.max-entries:2000}") int maxEntries,
+                          @Value("${barcode.cache.dir:${java.io.tmpdir}/inventory-barcodes}") String diskDir) {
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.diskDir = Path.of(diskDir);
+    }
+
+    /** Renders without caching. */
     public byte[] generateBarcodeImage(String barcodeText, int width, int height) throws WriterException, IOException {
         Map<EncodeHintType, Object> hints = new HashMap<>();
         hints.put(EncodeHintType.MARGIN, 1);
@@ -27,8 +76,85 @@ public class BarcodeService {
 
         BufferedImage image = MatrixToImageWriter.toBufferedImage(bitMatrix);
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(image, "png", baos);
+        ImageIO.write(image, FORMAT, baos);
 
         return baos.toByteArray();
     }
-}
\ No newline at end of file
+
+    /** PNG bytes from the memory tier, then the disk tier, rendering (and storing) only on a miss in both. */
+    public byte[] getBarcodeImage(String barcodeText, int width, int height) throws WriterException, IOException {
+        String key = cacheKey(barcodeText, width, height);
+        byte[] image = fromMemory(key);
+        if (image != null) {
+            return image;
+        }
+
+        boolean onDisk = width == DEFAULT_WIDTH && height == DEFAULT_HEIGHT;
+        Path file = diskDir.resolve(key + "." + FORMAT);
+        if (onDisk && Files.isRegularFile(file)) {
+            try {
+                image = Files.readAllBytes(file);
+                toMemory(key, image);
+                return image;
+            } catch (IOException e) {
+                log.warn("Unreadable barcode cache file {}, rendering again", file, e);
+            }
+        }
+
+        image = generateBarcodeImage(barcodeText, width, height);
+        toMemory(key, image);
+        if (onDisk) {
+            toDisk(file, image);
+        }
+        return image;
+    }
+
+    /** Renders the default-size image in the background, so later requests hit the cache. */
+    public void prerender(String barcodeText) {
+        prerenderer.execute(() -> {
+            try {
+                getBarcodeImage(barcodeText, DEFAULT_WIDTH, DEFAULT_HEIGHT);
+            } catch (Exception e) {
+                log.warn("Pre-rendering barcode {} failed", barcodeText, e);
+            }
+        });
+    }
+
+    /** Content address of one image: also usable as a strong ETag. */
+    public String cacheKey(String barcodeText, int width, int height) {
+        String canonical = "CODE_128|" + FORMAT + "|" + width + "x" + height + "|" + barcodeText;
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // required on every JVM
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prerenderer.shutdownNow();
+    }
+
+    // ----------------- Tiers -----------------
+
+    private synchronized byte[] fromMemory(String key) {
+        return memory.get(key);
+    }
+
+    private synchronized void toMemory(String key, byte[] image) {
+        memory.put(key, image);
+    }
+
+    // Written to a temp file and moved into place, so readers never see a partial image
+    private void toDisk(Path file, byte[] image) {
+        try {
+            Files.createDirectories(diskDir);
+            Path tmp = Files.createTempFile(diskDir, "barcode-", ".tmp");
+            Files.write(tmp, image);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not write barcode cache file {}", file, e); // still served from memory
+        }
+    }
+}
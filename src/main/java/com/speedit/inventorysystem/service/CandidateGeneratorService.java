@@ -92,6 +92,18 @@ public class CandidateGeneratorService {
                         s -> s
                 ));
 
+        // Active vans and the fill level of every van we may touch, fetched once per item
+        // (one aggregate query) instead of per van and per warehouse
+        List<Inventory> activeVans = inventoryRepository.findActiveByType(InventoryTypeEnum.VAN);
+        Map<Integer, Inventory> vansToCheck = new LinkedHashMap<>();
+        activeVans.forEach(van -> vansToCheck.put(van.getInventoryId(), van));
+        availableStocks.stream()
+                .map(InventoryStock::getInventory)
+                .filter(inv -> inv.getInventoryType() == InventoryTypeEnum.VAN)
+                .forEach(van -> vansToCheck.putIfAbsent(van.getInventoryId(), van));
+        Map<Integer, Map<String, BigDecimal>> vanFillLevels =
+                stockMonitoringService.calculateFillLevels(vansToCheck.values());
+
         List<PathCandidateDto> candidates = new ArrayList<>();
 
         for (InventoryStock stock : availableStocks) {
@@ -100,7 +112,7 @@ public class CandidateGeneratorService {
             if (inv.getInventoryType() == InventoryTypeEnum.VAN) {
                 // Pattern 1: VAN -> CLIENT
                 Optional<PathCandidateDto> vanCandidate =
-                        buildVanDirectCandidate(order, orderItem, stock, clientCoords, unitVolumeCc);
+                        buildVanDirectCandidate(order, orderItem, stock, clientCoords, unitVolumeCc, vanFillLevels);
                 vanCandidate.ifPresent(candidates::add);
             }
 
@@ -114,7 +126,8 @@ public class CandidateGeneratorService {
 
                 // Pattern 2: WAREHOUSE (same city) -> VAN -> CLIENT
                 List<PathCandidateDto> whCandidates =
-                        buildWarehouseToVanCandidates(order, orderItem, stock, clientCoords, unitVolumeCc, vanProductStockMap);
+                        buildWarehouseToVanCandidates(order, orderItem, stock, clientCoords, unitVolumeCc,
+                                vanProductStockMap, activeVans, vanFillLevels);
                 candidates.addAll(whCandidates);
             }
         }
@@ -175,7 +188,8 @@ public class CandidateGeneratorService {
             OrderItem item,
             InventoryStock vanStock,
             Coordinates clientCoords,
-            double unitVolumeCc
+            double unitVolumeCc,
+            Map<Integer, Map<String, BigDecimal>> vanFillLevels
     ) {
         Inventory van = vanStock.getInventory();
 
@@ -196,7 +210,7 @@ public class CandidateGeneratorService {
 
         // 4) compute how many units we can deliver (bounded by stock & van capacity)
         int availableUnits = vanStock.getAmount();
-        int feasibleByVan = computeMaxUnitsForVan(van, unitVolumeCc, availableUnits);
+        int feasibleByVan = computeMaxUnitsForVan(van, currentFillRatio(van, vanFillLevels), unitVolumeCc, availableUnits);
         if (feasibleByVan <= 0) {
             return Optional.empty();
         }
@@ -250,14 +264,15 @@ public class CandidateGeneratorService {
             InventoryStock warehouseStock,
             Coordinates clientCoords,
             double unitVolumeCc,
-            Map<Integer, InventoryStock> vanProductStockMap
+            Map<Integer, InventoryStock> vanProductStockMap,
+            List<Inventory> activeVans,
+            Map<Integer, Map<String, BigDecimal>> vanFillLevels
     ) {
         List<PathCandidateDto> result = new ArrayList<>();
 
         Inventory wh = warehouseStock.getInventory();
 
         // active vans (we let scoring choose the best ones later)
-        List<Inventory> activeVans = inventoryRepository.findActiveByType(InventoryTypeEnum.VAN);
         if (activeVans.isEmpty()) {
             return result;
         }
@@ -298,7 +313,8 @@ public class CandidateGeneratorService {
             }
 
             int desiredUnits = Math.min(orderQty, vanAvailable + whAvailable);
-            int feasibleForVan = computeMaxUnitsForVan(van, unitVolumeCc, desiredUnits);
+            double currentFill = currentFillRatio(van, vanFillLevels);
+            int feasibleForVan = computeMaxUnitsForVan(van, currentFill, unitVolumeCc, desiredUnits);
             if (feasibleForVan <= 0) {
                 continue;
             }
@@ -309,7 +325,7 @@ public class CandidateGeneratorService {
             double handlingTimeSec = 600.0;
 
             // compute maxPressure on van: current fill + added load
-            double maxPressure = computeMaxPressureForVan(van, maxFeasibleAmount, unitVolumeCc);
+            double maxPressure = computeMaxPressureForVan(van, currentFill, maxFeasibleAmount, unitVolumeCc);
 
             CandidateMetricsDto metrics = CandidateMetricsDto.builder()
                     .distanceKm(distanceKm)
@@ -405,21 +421,28 @@ public class CandidateGeneratorService {
 
     // ----------------- Capacity & pressure helpers -----------------
 
-    private int computeMaxUnitsForVan(Inventory van, double unitVolumeCc, int desiredUnits) {
+    /** Current fill ratio (0..1) from the prefetched metrics, querying only if the van wasn't prefetched. */
+    private double currentFillRatio(Inventory van, Map<Integer, Map<String, BigDecimal>> vanFillLevels) {
+        Map<String, BigDecimal> fill = vanFillLevels.get(van.getInventoryId());
+        if (fill == null) {
+            fill = stockMonitoringService.calculateFillLevel(van);
+        }
+        return fill.get("fillLevelRatio").doubleValue();
+    }
+
+    private int computeMaxUnitsForVan(Inventory van, double currentFill, double unitVolumeCc, int desiredUnits) {
         if (unitVolumeCc <= 0 || desiredUnits <= 0) return 0;
 
         double capacityCc = van.getCapacity().doubleValue();
-        double currentFill = stockMonitoringService.calculateFillLevel(van).get("fillLevelRatio").doubleValue(); // 0..1
-        double usedVolumeCc = currentFill * capacityCc;
+        double usedVolumeCc = currentFill * capacityCc; // currentFill is 0..1
         double freeVolumeCc = Math.max(0.0, capacityCc - usedVolumeCc);
 
         int capacityByVolume = (int) Math.floor(freeVolumeCc / unitVolumeCc);
         return Math.max(0, Math.min(desiredUnits, capacityByVolume));
     }
 
-    private double computeMaxPressureForVan(Inventory van, int addedUnits, double unitVolumeCc) {
-        if (addedUnits <= 0 || unitVolumeCc <= 0) return stockMonitoringService.calculateFillLevel(van).get("fillLevelRatio").doubleValue();
-        double baseFill = stockMonitoringService.calculateFillLevel(van).get("fillLevelRatio").doubleValue();
+    private double computeMaxPressureForVan(Inventory van, double baseFill, int addedUnits, double unitVolumeCc) {
+        if (addedUnits <= 0 || unitVolumeCc <= 0) return baseFill;
         double capacityCc = van.getCapacity().doubleValue();
         double addedVolume = addedUnits * unitVolumeCc;
         double addedFraction = addedVolume / capacityCc;
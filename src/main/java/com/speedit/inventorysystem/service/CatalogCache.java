@@ -0,0 +1,160 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.model.OptionCategory;
+import com.speedit.inventorysystem.model.ProductOption;
+import com.speedit.inventorysystem.repository.OptionCategoryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache of the option catalog (categories and their options), keyed by ID and by
+ * (category, value). The whole catalog is loaded with one query and kept until the "options" version
+ * in {@link AggregateVersionService} moves, i.e. after any committed category/option write.
+ *
+ * Callers get detached copies of the cached entities: they may reference them from products they save,
+ * and changing one affects neither the cache nor other callers. Name/value keys are case-insensitive,
+ * like the database collation.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogCache {
+
+    private final OptionCategoryRepository optionCategoryRepository;
+    private final AggregateVersionService aggregateVersionService;
+    private final PlatformTransactionManager transactionManager;
+
+    private volatile Snapshot snapshot;
+
+    // ----------------- Reads -----------------
+
+    /** All categories with their options, in ID order. */
+    public List<OptionCategory> categories() {
+        return current().categories().stream().map(CatalogCache::copyWithOptions).toList();
+    }
+
+    /** categoryId -> [{optionId, optionValue}], the shape the product forms expect. */
+    public Map<Integer, List<Map<String, Object>>> categoryOptionsMap() {
+        return current().categoryOptionsMap();
+    }
+
+    public Optional<OptionCategory> category(Integer categoryId) {
+        return Optional.ofNullable(current().categoriesById().get(categoryId)).map(CatalogCache::copyOf);
+    }
+
+    public Optional<OptionCategory> categoryByName(String categoryName) {
+        return Optional.ofNullable(current().categoriesByName().get(key(categoryName))).map(CatalogCache::copyOf);
+    }
+
+    public Optional<ProductOption> option(Integer optionId) {
+        return Optional.ofNullable(current().optionsById().get(optionId))
+                .map(option -> copyOf(option, copyOf(option.getCategory())));
+    }
+
+    public Optional<ProductOption> option(Integer categoryId, String optionValue) {
+        Map<String, ProductOption> byValue = current().optionsByCategoryAndValue().get(categoryId);
+        return Optional.ofNullable(byValue != null ? byValue.get(key(optionValue)) : null)
+                .map(option -> copyOf(option, copyOf(option.getCategory())));
+    }
+
+    // ----------------- Loading -----------------
+
+    private Snapshot current() {
+        long version = aggregateVersionService.version(AggregateVersionService.OPTIONS);
+        Snapshot current = snapshot;
+        if (current != null && current.version() == version) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || current.version() != version) {
+                // Stamped with the version read before loading: a write committing meanwhile triggers another load
+                current = load(version);
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    private Snapshot load(long version) {
+        // Own read-only transaction, so the snapshot only ever holds committed data
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readOnlyTx.setReadOnly(true);
+        List<OptionCategory> categories = readOnlyTx.execute(status -> optionCategoryRepository.findAllWithOptions());
+
+        Map<Integer, OptionCategory> categoriesById = new HashMap<>();
+        Map<String, OptionCategory> categoriesByName = new HashMap<>();
+        Map<Integer, ProductOption> optionsById = new HashMap<>();
+        Map<Integer, Map<String, ProductOption>> optionsByCategoryAndValue = new HashMap<>();
+        Map<Integer, List<Map<String, Object>>> categoryOptionsMap = new HashMap<>();
+
+        for (OptionCategory category : categories) {
+            categoriesById.put(category.getOptionCategoryId(), category);
+            categoriesByName.putIfAbsent(key(category.getCategoryName()), category);
+
+            Map<String, ProductOption> byValue = new HashMap<>();
+            List<Map<String, Object>> dtoList = new ArrayList<>();
+            List<ProductOption> options = category.getOptions() != null ? category.getOptions() : List.of();
+            for (ProductOption option : options) {
+                optionsById.put(option.getOptionId(), option);
+                byValue.putIfAbsent(key(option.getOptionValue()), option);
+                dtoList.add(Map.of("optionId", option.getOptionId(), "optionValue", option.getOptionValue()));
+            }
+            optionsByCategoryAndValue.put(category.getOptionCategoryId(), byValue);
+            categoryOptionsMap.put(category.getOptionCategoryId(), Collections.unmodifiableList(dtoList));
+        }
+
+        return new Snapshot(version, Collections.unmodifiableList(categories), categoriesById, categoriesByName,
+                optionsById, optionsByCategoryAndValue, Collections.unmodifiableMap(categoryOptionsMap));
+    }
+
+    // ----------------- Copies -----------------
+
+    // Category without its options
+    private static OptionCategory copyOf(OptionCategory category) {
+        OptionCategory copy = new OptionCategory();
+        copy.setOptionCategoryId(category.getOptionCategoryId());
+        copy.setCategoryName(category.getCategoryName());
+        return copy;
+    }
+
+    private static OptionCategory copyWithOptions(OptionCategory category) {
+        OptionCategory copy = copyOf(category);
+        List<ProductOption> options = category.getOptions() != null ? category.getOptions() : List.of();
+        copy.setOptions(options.stream().map(option -> copyOf(option, copy)).collect(Collectors.toList()));
+        return copy;
+    }
+
+    private static ProductOption copyOf(ProductOption option, OptionCategory category) {
+        ProductOption copy = new ProductOption();
+        copy.setOptionId(option.getOptionId());
+        copy.setOptionValue(option.getOptionValue());
+        copy.setCategory(category);
+        return copy;
+    }
+
+    private static String key(String text) {
+        return text != null ? text.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private record Snapshot(long version,
+                            List<OptionCategory> categories,
+                            Map<Integer, OptionCategory> categoriesById,
+                            Map<String, OptionCategory> categoriesByName,
+                            Map<Integer, ProductOption> optionsById,
+                            Map<Integer, Map<String, ProductOption>> optionsByCategoryAndValue,
+                            Map<Integer, List<Map<String, Object>>> categoryOptionsMap) {
+    }
+}
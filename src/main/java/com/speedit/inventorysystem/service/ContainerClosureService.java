@@ -0,0 +1,69 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.repository.ContainerClosureRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Keeps the container_closure table in step with the container links.
+ *
+ * Every link parent -> child (quantity) contributes the paths from the parent and its ancestors to the
+ * child and its descendants, so linking and unlinking are one bulk statement each. Rows of deleted
+ * products go with them through the table's foreign keys.
+ */
+@Service
+@RequiredArgsConstructor
+public class ContainerClosureService {
+
+    private final ContainerClosureRepository closureRepository;
+
+    /**
+     * Records the link parent -> child.
+     *
+     * @throws IllegalArgumentException if the child already holds the parent (the link would form a cycle)
+     */
+    public void link(Integer parentProductId, Integer childProductId, int quantity) {
+        if (parentProductId.equals(childProductId) || closureRepository.existsPath(childProductId, parentProductId)) {
+            throw new IllegalArgumentException("Product " + childProductId
+                    + " already contains product " + parentProductId + "; a container cannot hold itself.");
+        }
+        closureRepository.insertPaths(parentProductId, childProductId, quantity);
+    }
+
+    /** Removes the paths through the link parent -> child. */
+    public void unlink(Integer parentProductId, Integer childProductId) {
+        closureRepository.deletePaths(parentProductId, childProductId);
+    }
+
+    /**
+     * A container changed its child or quantity: the paths through it are rebuilt. Runs inside the
+     * caller's transaction, so a rejected new child rolls the unlink back as well.
+     */
+    public void relink(Integer parentProductId, Integer oldChildProductId, Integer newChildProductId, int quantity) {
+        unlink(parentProductId, oldChildProductId);
+        link(parentProductId, newChildProductId, quantity);
+    }
+
+    /** Container parents holding the product at any depth, farthest first (a safe deletion order). */
+    public List<Integer> findAncestorsFarthestFirst(Integer productId) {
+        return closureRepository.findAncestorIdsFarthestFirst(productId);
+    }
+
+    /** [ancestorProductId, depth, multiplier] for every container parent holding the product, nearest first. */
+    public List<Object[]> findAncestorRows(Integer productId) {
+        return closureRepository.findAncestorRows(productId);
+    }
+
+    /** [descendantProductId, ancestorProductId, depth, multiplier] for the given products, nearest first per product. */
+    public List<Object[]> findAncestorRowsOf(Collection<Integer> productIds) {
+        return productIds.isEmpty() ? List.of() : closureRepository.findAncestorRowsOf(productIds);
+    }
+
+    /** Container parents holding any of the given products, at any depth. */
+    public List<Integer> findAncestorsOf(Collection<Integer> productIds) {
+        return productIds.isEmpty() ? List.of() : closureRepository.findAncestorIdsOf(productIds);
+    }
+}
@@ -0,0 +1,123 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.enums.UnitType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of every container link, with everything the hierarchy readers need
+ * precomputed per container parent product: the chain down to the base product, the base (leaf)
+ * product, depth, base units per item and the info string.
+ *
+ * Built by {@link ContainerGraphService}; a new snapshot replaces the old one on each rebuild,
+ * so readers never lock and never see a half-built graph.
+ */
+public final class ContainerGraph {
+
+    /** One container: {@code quantity} items of {@code childProductId} per {@code unit} of the parent. */
+    public record Link(Integer parentProductId, UnitType unit, int quantity, Integer childProductId) {
+    }
+
+    /**
+     * A container parent product.
+     *
+     * @param chain           links from this product down to the leaf, this product's own link first
+     * @param leafProductId   the base product at the end of the chain
+     * @param depth           number of links in the chain
+     * @param multiplier      leaf units in one item of this product
+     * @param leafOptions     options display of the leaf ("" when it has none)
+     * @param infoString      e.g. "BOX contains 20 -> PACK contains 10 -> Break, Chocolate, 250g"
+     */
+    public record Node(List<Link> chain, Integer leafProductId, int depth, long multiplier,
+                       String leafOptions, String infoString) {
+    }
+
+    private final long version;
+    private final Map<Integer, Node> nodes;
+
+    private ContainerGraph(long version, Map<Integer, Node> nodes) {
+        this.version = version;
+        this.nodes = nodes;
+    }
+
+    /**
+     * @param linkRows     [parentProductId, unit, quantity, childProductId] for every container
+     * @param leafOptions  options display per leaf product (missing means no options)
+     */
+    static ContainerGraph build(long version, List<Object[]> linkRows, Map<Integer, String> leafOptions) {
+        Map<Integer, Link> links = new HashMap<>();
+        for (Object[] row : linkRows) {
+            Link link = new Link((Integer) row[0], (UnitType) row[1], (Integer) row[2], (Integer) row[3]);
+            links.put(link.parentProductId(), link);
+        }
+
+        Map<Integer, Node> nodes = new HashMap<>(links.size() * 2);
+        for (Integer productId : links.keySet()) {
+            List<Link> chain = new ArrayList<>();
+            Set<Integer> seen = new HashSet<>();
+            long multiplier = 1;
+            Link link = links.get(productId);
+            while (link != null && seen.add(link.parentProductId())) {
+                chain.add(link);
+                multiplier = Math.multiplyExact(multiplier, (long) link.quantity());
+                link = links.get(link.childProductId());
+            }
+            Integer leafProductId = chain.get(chain.size() - 1).childProductId();
+            String options = leafOptions.getOrDefault(leafProductId, "");
+            nodes.put(productId, new Node(List.copyOf(chain), leafProductId, chain.size(), multiplier,
+                    options, infoString(chain, options)));
+        }
+        return new ContainerGraph(version, Collections.unmodifiableMap(nodes));
+    }
+
+    /** Leaf products of the given link rows: children that are not container parents themselves. */
+    static Set<Integer> leafProductIds(List<Object[]> linkRows) {
+        Set<Integer> parents = new HashSet<>();
+        Set<Integer> leaves = new HashSet<>();
+        for (Object[] row : linkRows) {
+            parents.add((Integer) row[0]);
+            leaves.add((Integer) row[3]);
+        }
+        leaves.removeAll(parents);
+        return leaves;
+    }
+
+    // Same format as ContainerService.buildProductInfoString
+    private static String infoString(List<Link> chain, String leafOptions) {
+        StringBuilder info = new StringBuilder();
+        for (int i = 0; i < chain.size(); i++) {
+            if (i > 0) {
+                info.append(" -> ");
+            }
+            info.append(chain.get(i).unit().toString()).append(" contains ").append(chain.get(i).quantity());
+        }
+        if (!leafOptions.isEmpty()) {
+            info.append(" -> ").append(leafOptions);
+        }
+        return info.toString();
+    }
+
+    /** Increases with every rebuild. */
+    public long version() {
+        return version;
+    }
+
+    /** The container whose parent is this product, or null for a base product. */
+    public Node node(Integer productId) {
+        return nodes.get(productId);
+    }
+
+    public boolean isContainer(Integer productId) {
+        return nodes.containsKey(productId);
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+}
@@ -0,0 +1,112 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.repository.ContainerRepository;
+import com.speedit.inventorysystem.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link ContainerGraph}. Reads are a single volatile load; writers that change
+ * containers (or the options of a product at the end of a chain) call {@link #rebuildAfterCommit},
+ * which reloads the whole graph with two queries once the transaction has committed and swaps it in.
+ */
+@Service
+@RequiredArgsConstructor
+public class ContainerGraphService {
+
+    private static final Logger log = LoggerFactory.getLogger(ContainerGraphService.class);
+
+    // Transaction resource key marking that a rebuild is already registered for the current transaction
+    private static final Object REBUILD_PENDING_KEY = new Object();
+
+    private final ContainerRepository containerRepository;
+    private final ProductRepository productRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private final AtomicReference<ContainerGraph> graph = new AtomicReference<>();
+    private final AtomicLong versions = new AtomicLong();
+
+    /** The current graph, built on first use. */
+    public ContainerGraph current() {
+        ContainerGraph current = graph.get();
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            current = graph.get();
+            return current != null ? current : rebuild();
+        }
+    }
+
+    /** Rebuilds the graph when the current transaction commits (immediately when there is none). */
+    public void rebuildAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            rebuild();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(REBUILD_PENDING_KEY)) {
+            return; // once per transaction is enough
+        }
+        TransactionSynchronizationManager.bindResource(REBUILD_PENDING_KEY, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                return Ordered.HIGHEST_PRECEDENCE; // before the after-commit work that reads the graph
+            }
+
+            @Override
+            public void afterCommit() {
+                rebuild();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(REBUILD_PENDING_KEY);
+            }
+        });
+    }
+
+    /** Loads all links and leaf options and swaps the new graph in. Rebuilds are serialized. */
+    public synchronized ContainerGraph rebuild() {
+        // Own read-only transaction: this also runs from afterCommit, where the caller's one is finished
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readOnlyTx.setReadOnly(true);
+
+        ContainerGraph rebuilt = readOnlyTx.execute(status -> {
+            List<Object[]> linkRows = containerRepository.findAllLinkRows();
+            Set<Integer> leafProductIds = ContainerGraph.leafProductIds(linkRows);
+
+            Map<Integer, List<String>> optionValues = new HashMap<>();
+            if (!leafProductIds.isEmpty()) {
+                for (Object[] row : productRepository.findOptionValueRowsByProductIds(leafProductIds)) {
+                    optionValues.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((String) row[1]);
+                }
+            }
+            Map<Integer, String> leafOptions = new HashMap<>();
+            optionValues.forEach((productId, values) -> leafOptions.put(productId, String.join(", ", values)));
+
+            return ContainerGraph.build(versions.incrementAndGet(), linkRows, leafOptions);
+        });
+
+        graph.set(rebuilt);
+        log.debug("Container graph v{} rebuilt with {} containers", rebuilt.version(), rebuilt.size());
+        return rebuilt;
+    }
+}
@@ -0,0 +1,111 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.dto.stockmonitoring.FleetInventoryJsonDTO;
+import com.speedit.inventorysystem.repository.InventoryRepository;
+import com.speedit.inventorysystem.repository.InventoryStockRepository;
+import com.speedit.inventorysystem.repository.StockMovementRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fleet-wide overview of every inventory (warehouses and vans) for dispatchers.
+ *
+ * The whole fleet is summarized with three grouped queries (inventory rows, stock mix, open movements),
+ * independent of how many inventories or stock rows there are. The result is cached for a short TTL,
+ * so many dashboards polling at once cost one rebuild per TTL.
+ */
+@Service
+public class FleetMonitoringService {
+
+    @Autowired private InventoryRepository inventoryRepository;
+    @Autowired private InventoryStockRepository inventoryStockRepository;
+    @Autowired private StockMovementRepository stockMovementRepository;
+
+    @Value("${monitor.fleet.cache-ttl-ms:5000}")
+    private long cacheTtlMs;
+
+    private volatile FleetSnapshot snapshot;
+
+    /** Cached overview; rebuilt by one caller when older than the TTL while the others wait for it. */
+    public FleetSnapshot getFleetOverview() {
+        FleetSnapshot current = snapshot;
+        if (current != null && !current.isOlderThan(cacheTtlMs)) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || current.isOlderThan(cacheTtlMs)) {
+                current = buildSnapshot();
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    private FleetSnapshot buildSnapshot() {
+        // 1. Stock mix per inventory: [inventoryId, skuCount, available, reserved]
+        Map<Integer, Object[]> stockByInventory = new HashMap<>();
+        for (Object[] row : inventoryStockRepository.summarizeStockByInventory()) {
+            stockByInventory.put((Integer) row[0], row);
+        }
+
+        // 2. Open movements per inventory: [inventoryId, outbound, inbound]
+        Map<Integer, Object[]> movementsByInventory = new HashMap<>();
+        for (Object[] row : stockMovementRepository.countPendingMovementsByInventory()) {
+            movementsByInventory.put(((Number) row[0]).intValue(), row);
+        }
+
+        // 3. One row per inventory, fill level from the maintained occupied volume
+        List<FleetInventoryJsonDTO> inventories = new ArrayList<>();
+        for (Object[] row : inventoryRepository.findFleetRows()) {
+            Integer inventoryId = (Integer) row[0];
+            BigDecimal capacity = (BigDecimal) row[4];
+            BigDecimal occupied = row[5] != null ? (BigDecimal) row[5] : BigDecimal.ZERO;
+            Object[] stock = stockByInventory.get(inventoryId);
+            Object[] movements = movementsByInventory.get(inventoryId);
+
+            inventories.add(new FleetInventoryJsonDTO(
+                    inventoryId,
+                    row[1] != null ? ((Enum<?>) row[1]).name() : null,
+                    (String) row[2],
+                    Boolean.TRUE.equals(row[3]),
+                    capacity,
+                    occupied,
+                    fillRatio(occupied, capacity),
+                    stock != null ? longValue(stock[1]) : 0L,
+                    stock != null ? longValue(stock[2]) : 0L,
+                    stock != null ? longValue(stock[3]) : 0L,
+                    movements != null ? longValue(movements[1]) : 0L,
+                    movements != null ? longValue(movements[2]) : 0L
+            ));
+        }
+        return new FleetSnapshot(Instant.now(), inventories);
+    }
+
+    private static BigDecimal fillRatio(BigDecimal occupied, BigDecimal capacity) {
+        if (capacity == null || capacity.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        return occupied.divide(capacity, 6, RoundingMode.HALF_UP);
+    }
+
+    private static long longValue(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+
+    /** Overview rows plus the time they were computed (clients show how fresh the data is). */
+    public record FleetSnapshot(Instant generatedAt, List<FleetInventoryJsonDTO> inventories) {
+        boolean isOlderThan(long ttlMs) {
+            return generatedAt.plusMillis(ttlMs).isBefore(Instant.now());
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.speedit.inventorysystem.service;
 
 import com.speedit.inventorysystem.dto.allocation.*;
+import com.speedit.inventorysystem.enums.LedgerReason;
 import com.speedit.inventorysystem.enums.OrderStatusEnum;
 import com.speedit.inventorysystem.enums.MovementStatus;
+import com.speedit.inventorysystem.event.AuditEvent;
 import com.speedit.inventorysystem.model.*;
 import com.speedit.inventorysystem.repository.InventoryStockRepository;
 import com.speedit.inventorysystem.repository.OrderRepository;
@@ -10,6 +12,7 @@ import com.speedit.inventorysystem.repository.StockMovementRepository;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -23,6 +26,8 @@ public class GlobalAllocationService {
     private final InventoryStockRepository inventoryStockRepository;
     private final StockMovementRepository stockMovementRepository;
     private final OrderRepository orderRepository;
+    private final StockLedgerService stockLedgerService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * High-level helper: plan AND commit allocation for given orders in one shot.
@@ -208,11 +213,14 @@ public class GlobalAllocationService {
                             return s;
                         });
 
+                // Available -> reserved within the same inventory: occupied volume is unchanged,
+                // so there is no OccupiedVolumeService delta to record here.
                 reservedStock.setAmount(reservedStock.getAmount() + quantity);
                 reservedStock = inventoryStockRepository.save(reservedStock);
 
                 // 4) persist StockMovement rows for this candidate,
                 //    but attach them to the RESERVED stock, not the original available stock
+                Long firstMovementId = null;
                 for (StockMovement movementTemplate : candidate.getMovements()) {
 
                     StockMovement movement = new StockMovement();
@@ -226,18 +234,28 @@ public class GlobalAllocationService {
                     movement.setEstimatedVolumeCc(movementTemplate.getEstimatedVolumeCc());
                     movement.setAssignedEmployee(movementTemplate.getAssignedEmployee());
 
-                    stockMovementRepository.save(movement);
+                    movement = stockMovementRepository.save(movement);
+                    if (firstMovementId == null) {
+                        firstMovementId = movement.getMovementId();
+                    }
                 }
+
+                // 5) ledger: the quantity leaves the available position and enters the reserved one
+                Integer inventoryId = reservedInventory.getInventoryId();
+                stockLedgerService.record(inventoryId, product.getProductId(), null, -quantity,
+                        LedgerReason.RESERVED, firstMovementId);
+                stockLedgerService.record(inventoryId, product.getProductId(), item.getOrderItemId(), quantity,
+                        LedgerReason.RESERVED, firstMovementId);
             }
         }
 
-        // 5) update order status to ALLOCATED
+        // 6) update order status to ALLOCATED
         for (Order order : touchedOrders) {
             order.setOrderStatus(OrderStatusEnum.ALLOCATED);
             orderRepository.save(order);
+            // Written asynchronously by AuditLogService once this transaction commits
+            eventPublisher.publishEvent(new AuditEvent("Allocated order #" + order.getOrderId()));
         }
-
-        // TODO: generate audit logs / notifications if required by your FRs
     }
 
     // ----------------- helper to map result DTO back to entity -----------------
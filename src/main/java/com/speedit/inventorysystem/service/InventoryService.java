@@ -26,6 +26,9 @@ public class InventoryService {
     @Autowired
     private LocationParsingService locationParsingService;
 
+    @Autowired
+    private StockLedgerService stockLedgerService;
+
     @Transactional
     public Inventory createInventory(InventoryRequest request) {
         Inventory inventory = new Inventory();
@@ -41,6 +44,21 @@ public class InventoryService {
         return inventoryRepository.save(inventory);
     }
 
+    /**
+     * Deletes an inventory together with its stock rows (JPA cascade), zeroing their ledger positions first.
+     *
+     * @return false if there is no such inventory
+     */
+    @Transactional
+    public boolean deleteInventory(Integer id) {
+        if (!inventoryRepository.existsById(id)) {
+            return false;
+        }
+        stockLedgerService.onInventoryDeleted(id);
+        inventoryRepository.deleteById(id);
+        return true;
+    }
+
     /**
      * Main logic function, now updated to handle location parsing.
      */
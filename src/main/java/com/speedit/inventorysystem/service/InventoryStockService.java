@@ -2,20 +2,32 @@ package com.speedit.inventorysystem.service;
 
 import com.speedit.inventorysystem.controller.InventoryStockController;
 import com.speedit.inventorysystem.dto.*;
+import com.speedit.inventorysystem.event.StockChangedEvent;
+import com.speedit.inventorysystem.enums.LedgerReason;
 import com.speedit.inventorysystem.model.Inventory;
 import com.speedit.inventorysystem.model.InventoryStock;
-import com.speedit.inventorysystem.model.Product;
 import com.speedit.inventorysystem.repository.InventoryRepository;
+import com.speedit.inventorysystem.repository.InventoryStockBulkRepository;
 import com.speedit.inventorysystem.repository.InventoryStockRepository;
 import com.speedit.inventorysystem.repository.ProductRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class InventoryStockService {
@@ -24,35 +36,79 @@ public class InventoryStockService {
     @Autowired private InventoryStockRepository stockRepo;
     @Autowired private InventoryRepository invRepo;
     @Autowired private ProductRepository prodRepo;
+    @Autowired private OccupiedVolumeService occupiedVolumeService;
+    @Autowired private InventoryStockBulkRepository bulkStockRepo;
+    @Autowired private ApplicationEventPublisher eventPublisher;
+    @Autowired private StockLedgerService stockLedgerService;
 
+    /**
+     * Adds a delivery to an inventory's available stock in a constant number of statements:
+     * products and existing available rows are read with one query each, amounts are merged per
+     * product in memory, and the rows are written with one batched UPDATE and one batched INSERT.
+     */
     @Transactional
     public void loadNewStocks(LoadStockDto dto) {
         Inventory inv = invRepo.findById(dto.getInventoryId())
                 .orElseThrow(() -> new IllegalArgumentException("Invalid inventory"));
+        if (dto.getAmounts().size() != dto.getProductIds().size()) {
+            throw new IllegalArgumentException("Expected one amount per product");
+        }
 
+        // One amount per product, even if it appears on several lines
+        Map<Integer, Integer> amountByProduct = new LinkedHashMap<>();
         for (int i = 0; i < dto.getProductIds().size(); i++) {
-            Product p = prodRepo.findById(dto.getProductIds().get(i))
-                    .orElseThrow(() -> new IllegalArgumentException("Invalid product"));
-            Integer amount = dto.getAmounts().get(i);
-
-            // Check for existing stock record
-            Optional<InventoryStock> existingStock = stockRepo.findByInventoryAndProductAndOrderItemIsNull(inv, p);
-
-            if (existingStock.isPresent()) {
-                // Update existing record
-                InventoryStock stock = existingStock.get();
-                stock.setAmount(stock.getAmount() + amount);
-                stockRepo.save(stock);
+            amountByProduct.merge(dto.getProductIds().get(i), dto.getAmounts().get(i), Integer::sum);
+        }
+        loadAvailableStock(inv.getInventoryId(), amountByProduct);
+    }
+
+    /**
+     * Adds the given amounts (productId -> units) to the available stock of an existing inventory,
+     * with the same constant number of statements as {@link #loadNewStocks}. Joins the caller's transaction.
+     */
+    @Transactional
+    public void loadAvailableStock(Integer inventoryId, Map<Integer, Integer> amountByProduct) {
+        if (amountByProduct.isEmpty()) {
+            return;
+        }
+        // 1. All products in one query
+        Map<Integer, BigDecimal> volumeByProduct = new HashMap<>();
+        for (Object[] row : prodRepo.findVolumesByIds(amountByProduct.keySet())) {
+            volumeByProduct.put((Integer) row[0], (BigDecimal) row[1]);
+        }
+        if (volumeByProduct.size() != amountByProduct.size()) {
+            throw new IllegalArgumentException("Invalid product");
+        }
+
+        // 2. Existing available rows in one (locking) query, then batched writes
+        Map<Integer, Integer> stockIdByProduct = bulkStockRepo.lockAvailableStockIds(inventoryId, amountByProduct.keySet());
+        List<Integer> updatedStockIds = new ArrayList<>();
+        List<Integer> updateDeltas = new ArrayList<>();
+        List<Integer> newProductIds = new ArrayList<>();
+        List<Integer> newAmounts = new ArrayList<>();
+        BigDecimal volumeDelta = BigDecimal.ZERO;
+        for (Map.Entry<Integer, Integer> line : amountByProduct.entrySet()) {
+            Integer stockId = stockIdByProduct.get(line.getKey());
+            if (stockId != null) {
+                updatedStockIds.add(stockId);
+                updateDeltas.add(line.getValue());
             } else {
-                // Create new record
-                InventoryStock st = new InventoryStock();
-                st.setInventory(inv);
-                st.setProduct(p);
-                st.setOrderItem(null);
-                st.setAmount(amount);
-                stockRepo.save(st);
+                newProductIds.add(line.getKey());
+                newAmounts.add(line.getValue());
             }
+            volumeDelta = volumeDelta.add(volumeByProduct.get(line.getKey()).multiply(BigDecimal.valueOf(line.getValue())));
         }
+        bulkStockRepo.addToAmounts(updatedStockIds, updateDeltas);
+        List<Integer> insertedStockIds = bulkStockRepo.insertAvailable(inventoryId, newProductIds, newAmounts);
+
+        // 3. What the entity listeners would have done for JPA saves
+        occupiedVolumeService.recordDelta(inventoryId, volumeDelta);
+        amountByProduct.forEach((productId, amount) ->
+                stockLedgerService.record(inventoryId, productId, null, amount, LedgerReason.LOAD, null));
+        Set<Integer> upserted = new HashSet<>(updatedStockIds);
+        upserted.addAll(insertedStockIds);
+        publishAfterCommit(new StockChangedEvent(Map.of(inventoryId, upserted), Map.of(),
+                new HashSet<>(amountByProduct.keySet())));
     }
 
     public List<OrderDTO> getOrdersForInventory(Integer inventoryId) {
@@ -75,88 +131,152 @@ public class InventoryStockService {
         return result;
     }
 
+    /**
+     * Moves stock out of an inventory, to another inventory or to the client, in a constant number of
+     * round trips: the source rows of all lines and the matching destination rows are read with one
+     * query each and the destination is resolved once. A product reserved for several order items of the
+     * order is taken from their rows in stock ID order. A whole row moves as is; a partial amount is
+     * merged into the destination row of the same product and order item (or available stock), and
+     * only lines without one get a new row, inserted as one JDBC batch. The changed rows are flushed
+     * as batched UPDATEs.
+     */
     @Transactional
     public void unloadProducts(UnloadRequestDTO request) {
+        Integer orderId = request.getOrder() != null ? request.getOrder().getOrderId() : null;
+        boolean toInventory = "inventory".equals(request.getDestinationType());
+
+        // One transport amount per product, even if it appears on several lines
+        Map<Integer, Integer> amountByProduct = new LinkedHashMap<>();
         for (ProductUnloadDTO product : request.getProducts()) {
-            // Find existing stock record
-            InventoryStock stock;
-            if (request.getOrder() == null) {
-                // Available stock
-                stock = stockRepo.findByInventoryInventoryIdAndProductProductIdAndOrderItemIsNull(
-                                request.getSourceInventoryId(), product.getProductId())
-                        .orElseThrow(() -> new IllegalArgumentException(
-                                "Available stock not found for product: " + product.getProductId()));
-            } else {
-                // Order-bound stock
-                stock = stockRepo.findByInventoryInventoryIdAndProductProductIdAndOrderItemOrderOrderId(
-                                request.getSourceInventoryId(), product.getProductId(), request.getOrder().getOrderId())
-                        .orElseThrow(() -> new IllegalArgumentException(
-                                "Stock for order #" + request.getOrder().getOrderId() +
-                                        " not found for product: " + product.getProductId()));
-            }
+            amountByProduct.merge(product.getProductId(), product.getAmount(), Integer::sum);
+        }
+        if (amountByProduct.isEmpty()) {
+            return;
+        }
 
-            int currentAmount = stock.getAmount();
-            int transportAmount = product.getAmount();
+        Map<Integer, List<InventoryStock>> sourceRowsByProduct =
+                rowsByProduct(stockRepo.findUnloadRows(request.getSourceInventoryId(), amountByProduct.keySet(), orderId));
+        Inventory destination = null;
+        Map<List<Integer>, InventoryStock> destinationByPosition = Map.of();
+        if (toInventory) {
+            destination = invRepo.findById(request.getDestinationInventoryId())
+                    .orElseThrow(() -> new IllegalArgumentException("Invalid destination inventory"));
+            destinationByPosition = byPosition(stockRepo.findUnloadRows(destination.getInventoryId(), amountByProduct.keySet(), orderId));
+        }
 
+        List<Integer> newProductIds = new ArrayList<>();
+        List<Integer> newOrderItemIds = new ArrayList<>();
+        List<Integer> newAmounts = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> line : amountByProduct.entrySet()) {
+            Integer productId = line.getKey();
+            List<InventoryStock> sourceRows = sourceRowsByProduct.getOrDefault(productId, List.of());
+            if (sourceRows.isEmpty()) {
+                throw new IllegalArgumentException(orderId == null
+                        ? "Available stock not found for product: " + productId
+                        : "Stock for order #" + orderId + " not found for product: " + productId);
+            }
+
+            // An order can reserve the same product for several order items: one row each
+            int currentAmount = sourceRows.stream().mapToInt(InventoryStock::getAmount).sum();
+            int transportAmount = line.getValue();
             if (transportAmount > currentAmount) {
                 throw new IllegalArgumentException("Transport amount (" + transportAmount +
                         ") exceeds available stock (" + currentAmount +
-                        ") for product: " + product.getProductId());
+                        ") for product: " + productId);
             }
 
-            if (transportAmount == currentAmount) {
-                // Full unload
-                handleFullUnload(request, stock);
-            } else {
-                // Partial unload
-                handlePartialUnload(request, stock, transportAmount);
-            }
-        }
-    }
+            // Take from the rows in stock ID order; only the last one taken can be partial
+            int remaining = transportAmount;
+            for (InventoryStock stock : sourceRows) {
+                if (remaining == 0) {
+                    break;
+                }
+                int rowAmount = stock.getAmount();
+                int taken = Math.min(remaining, rowAmount);
+                remaining -= taken;
+                if (taken == 0) {
+                    continue;
+                }
 
-    private void handleFullUnload(UnloadRequestDTO request, InventoryStock stock) {
-        if ("inventory".equals(request.getDestinationType())) {
-            // Transfer to another inventory
-            Inventory destination = invRepo.findById(request.getDestinationInventoryId())
-                    .orElseThrow(() -> new IllegalArgumentException("Invalid destination inventory"));
-            stock.setInventory(destination);
-            stockRepo.save(stock);
-        } else {
-            // Deliver to client - remove from inventory
-            if (stock.getOrderItem() == null) {
-                // TODO For available stock, we need to associate with order
-                if (request.getOrder() == null) {
-                    throw new IllegalArgumentException("Cannot deliver available stock to client without an order");
+                boolean fullUnload = taken == rowAmount;
+                if (fullUnload && !toInventory && stock.getOrderItem() == null) {
+                    // TODO For available stock, we need to associate with order
+                    if (request.getOrder() == null) {
+                        throw new IllegalArgumentException("Cannot deliver available stock to client without an order");
+                    }
+                    throw new UnsupportedOperationException("Delivering available stock to client is not implemented");
+                }
+
+                occupiedVolumeService.recordDelta(stock.getInventory(), stock.getProduct(), -taken);
+                occupiedVolumeService.recordDelta(destination, stock.getProduct(), taken);
+                Integer orderItemId = stock.getOrderItem() != null ? stock.getOrderItem().getOrderItemId() : null;
+                stockLedgerService.record(stock.getInventory().getInventoryId(), productId, orderItemId, -taken,
+                        toInventory ? LedgerReason.TRANSFER_OUT : LedgerReason.DELIVERED, null);
+                if (toInventory) {
+                    stockLedgerService.record(destination.getInventoryId(), productId, orderItemId, taken,
+                            LedgerReason.TRANSFER_IN, null);
+                }
+
+                if (fullUnload) {
+                    // The row itself moves (or leaves with the client), keeping its identity
+                    stock.setInventory(destination);
+                    continue;
+                }
+
+                // Partial unload: reduce the source, then merge into the destination row of the same
+                // order item (or available stock) or add one
+                stock.setAmount(rowAmount - taken);
+                InventoryStock target = destinationByPosition.get(position(productId, orderItemId));
+                if (target != null) {
+                    target.setAmount(target.getAmount() + taken);
+                } else {
+                    newProductIds.add(productId);
+                    newOrderItemIds.add(orderItemId);
+                    newAmounts.add(taken);
                 }
-                // Create order item association (implementation depends on your business logic)
-                // This would require additional logic to associate with order
-                throw new UnsupportedOperationException("Delivering available stock to client is not implemented");
             }
-            // For order-bound stock, just remove from inventory
-            stock.setInventory(null);
-            stockRepo.save(stock);
         }
+
+        // Changed rows are flushed by Hibernate (batched); the new ones go in one batch right here
+        Integer destinationId = destination != null ? destination.getInventoryId() : null;
+        List<Integer> insertedStockIds = bulkStockRepo.insertRows(destinationId, newProductIds, newOrderItemIds, newAmounts);
+        if (!insertedStockIds.isEmpty()) {
+            publishAfterCommit(new StockChangedEvent(
+                    destinationId != null ? Map.of(destinationId, new HashSet<>(insertedStockIds)) : Map.of(),
+                    Map.of(), new HashSet<>(newProductIds)));
+        }
+    }
+
+    // Rows per product, keeping the stock ID order of the query
+    private static Map<Integer, List<InventoryStock>> rowsByProduct(List<InventoryStock> rows) {
+        Map<Integer, List<InventoryStock>> byProduct = new HashMap<>();
+        rows.forEach(row -> byProduct.computeIfAbsent(row.getProduct().getProductId(), id -> new ArrayList<>()).add(row));
+        return byProduct;
     }
 
-    private void handlePartialUnload(UnloadRequestDTO request, InventoryStock stock, int transportAmount) {
-        // Reduce existing stock
-        stock.setAmount(stock.getAmount() - transportAmount);
-        stockRepo.save(stock);
+    // First row per (product, order item) position; the order item is null for available stock
+    private static Map<List<Integer>, InventoryStock> byPosition(List<InventoryStock> rows) {
+        Map<List<Integer>, InventoryStock> byPosition = new HashMap<>();
+        rows.forEach(row -> byPosition.putIfAbsent(position(row.getProduct().getProductId(),
+                row.getOrderItem() != null ? row.getOrderItem().getOrderItemId() : null), row));
+        return byPosition;
+    }
 
-        // Create new stock entry
-        InventoryStock newStock = new InventoryStock();
-        newStock.setProduct(stock.getProduct());
-        newStock.setOrderItem(stock.getOrderItem());
-        newStock.setAmount(transportAmount);
+    private static List<Integer> position(Integer productId, Integer orderItemId) {
+        return Arrays.asList(productId, orderItemId);
+    }
 
-        if ("inventory".equals(request.getDestinationType())) {
-            Inventory destination = invRepo.findById(request.getDestinationInventoryId())
-                    .orElseThrow(() -> new IllegalArgumentException("Invalid destination inventory"));
-            newStock.setInventory(destination);
-        } else {
-            // Deliver to client - no inventory
-            newStock.setInventory(null);
+    // The JDBC writes of this service aren't seen by InventoryStockChangeListener
+    private void publishAfterCommit(StockChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eventPublisher.publishEvent(event);
+            return;
         }
-        stockRepo.save(newStock);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eventPublisher.publishEvent(event);
+            }
+        });
     }
-}
\ No newline at end of file
+}
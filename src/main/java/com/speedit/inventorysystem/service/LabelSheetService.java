@@ -0,0 +1,217 @@
+package com.speedit.inventorysystem.service;
+
+import com.google.zxing.oned.Code128Writer;
+import com.speedit.inventorysystem.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Printable sheets of Code128 product labels, a grid of columns x rows labels per page.
+ *
+ * Labels are painted in parallel straight into the page rasters: each worker thread encodes the
+ * barcode to its module pattern, scales it once into a reused scan line and copies that line down
+ * its own tile, so no per-label image or matrix is allocated. Pages are then captioned and
+ * PNG-encoded in parallel, a few at a time, so memory stays bounded for large print runs.
+ */
+@Service
+@RequiredArgsConstructor
+public class LabelSheetService {
+
+    private static final int LABEL_WIDTH = BarcodeService.DEFAULT_WIDTH;
+    private static final int BAR_HEIGHT = BarcodeService.DEFAULT_HEIGHT;
+    private static final int CAPTION_HEIGHT = 20;
+    private static final int PADDING = 10;
+    private static final int QUIET_ZONE = 1; // modules on each side, as in BarcodeService
+    private static final int CELL_WIDTH = LABEL_WIDTH + 2 * PADDING;
+    private static final int CELL_HEIGHT = BAR_HEIGHT + CAPTION_HEIGHT + 2 * PADDING;
+    private static final byte WHITE = (byte) 0xFF;
+    private static final byte BLACK = 0;
+
+    // Per worker thread, reused for every label that thread paints
+    private static final ThreadLocal<Code128Writer> WRITER = ThreadLocal.withInitial(Code128Writer::new);
+    private static final ThreadLocal<byte[]> SCAN_LINE = ThreadLocal.withInitial(() -> new byte[LABEL_WIDTH]);
+
+    private final ProductRepository productRepository;
+
+    @Value("${barcode.prefix.country}")
+    private String countryPrefix;
+    @Value("${barcode.prefix.company}")
+    private String companyPrefix;
+    @Value("${label.sheet.columns:3}")
+    private int columns;
+    @Value("${label.sheet.rows:8}")
+    private int rows;
+    @Value("${label.sheet.max-labels:5000}")
+    private int maxLabels;
+
+    /** Barcode texts in print order, resolved before anything is written. */
+    public record LabelSheet(List<String> labels, int pageCount) {
+        public boolean isSinglePage() {
+            return pageCount == 1;
+        }
+    }
+
+    /**
+     * Resolves the barcode of every label to print.
+     *
+     * @throws IllegalArgumentException for unknown products, mismatched amounts or too many labels
+     */
+    public LabelSheet prepare(List<Integer> productIds, List<Integer> amounts) {
+        if (amounts != null && amounts.size() != productIds.size()) {
+            throw new IllegalArgumentException("Expected one amount per product");
+        }
+
+        Map<Integer, String> barcodes = new HashMap<>();
+        for (Object[] row : productRepository.findBarcodeChecksums(new LinkedHashSet<>(productIds))) {
+            barcodes.put((Integer) row[0], fullBarcode((Integer) row[0], (Integer) row[1]));
+        }
+
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < productIds.size(); i++) {
+            String barcode = barcodes.get(productIds.get(i));
+            if (barcode == null) {
+                throw new IllegalArgumentException("Product not found with id: " + productIds.get(i));
+            }
+            int copies = amounts != null ? amounts.get(i) : 1;
+            if (labels.size() + copies > maxLabels) {
+                throw new IllegalArgumentException("At most " + maxLabels + " labels per request");
+            }
+            for (int c = 0; c < copies; c++) {
+                labels.add(barcode);
+            }
+        }
+        if (labels.isEmpty()) {
+            throw new IllegalArgumentException("No labels to print");
+        }
+
+        int perPage = columns * rows;
+        return new LabelSheet(labels, (labels.size() + perPage - 1) / perPage);
+    }
+
+    /** A single page as PNG; several pages as a ZIP of labels-001.png, labels-002.png, ... */
+    public void write(LabelSheet sheet, OutputStream out) throws IOException {
+        if (sheet.isSinglePage()) {
+            out.write(renderPages(sheet.labels(), 0, 1).get(0));
+            return;
+        }
+
+        int batch = Math.max(1, Runtime.getRuntime().availableProcessors());
+        ZipOutputStream zip = new ZipOutputStream(out);
+        for (int first = 0; first < sheet.pageCount(); first += batch) {
+            List<byte[]> pages = renderPages(sheet.labels(), first, Math.min(batch, sheet.pageCount() - first));
+            for (int p = 0; p < pages.size(); p++) {
+                zip.putNextEntry(new ZipEntry(String.format("labels-%03d.png", first + p + 1)));
+                zip.write(pages.get(p));
+                zip.closeEntry();
+            }
+        }
+        zip.finish();
+    }
+
+    private String fullBarcode(Integer productId, Integer checksum) {
+        return countryPrefix + companyPrefix + String.format("%05d", productId) + checksum;
+    }
+
+    // ----------------- Rendering -----------------
+
+    private List<byte[]> renderPages(List<String> labels, int firstPage, int pageCount) {
+        int perPage = columns * rows;
+        BufferedImage[] pages = new BufferedImage[pageCount];
+        for (int p = 0; p < pageCount; p++) {
+            pages[p] = new BufferedImage(columns * CELL_WIDTH, rows * CELL_HEIGHT, BufferedImage.TYPE_BYTE_GRAY);
+            Arrays.fill(raster(pages[p]), WHITE);
+        }
+
+        // Every label owns a disjoint tile, so the workers never write the same bytes
+        int from = firstPage * perPage;
+        int to = Math.min(labels.size(), (firstPage + pageCount) * perPage);
+        IntStream.range(from, to).parallel()
+                .forEach(i -> paintBars(pages[i / perPage - firstPage], i % perPage, labels.get(i)));
+
+        return IntStream.range(0, pageCount).parallel()
+                .mapToObj(p -> {
+                    int pageStart = (firstPage + p) * perPage;
+                    drawCaptions(pages[p], labels.subList(pageStart, Math.min(labels.size(), pageStart + perPage)));
+                    return encodePng(pages[p]);
+                })
+                .toList();
+    }
+
+    private void paintBars(BufferedImage page, int slot, String barcodeText) {
+        boolean[] modules = WRITER.get().encode(barcodeText);
+        int scale = Math.max(1, LABEL_WIDTH / (modules.length + 2 * QUIET_ZONE));
+        int left = (LABEL_WIDTH - modules.length * scale) / 2;
+        if (left < 0) {
+            throw new IllegalArgumentException("Barcode too long for a label: " + barcodeText);
+        }
+
+        byte[] line = SCAN_LINE.get();
+        Arrays.fill(line, WHITE);
+        for (int m = 0; m < modules.length; m++) {
+            if (modules[m]) {
+                Arrays.fill(line, left + m * scale, left + (m + 1) * scale, BLACK);
+            }
+        }
+
+        byte[] raster = raster(page);
+        int pageWidth = page.getWidth();
+        int x = (slot % columns) * CELL_WIDTH + PADDING;
+        int y = (slot / columns) * CELL_HEIGHT + PADDING;
+        for (int r = 0; r < BAR_HEIGHT; r++) {
+            System.arraycopy(line, 0, raster, (y + r) * pageWidth + x, LABEL_WIDTH);
+        }
+    }
+
+    private void drawCaptions(BufferedImage page, List<String> labels) {
+        Graphics2D g = page.createGraphics();
+        try {
+            g.setColor(Color.BLACK);
+            g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 14));
+            FontMetrics metrics = g.getFontMetrics();
+            for (int slot = 0; slot < labels.size(); slot++) {
+                String text = labels.get(slot);
+                int x = (slot % columns) * CELL_WIDTH + (CELL_WIDTH - metrics.stringWidth(text)) / 2;
+                int y = (slot / columns) * CELL_HEIGHT + PADDING + BAR_HEIGHT + metrics.getAscent() + 2;
+                g.drawString(text, x, y);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private static byte[] encodePng(BufferedImage page) {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ImageIO.write(page, "png", baos);
+            return baos.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] raster(BufferedImage page) {
+        return ((DataBufferByte) page.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -3,6 +3,11 @@ package com.speedit.inventorysystem.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.speedit.inventorysystem.dto.Coordinates;
 import com.speedit.inventorysystem.dto.ParsedLocationData;
+import com.speedit.inventorysystem.service.routing.OrsEndpoint;
+import com.speedit.inventorysystem.service.routing.OrsGateway;
+import com.speedit.inventorysystem.service.routing.OrsRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -17,10 +22,17 @@ import java.util.regex.Pattern;
 @Service
 public class LocationParsingService {
 
+    private static final Logger log = LoggerFactory.getLogger(LocationParsingService.class);
+
     @Autowired
     private WebClient webClient;
+    // Shares the geocoding quota with RoutingService
+    @Autowired
+    private OrsGateway orsGateway;
     @Value("${ors.api.key}")
     private String orsApiKey;
+    @Value("${ors.api.base-url:https://api.openrouteservice.org}")
+    private String orsBaseUrl;
 
     // Regex to find @latitude,longitude,
     private static final Pattern COORD_PATTERN = Pattern.compile("/@(-?\\d+\\.\\d+),(-?\\d+\\.\\d+)");
@@ -76,31 +88,36 @@ public class LocationParsingService {
      * NEW FUNCTION: Calls ORS Reverse Geocoding API
      */
     private String getDescriptionFromCoordinates(Coordinates coords) {
+        String fallback = "Location at " + coords.getLatitude() + "," + coords.getLongitude();
+
+        // Call ORS Reverse Geocoding API (empty if ORS is unavailable; the gateway logs why)
+        JsonNode response;
         try {
-            // Call ORS Reverse Geocoding API
-            JsonNode response = webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .scheme("https")
-                            .host("api.openrouteservice.org")
-                            .path("/geocode/reverse")
-                            .queryParam("api_key", orsApiKey)
-                            .queryParam("point.lon", coords.getLongitude())
-                            .queryParam("point.lat", coords.getLatitude())
-                            .queryParam("layers", "address")
-                            .queryParam("size", 1)
-                            .build())
-                    .retrieve()
-                    .bodyToMono(JsonNode.class)
-                    .block(); // Blocking for simplicity in this service
+            response = orsGateway.execute(OrsEndpoint.GEOCODE, () -> webClient.get()
+                            .uri(orsBaseUrl + "/geocode/reverse", uriBuilder -> uriBuilder
+                                    .queryParam("api_key", orsApiKey)
+                                    .queryParam("point.lon", coords.getLongitude())
+                                    .queryParam("point.lat", coords.getLatitude())
+                                    .queryParam("layers", "address")
+                                    .queryParam("size", 1)
+                                    .build())
+                            .retrieve()
+                            .bodyToMono(JsonNode.class))
+                    .orElse(null);
+        } catch (OrsRequestException e) {
+            // The description is cosmetic, so a rejected lookup must not fail the link parsing
+            log.warn("Reverse geocoding {},{} was rejected: {}", coords.getLatitude(), coords.getLongitude(), e.getMessage());
+            return fallback;
+        }
+        if (response == null) {
+            return fallback;
+        }
 
-            if (response != null && response.has("features") && response.get("features").size() > 0) {
-                // Get the "label" (full address)
-                return response.get("features").get(0).get("properties").get("label").asText();
-            }
-            return "Unknown Location";
-        } catch (Exception e) {
-            // Log the error
-            return "Location at " + coords.getLatitude() + "," + coords.getLongitude();
+        if (response.has("features") && response.get("features").size() > 0) {
+            // Get the "label" (full address)
+            JsonNode label = response.get("features").get(0).path("properties").get("label");
+            return label != null ? label.asText() : fallback;
         }
+        return "Unknown Location";
     }
 }
\ No newline at end of file
@@ -0,0 +1,310 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.dto.InventoryVolumeDTO;
+import com.speedit.inventorysystem.model.Inventory;
+import com.speedit.inventorysystem.model.Product;
+import com.speedit.inventorysystem.repository.InventoryRepository;
+import com.speedit.inventorysystem.repository.InventoryStockRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Maintains the occupied volume (cm³) of every inventory so capacity checks are O(1) reads.
+ *
+ * - Source of truth: inventory.occupied_volume_cc, changed only by SQL increments issued here.
+ *   Every code path that changes InventoryStock.amount (or moves a stock row between inventories)
+ *   must call {@link #recordDelta} inside its transaction.
+ * - Deltas are accumulated per transaction and written once per inventory just before commit,
+ *   in inventory-id order, so row locks are held briefly and always taken in the same order.
+ * - Reads go through an in-memory view (one LongAdder per inventory, in milli-cm³) that is seeded
+ *   from the database on first use and updated after each commit. Seeding and applying committed deltas
+ *   are coordinated per lock stripe: a value read while a commit on the stripe was in flight is returned
+ *   but not cached, so no committed delta is lost or applied twice.
+ * - A scheduled job recomputes all counters from inventory_stock and resets the view, which repairs
+ *   any drift (e.g. writes that bypassed this service).
+ */
+@Service
+@RequiredArgsConstructor
+public class OccupiedVolumeService {
+
+    private static final Logger log = LoggerFactory.getLogger(OccupiedVolumeService.class);
+
+    // Transaction resource key for the pending deltas of the current transaction
+    private static final Object PENDING_DELTAS_KEY = new Object();
+    private static final BigDecimal MILLI_CC_PER_CC = BigDecimal.valueOf(1000);
+    private static final int STRIPES = 64;
+
+    private final InventoryRepository inventoryRepository;
+    private final InventoryStockRepository inventoryStockRepository;
+    private final AggregateVersionService aggregateVersionService;
+
+    // inventoryId -> occupied volume in milli-cm³ (committed state)
+    private final Map<Integer, LongAdder> occupiedMilliCc = new ConcurrentHashMap<>();
+
+    // Per stripe of inventory ids, guarded by the stripe's lock: commits between writing their deltas
+    // and applying them to the view, and commits completed so far (lets a seed detect one it overlapped)
+    private final Object[] stripeLocks = new Object[STRIPES];
+    private final int[] commitsInFlight = new int[STRIPES];
+    private final long[] commitsCompleted = new long[STRIPES];
+
+    {
+        for (int i = 0; i < STRIPES; i++) {
+            stripeLocks[i] = new Object();
+        }
+    }
+
+    // ----------------- Writes -----------------
+
+    /**
+     * Records that {@code amountDelta} units of {@code product} entered (positive) or left (negative)
+     * {@code inventory}. Must run inside the transaction that changes the stock rows.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDelta(Inventory inventory, Product product, int amountDelta) {
+        if (inventory == null || amountDelta == 0) {
+            return; // e.g. stock delivered to a client has no inventory
+        }
+        recordDelta(inventory.getInventoryId(), product.getVolume().multiply(BigDecimal.valueOf(amountDelta)));
+    }
+
+    /**
+     * Records a raw volume change (cm³) for an inventory. Must run inside a transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDelta(Integer inventoryId, BigDecimal volumeDeltaCc) {
+        if (volumeDeltaCc.signum() == 0) {
+            return;
+        }
+        pendingDeltas().merge(inventoryId, volumeDeltaCc, BigDecimal::add);
+    }
+
+    /**
+     * A product is deleted together with its stock rows (JPA cascade): every inventory holding it loses
+     * amount x volume. Must run inside the deleting transaction, before the rows are gone.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onProductDeleted(Integer productId, BigDecimal volume) {
+        if (volume == null || volume.signum() == 0) {
+            return;
+        }
+        for (Object[] row : inventoryStockRepository.sumAmountByInventoryForProduct(productId)) {
+            Integer inventoryId = (Integer) row[0];
+            long amount = ((Number) row[1]).longValue();
+            recordDelta(inventoryId, volume.multiply(BigDecimal.valueOf(-amount)));
+        }
+    }
+
+    /**
+     * A product's volume changed: every inventory holding it changes by (new - old) x amount held.
+     */
+    @Transactional
+    public void onProductVolumeChanged(Integer productId, BigDecimal oldVolume, BigDecimal newVolume) {
+        if (oldVolume == null || newVolume == null || oldVolume.compareTo(newVolume) == 0) {
+            return;
+        }
+        BigDecimal perUnitDelta = newVolume.subtract(oldVolume);
+        for (Object[] row : inventoryStockRepository.sumAmountByInventoryForProduct(productId)) {
+            Integer inventoryId = (Integer) row[0];
+            long amount = ((Number) row[1]).longValue();
+            recordDelta(inventoryId, perUnitDelta.multiply(BigDecimal.valueOf(amount)));
+        }
+    }
+
+    // ----------------- Reads -----------------
+
+    /** Occupied volume in cm³ for one inventory. */
+    public BigDecimal getOccupiedVolume(Integer inventoryId) {
+        LongAdder adder = occupiedMilliCc.get(inventoryId);
+        if (adder != null) {
+            return fromMilliCc(adder.sum());
+        }
+        long epoch = seedEpoch(inventoryId);
+        BigDecimal persisted = inventoryRepository.findOccupiedVolumeById(inventoryId);
+        seed(inventoryId, persisted, epoch);
+        return persisted != null ? persisted : BigDecimal.ZERO;
+    }
+
+    /** Occupied volume in cm³ for many inventories, loading any not yet in memory with one query. */
+    public Map<Integer, BigDecimal> getOccupiedVolumes(Collection<Integer> inventoryIds) {
+        Map<Integer, BigDecimal> result = new HashMap<>();
+        List<Integer> missing = inventoryIds.stream()
+                .filter(id -> !occupiedMilliCc.containsKey(id))
+                .distinct()
+                .toList();
+        Map<Integer, BigDecimal> persisted = new HashMap<>();
+        if (!missing.isEmpty()) {
+            Map<Integer, Long> epochs = new HashMap<>();
+            missing.forEach(id -> epochs.put(id, seedEpoch(id)));
+            for (InventoryVolumeDTO row : inventoryRepository.findOccupiedVolumesByIds(missing)) {
+                BigDecimal volume = row.getTotalVolume() != null ? row.getTotalVolume() : BigDecimal.ZERO;
+                persisted.put(row.getInventoryId(), volume);
+                seed(row.getInventoryId(), volume, epochs.get(row.getInventoryId()));
+            }
+        }
+        for (Integer id : inventoryIds) {
+            LongAdder adder = occupiedMilliCc.get(id);
+            result.put(id, adder != null ? fromMilliCc(adder.sum()) : persisted.getOrDefault(id, BigDecimal.ZERO));
+        }
+        return result;
+    }
+
+    // ----------------- Reconciliation -----------------
+
+    /**
+     * Recomputes every counter from the stock table and drops the in-memory view,
+     * so the next reads are seeded from the corrected values.
+     */
+    @Scheduled(fixedDelayString = "${inventory.occupied-volume.reconcile-interval-ms:600000}",
+            initialDelayString = "${inventory.occupied-volume.reconcile-initial-delay-ms:60000}")
+    @Transactional
+    public void reconcile() {
+        int drifted = inventoryRepository.reconcileOccupiedVolumes();
+        if (drifted > 0) {
+            log.warn("Occupied volume reconciliation corrected {} inventories", drifted);
+        } else {
+            log.debug("Occupied volume reconciliation: all counters consistent");
+        }
+
+        // Reset the view once the corrected values are committed
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    resetView();
+                    if (drifted > 0) aggregateVersionService.invalidateAll();
+                }
+            });
+        } else {
+            resetView();
+            if (drifted > 0) aggregateVersionService.invalidateAll();
+        }
+    }
+
+    // ----------------- Helpers -----------------
+
+    private static int stripe(Integer inventoryId) {
+        return Math.floorMod(inventoryId.hashCode(), STRIPES);
+    }
+
+    /** Taken before reading the persisted value; -1 when a commit on the stripe is in flight. */
+    private long seedEpoch(Integer inventoryId) {
+        int stripe = stripe(inventoryId);
+        synchronized (stripeLocks[stripe]) {
+            return commitsInFlight[stripe] > 0 ? -1 : commitsCompleted[stripe];
+        }
+    }
+
+    /**
+     * Caches a persisted value read after {@link #seedEpoch}, unless a commit on the stripe started or
+     * finished in between: the read may or may not include its delta, so the next read tries again.
+     */
+    private void seed(Integer inventoryId, BigDecimal volumeCc, long epoch) {
+        if (epoch < 0) {
+            return;
+        }
+        int stripe = stripe(inventoryId);
+        synchronized (stripeLocks[stripe]) {
+            if (commitsInFlight[stripe] == 0 && commitsCompleted[stripe] == epoch) {
+                LongAdder fresh = new LongAdder();
+                fresh.add(toMilliCc(volumeCc != null ? volumeCc : BigDecimal.ZERO));
+                occupiedMilliCc.putIfAbsent(inventoryId, fresh);
+            }
+        }
+    }
+
+    /** Drops the view after a reconciliation; seeds that read the old values are not cached. */
+    private void resetView() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            synchronized (stripeLocks[stripe]) {
+                commitsCompleted[stripe]++;
+            }
+        }
+        occupiedMilliCc.clear();
+    }
+
+    /**
+     * Deltas of the current transaction, keyed by inventory id (sorted, for a consistent lock order).
+     * The first call in a transaction registers the callbacks that write and publish them.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<Integer, BigDecimal> pendingDeltas() {
+        Map<Integer, BigDecimal> pending =
+                (Map<Integer, BigDecimal>) TransactionSynchronizationManager.getResource(PENDING_DELTAS_KEY);
+        if (pending != null) {
+            return pending;
+        }
+
+        Map<Integer, BigDecimal> deltas = new TreeMap<>();
+        TransactionSynchronizationManager.bindResource(PENDING_DELTAS_KEY, deltas);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean announced;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                // Announced before writing, so a concurrent seed can't cache a value read in the meantime
+                announced = true;
+                deltas.keySet().forEach(inventoryId -> {
+                    int stripe = stripe(inventoryId);
+                    synchronized (stripeLocks[stripe]) {
+                        commitsInFlight[stripe]++;
+                    }
+                });
+                deltas.forEach((inventoryId, delta) -> {
+                    if (delta.signum() != 0) {
+                        inventoryRepository.addOccupiedVolume(inventoryId, delta);
+                    }
+                });
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_DELTAS_KEY);
+                if (!announced) {
+                    return;
+                }
+                boolean committed = status == STATUS_COMMITTED;
+                // Only inventories already in the view are updated; others are seeded from the DB on first read
+                deltas.forEach((inventoryId, delta) -> {
+                    int stripe = stripe(inventoryId);
+                    synchronized (stripeLocks[stripe]) {
+                        LongAdder adder = occupiedMilliCc.get(inventoryId);
+                        if (committed && adder != null) {
+                            adder.add(toMilliCc(delta));
+                        }
+                        commitsInFlight[stripe]--;
+                        commitsCompleted[stripe]++;
+                    }
+                    if (committed) {
+                        aggregateVersionService.bump(AggregateVersionService.inventoryKey(inventoryId));
+                    }
+                });
+            }
+        });
+        return deltas;
+    }
+
+    private static long toMilliCc(BigDecimal volumeCc) {
+        return volumeCc.multiply(MILLI_CC_PER_CC).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static BigDecimal fromMilliCc(long milliCc) {
+        return BigDecimal.valueOf(milliCc, 3);
+    }
+}
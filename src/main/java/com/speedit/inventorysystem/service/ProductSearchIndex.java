@@ -0,0 +1,355 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.dto.ProductSummaryDTO;
+import com.speedit.inventorysystem.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.function.Supplier;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory type-ahead index behind the product dropdown (/containers/products/searchable).
+ *
+ * Every product has one entry holding its dropdown text: "id - options" for base products and
+ * "id - UNIT contains Q -> ... options" for container parents. Entries get positions in product ID
+ * order, and every 1-, 2- and 3-character gram of the lowercased text maps to a BitSet of positions.
+ * A query intersects the BitSets of its grams (one BitSet for terms up to 3 characters, exact;
+ * longer terms verify the candidates with contains) and walks the result in position order, so
+ * any prefix or substring is answered without touching the database.
+ *
+ * Built on first use. Writers call {@link #refreshAfterCommit} with the products they changed; the
+ * entries of those products and of every container holding them are reloaded after commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final int MAX_GRAM = 3;
+
+    // Transaction resource key for the product IDs to refresh when the current transaction commits
+    private static final Object PENDING_PRODUCTS_KEY = new Object();
+
+    private final ProductRepository productRepository;
+    private final ContainerGraphService containerGraphService;
+    private final ContainerClosureService containerClosureService;
+    private final PlatformTransactionManager transactionManager;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Guarded by lock. Removed entries stay as dead positions until the next full build.
+    private int[] productIds = new int[0];
+    private String[] displayTexts = new String[0];
+    private String[] searchTexts = new String[0]; // lowercased display texts
+    private int size;
+    private final BitSet live = new BitSet();
+    private final Map<Integer, Integer> positionByProductId = new HashMap<>();
+    private final Map<String, BitSet> postings = new HashMap<>();
+    private boolean built;
+
+    // ----------------- Reads -----------------
+
+    /**
+     * One page of dropdown entries whose text contains {@code searchTerm} (case-insensitive),
+     * in product ID order. Same response shape as the dropdown endpoint always had.
+     */
+    public Map<String, Object> search(String searchTerm, int page, int pageSize) {
+        ensureBuilt();
+        String term = searchTerm != null ? searchTerm.toLowerCase().trim() : "";
+        List<ProductSummaryDTO> content = new ArrayList<>();
+        int candidateCount;
+        boolean hasMore = false;
+
+        lock.readLock().lock();
+        try {
+            BitSet candidates = candidates(term);
+            candidateCount = candidates.cardinality();
+            boolean verify = term.length() > MAX_GRAM; // shorter terms are grams themselves: no false positives
+
+            int skip = page * pageSize;
+            for (int pos = candidates.nextSetBit(0); pos >= 0; pos = candidates.nextSetBit(pos + 1)) {
+                if (verify && !searchTexts[pos].contains(term)) {
+                    continue;
+                }
+                if (skip > 0) {
+                    skip--;
+                } else if (content.size() < pageSize) {
+                    content.add(new ProductSummaryDTO(productIds[pos], displayTexts[pos]));
+                } else {
+                    hasMore = true;
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        int estimatedTotalPages = pageSize > 0 ? (int) Math.ceil((double) candidateCount / pageSize) : 0;
+        Map<String, Object> response = new HashMap<>();
+        response.put("content", content);
+        response.put("page", page);
+        response.put("size", pageSize);
+        response.put("totalElements", content.size());
+        response.put("totalPages", estimatedTotalPages);
+        response.put("hasMore", hasMore);
+        return response;
+    }
+
+    // Caller holds the read lock
+    private BitSet candidates(String term) {
+        if (term.isEmpty()) {
+            return (BitSet) live.clone();
+        }
+        int n = Math.min(MAX_GRAM, term.length());
+        BitSet result = null;
+        for (int i = 0; i + n <= term.length(); i++) {
+            BitSet posting = postings.get(term.substring(i, i + n));
+            if (posting == null) {
+                return new BitSet();
+            }
+            if (result == null) {
+                result = (BitSet) posting.clone();
+            } else {
+                result.and(posting);
+            }
+            if (result.isEmpty()) {
+                break;
+            }
+        }
+        result.and(live);
+        return result;
+    }
+
+    // ----------------- Writes -----------------
+
+    /** Reloads the entries of these products (and of the containers holding them) once the transaction commits. */
+    public void refreshAfterCommit(Collection<Integer> changedProductIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            refresh(changedProductIds);
+            return;
+        }
+        pendingProductIds().addAll(changedProductIds);
+    }
+
+    // Serialized, so an older reload never overwrites a newer one
+    private synchronized void refresh(Collection<Integer> changedProductIds) {
+        if (changedProductIds.isEmpty() || !isBuilt()) {
+            return; // the first search builds everything from scratch anyway
+        }
+        Map<Integer, String> texts = readOnly(() -> {
+            Set<Integer> affected = new HashSet<>(changedProductIds);
+            affected.addAll(containerClosureService.findAncestorsOf(changedProductIds));
+            Map<Integer, String> loaded = new HashMap<>();
+            for (Integer productId : affected) {
+                loaded.put(productId, null); // null = deleted
+            }
+            List<Integer> existing = productRepository.findExistingProductIds(affected);
+            loaded.putAll(displayTexts(existing, optionValues(productRepository.findOptionValueRowsByProductIds(existing))));
+            return loaded;
+        });
+
+        lock.writeLock().lock();
+        try {
+            texts.forEach((productId, text) -> {
+                if (text != null) {
+                    put(productId, text);
+                } else {
+                    remove(productId);
+                }
+            });
+            if (size - live.cardinality() > Math.max(1024, size / 2)) {
+                rebuild(); // mostly deleted entries: start over with dense positions
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isBuilt() {
+        lock.readLock().lock();
+        try {
+            return built;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void ensureBuilt() {
+        if (isBuilt()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!built) {
+                rebuild();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Caller holds the write lock
+    private void rebuild() {
+        Map<Integer, String> texts = readOnly(() -> {
+            List<Integer> ids = productRepository.findAllProductIds();
+            return displayTexts(ids, optionValues(productRepository.findAllOptionValueRows()));
+        });
+
+        productIds = new int[0];
+        displayTexts = new String[0];
+        searchTexts = new String[0];
+        size = 0;
+        live.clear();
+        positionByProductId.clear();
+        postings.clear();
+        texts.keySet().stream().sorted().forEach(productId -> put(productId, texts.get(productId)));
+        built = true;
+        log.info("Product search index built with {} entries and {} grams", size, postings.size());
+    }
+
+    /**
+     * Adds or replaces an entry. A product keeps its position when its text changes; new products are
+     * appended, which keeps ID order since new IDs are the highest. Caller holds the write lock.
+     */
+    private void put(Integer productId, String displayText) {
+        Integer existing = positionByProductId.get(productId);
+        int pos;
+        if (existing != null) {
+            pos = existing;
+            unindex(pos);
+        } else {
+            if (size == productIds.length) {
+                int capacity = Math.max(16, size * 2);
+                productIds = Arrays.copyOf(productIds, capacity);
+                displayTexts = Arrays.copyOf(displayTexts, capacity);
+                searchTexts = Arrays.copyOf(searchTexts, capacity);
+            }
+            pos = size++;
+            productIds[pos] = productId;
+            positionByProductId.put(productId, pos);
+        }
+        displayTexts[pos] = displayText;
+        searchTexts[pos] = displayText.toLowerCase();
+        live.set(pos);
+        for (String gram : grams(searchTexts[pos])) {
+            postings.computeIfAbsent(gram, g -> new BitSet()).set(pos);
+        }
+    }
+
+    // Caller holds the write lock
+    private void remove(Integer productId) {
+        Integer pos = positionByProductId.remove(productId);
+        if (pos == null) {
+            return;
+        }
+        unindex(pos);
+        live.clear(pos);
+        displayTexts[pos] = null;
+        searchTexts[pos] = null;
+    }
+
+    // Caller holds the write lock
+    private void unindex(int pos) {
+        for (String gram : grams(searchTexts[pos])) {
+            BitSet posting = postings.get(gram);
+            if (posting != null) {
+                posting.clear(pos);
+                if (posting.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    // ----------------- Helpers -----------------
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int n = 1; n <= MAX_GRAM; n++) {
+            for (int i = 0; i + n <= text.length(); i++) {
+                grams.add(text.substring(i, i + n));
+            }
+        }
+        return grams;
+    }
+
+    /** Dropdown text per product; container parents take their chain from the container graph. */
+    private Map<Integer, String> displayTexts(Collection<Integer> ids, Map<Integer, String> options) {
+        ContainerGraph graph = containerGraphService.current();
+        Map<Integer, String> texts = new HashMap<>();
+        for (Integer productId : ids) {
+            ContainerGraph.Node node = graph.node(productId);
+            StringBuilder text = new StringBuilder().append(productId).append(" - ");
+            if (node == null) {
+                text.append(options.getOrDefault(productId, ""));
+            } else {
+                for (ContainerGraph.Link link : node.chain()) {
+                    text.append(link.unit()).append(" contains ").append(link.quantity()).append(" -> \n");
+                }
+                text.append(!node.leafOptions().isEmpty() ? node.leafOptions() : "N/A");
+            }
+            texts.put(productId, text.toString());
+        }
+        return texts;
+    }
+
+    private static Map<Integer, String> optionValues(List<Object[]> rows) {
+        Map<Integer, List<String>> values = new HashMap<>();
+        for (Object[] row : rows) {
+            values.computeIfAbsent((Integer) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        Map<Integer, String> options = new HashMap<>();
+        values.forEach((productId, list) -> options.put(productId, String.join(", ", list)));
+        return options;
+    }
+
+    private <T> T readOnly(Supplier<T> work) {
+        // Own read-only transaction: this also runs from afterCommit, where the caller's one is finished
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        readOnlyTx.setReadOnly(true);
+        return readOnlyTx.execute(status -> work.get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Integer> pendingProductIds() {
+        Set<Integer> pending = (Set<Integer>) TransactionSynchronizationManager.getResource(PENDING_PRODUCTS_KEY);
+        if (pending != null) {
+            return pending;
+        }
+
+        Set<Integer> productIds = new HashSet<>();
+        TransactionSynchronizationManager.bindResource(PENDING_PRODUCTS_KEY, productIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                refresh(productIds);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_PRODUCTS_KEY);
+            }
+        });
+        return productIds;
+    }
+}
@@ -3,7 +3,6 @@ package com.speedit.inventorysystem.service;
 import com.speedit.inventorysystem.controller.ProductController.ProductRequest;
 import com.speedit.inventorysystem.dto.ProductDTO;
 import com.speedit.inventorysystem.enums.MeasurementUnitEnum;
-import com.speedit.inventorysystem.model.Container;
 import com.speedit.inventorysystem.model.OptionCategory;
 import com.speedit.inventorysystem.model.Product;
 import com.speedit.inventorysystem.model.ProductOption;
@@ -19,7 +18,10 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.ui.Model;
 
 import java.math.BigDecimal;
@@ -35,9 +37,16 @@ public class ProductService {
     @Autowired private ProductOptionRepository productOptionRepository;
     @Autowired private ProductRepository productRepository;
     @Autowired private InventoryStockRepository inventoryStockRepository;
-    @Autowired private ContainerRepository containerRepository;
+    @Autowired private ContainerClosureService containerClosureService;
+    @Autowired private ContainerGraphService containerGraphService;
+    @Autowired private ProductSearchIndex productSearchIndex;
+    @Autowired private BarcodeIndex barcodeIndex;
 
     @Autowired private BarcodeService barcodeService;
+    @Autowired private CatalogCache catalogCache;
+    @Autowired private OccupiedVolumeService occupiedVolumeService;
+    @Autowired private StockLedgerService stockLedgerService;
+    @Autowired private PlatformTransactionManager transactionManager;
     @Autowired @Lazy
     private ContainerService containerService;
 
@@ -49,32 +58,21 @@ public class ProductService {
 
     /**
      * Load categories and build DTO map: categoryId → list of {optionId, optionValue}
+     * Both come prebuilt from the catalog cache.
      */
     public Map<String,Object> prepareAddProductData() {
-        List<OptionCategory> categories = optionCategoryRepository.findAll();
+        List<OptionCategory> categories = catalogCache.categories();
         log.debug("▶ Preparing AddProduct data: {} categories", categories.size());
 
-        Map<Integer,List<Map<String,Object>>> categoryOptionsMap = new HashMap<>();
-        for (OptionCategory cat : categories) {
-            List<Map<String,Object>> dtoList = cat.getOptions().stream()
-                    .map(opt -> {
-                        Map<String,Object> m = new HashMap<>();
-                        m.put("optionId", opt.getOptionId());
-                        m.put("optionValue", opt.getOptionValue());
-                        return m;
-                    })
-                    .collect(Collectors.toList());
-            categoryOptionsMap.put(cat.getOptionCategoryId(), dtoList);
-        }
-
         Map<String,Object> result = new HashMap<>();
         result.put("categories", categories);
-        result.put("categoryOptionsMap", categoryOptionsMap);
+        result.put("categoryOptionsMap", catalogCache.categoryOptionsMap());
         return result;
     }
 
     /**
      * Process selections, create new entities, and return final options list.
+     * Existing categories and options are resolved from the catalog cache (no query per selection).
      */
     public List<ProductOption> buildProductOptions(
             List<String> categoryIds,
@@ -85,6 +83,9 @@ public class ProductService {
     ) {
         List<ProductOption> finalOptions = new ArrayList<>();
         int newCatIndex = 0, newOptIndex = 0;
+        // The cache only knows committed entries, so names created by this request are tracked here
+        Set<String> createdCategoryNames = new HashSet<>();
+        Set<String> createdOptionKeys = new HashSet<>();
 
         for (int i = 0; i < categoryIds.size(); i++) {
             String catId = categoryIds.get(i);
@@ -94,17 +95,18 @@ public class ProductService {
             // Handle new category
             if ("new".equalsIgnoreCase(catId)) {
                 String categoryName = newCategoryNames.get(newCatIndex++);
-                Optional<OptionCategory> existing = optionCategoryRepository.findByCategoryName(categoryName);
+                Optional<OptionCategory> existing = catalogCache.categoryByName(categoryName);
                 if (existing.isPresent()) {
-                    model.addAttribute("error", "A category named \"" + categoryName + "\" already exists.");
-                    return null;
+                    return rejectOptions(model, "A category named \"" + categoryName + "\" already exists.");
+                }
+                if (!createdCategoryNames.add(categoryName.toLowerCase(Locale.ROOT))) {
+                    return rejectOptions(model, "The new category \"" + categoryName + "\" is entered more than once.");
                 }
                 category = new OptionCategory();
                 category.setCategoryName(categoryName);
                 optionCategoryRepository.save(category);
             } else {
-                category = optionCategoryRepository
-                        .findById(Integer.parseInt(catId)).orElse(null);
+                category = catalogCache.category(Integer.parseInt(catId)).orElse(null);
             }
 
             ProductOption option;
@@ -113,10 +115,13 @@ public class ProductService {
             if ("new".equalsIgnoreCase(optId)) {
                 String optionValue = newOptionValues.get(newOptIndex++);
                 Optional<ProductOption> existingOpt =
-                        productOptionRepository.findByOptionValueAndCategory(optionValue, category);
+                        catalogCache.option(category.getOptionCategoryId(), optionValue);
+                String optionKey = category.getOptionCategoryId() + "|" + optionValue.toLowerCase(Locale.ROOT);
                 if (existingOpt.isPresent()) {
-                    model.addAttribute("error", "Option \"" + optionValue + "\" already exists in category \"" + category.getCategoryName() + "\".");
-                    return null;
+                    return rejectOptions(model, "Option \"" + optionValue + "\" already exists in category \"" + category.getCategoryName() + "\".");
+                }
+                if (!createdOptionKeys.add(optionKey)) {
+                    return rejectOptions(model, "The new option \"" + optionValue + "\" is entered more than once in category \"" + category.getCategoryName() + "\".");
                 }
 
                 option = new ProductOption();
@@ -124,8 +129,7 @@ public class ProductService {
                 option.setCategory(category);
                 productOptionRepository.save(option);
             } else {
-                option = productOptionRepository
-                        .findById(Integer.parseInt(optId)).orElse(null);
+                option = catalogCache.option(Integer.parseInt(optId)).orElse(null);
             }
 
             if (option != null) finalOptions.add(option);
@@ -134,10 +138,19 @@ public class ProductService {
         return finalOptions;
     }
 
+    // REST callers pass no model; they only see the null result
+    private static List<ProductOption> rejectOptions(Model model, String error) {
+        if (model != null) {
+            model.addAttribute("error", error);
+        } else {
+            log.debug("Rejected product options: {}", error);
+        }
+        return null;
+    }
+
+    /** One indexed lookup on the option-set signature; the unique column also catches concurrent creates. */
     public boolean isDuplicateProduct(List<ProductOption> options) {
-        return productRepository.findAll().stream()
-                .anyMatch(p -> new HashSet<>(p.getProductOptions())
-                        .equals(new HashSet<>(options)));
+        return productRepository.existsByOptionSignature(Product.optionSignature(options));
     }
 
     public Product createProduct(Product product) {
@@ -145,6 +158,9 @@ public class ProductService {
 
         int checksum = calculateChecksumDigit(product.getProductId());
         product.setBarcodeChecksum(checksum);
+        productSearchIndex.refreshAfterCommit(List.of(product.getProductId()));
+        barcodeIndex.refreshAfterCommit(List.of(product.getProductId()));
+        barcodeService.prerender(countryPrefix + companyPrefix + String.format("%05d", product.getProductId()) + checksum);
 
         return productRepository.save(product); // Update with checksum
     }
@@ -192,7 +208,7 @@ public class ProductService {
             // Generate barcode image
             byte[] barcodeImage = new byte[0];
             try {
-                barcodeImage = barcodeService.generateBarcodeImage(fullBarcode, 300, 80);
+                barcodeImage = barcodeService.getBarcodeImage(fullBarcode, BarcodeService.DEFAULT_WIDTH, BarcodeService.DEFAULT_HEIGHT);
             } catch (Exception e) {
                 log.error("Error generating barcode for product {}", id, e);
             }
@@ -267,6 +283,7 @@ public class ProductService {
             Product product = new Product();
             product.setPrice(request.getPrice()); // Assuming BigDecimal now
             product.setProductOptions(options);
+            product.setOptionSignature(Product.optionSignature(options));
             product.setHeight(heightInCm);
             product.setWidth(widthInCm);
             product.setLength(lengthInCm);
@@ -277,6 +294,11 @@ public class ProductService {
             // Return CREATED status on success
             return ResponseEntity.status(HttpStatus.CREATED).body(Map.of("message", "Product created successfully."));
 
+        } catch (DataIntegrityViolationException e) {
+            // Same options created concurrently: the unique option signature rejected this one
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("Product with the same options already exists");
         } catch (IllegalArgumentException | IllegalStateException e) {
             // ✨ Catch the specific validation exceptions thrown above
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -308,6 +330,14 @@ public class ProductService {
                 return ResponseEntity.badRequest().body("Error creating options");
             }
 
+            // Container parents carry no options and no signature
+            boolean containerParent = containerGraphService.current().isContainer(id);
+            String optionSignature = containerParent ? null : Product.optionSignature(options);
+            if (optionSignature != null && productRepository.existsByOptionSignatureAndProductIdNot(optionSignature, id)) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body("Product with the same options already exists");
+            }
+
             MeasurementUnitEnum unit = MeasurementUnitEnum.valueOf(request.getDistanceUnit().toUpperCase());
             BigDecimal factor = unit.getToBaseFactor();
 
@@ -317,15 +347,25 @@ public class ProductService {
             BigDecimal volumeInCm3 = heightInCm.multiply(widthInCm).multiply(lengthInCm);
 
             Product product = existingProduct.get();
+            BigDecimal oldVolume = product.getVolume();
             product.setPrice(request.getPrice());
             product.setProductOptions(options);
+            product.setOptionSignature(optionSignature);
             product.setHeight(heightInCm);
             product.setWidth(widthInCm);
             product.setLength(lengthInCm);
             product.setVolume(volumeInCm3);
             productRepository.save(product);
+            // Stock already holding this product now takes more/less room
+            occupiedVolumeService.onProductVolumeChanged(product.getProductId(), oldVolume, volumeInCm3);
+            // The options may be the end of container chains
+            containerGraphService.rebuildAfterCommit();
+            productSearchIndex.refreshAfterCommit(List.of(product.getProductId()));
 
             return ResponseEntity.ok().build();
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("Product with the same options already exists");
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body("Error updating product: " + e.getMessage());
@@ -345,29 +385,24 @@ public class ProductService {
         try {
             // 1. Check if the product exists
             if (!productRepository.existsById(id)) {
-                System.out.println("Product with ID " + id + " not found for deletion.");
+                log.debug("Product with ID {} not found for deletion", id);
                 return ResponseEntity.notFound().build(); // 404 Not Found
             }
 
-            // 2. --- Chain Reaction Logic: Find containers where this product is the CHILD ---
-            // Find all containers where child_product_id = :id
-            List<Container> containersReferencingAsChild = containerRepository.findByChildProduct_ProductId(id);
+            // 2. --- Chain Reaction Logic: Find every container holding this product, at any depth ---
+            // The closure table lists them in one query, farthest first, so each deletion succeeds.
+            List<Integer> holdingParentProductIds = containerClosureService.findAncestorsFarthestFirst(id);
 
-            if (!containersReferencingAsChild.isEmpty()) {
-                System.out.println("Product ID " + id + " is a child in " + containersReferencingAsChild.size() + " container(s). Initiating chain reaction deletion.");
-                // 3. For each container referencing this product as child, delete the container (and its parent product)
+            if (!holdingParentProductIds.isEmpty()) {
+                log.debug("Product ID {} is held by {} container(s). Initiating chain reaction deletion.", id, holdingParentProductIds.size());
+                // 3. Delete each of those containers (and its parent product)
                 // This will trigger the JPA cascade (Container -> parentProduct) and DB cascade (parent_product_id ON DELETE CASCADE)
-                for (Container container : containersReferencingAsChild) {
-                    Integer parentProductId = container.getParentProduct().getProductId();
-                    System.out.println("Deleting container with parent product ID: " + parentProductId);
-                    // --- CRITICAL: Call ContainerService to handle potential further chain reactions ---
-                    // This ensures if the parent product is itself a child elsewhere, that chain is also handled.
-                    containerService.deleteContainer(parentProductId); // Use parent product ID
-                    // Note: containerService.deleteContainer should handle the actual deletion of the container entity
-                    // and its parent product, leveraging JPA/DB cascades for that direct relationship.
+                for (Integer parentProductId : holdingParentProductIds) {
+                    ResponseEntity<?> containerResult = containerService.deleteContainer(parentProductId);
+                    if (!containerResult.getStatusCode().is2xxSuccessful()) {
+                        return containerResult;
+                    }
                 }
-            } else {
-                System.out.println("Product ID " + id + " is not a child product in any container.");
             }
 
             // 4. --- Direct Deletion ---
@@ -375,22 +410,28 @@ public class ProductService {
             // If it was a parent container product, the JPA cascade (Product.container) and DB cascade (parent_product_id)
             // should handle deleting the Container and then the parent Product.
             // If it was a base product, it should be deleted now.
-            System.out.println("Deleting product with ID: " + id);
-            productRepository.deleteById(id);
-            System.out.println("Product with ID " + id + " deleted successfully.");
+            // Its stock rows go with it (JPA cascade), so their volume and positions leave the inventories in the same transaction
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                    productRepository.findById(id).ifPresent(product -> {
+                        occupiedVolumeService.onProductDeleted(id, product.getVolume());
+                        stockLedgerService.onProductDeleted(id);
+                        productRepository.delete(product);
+                    }));
+            containerGraphService.rebuildAfterCommit(); // a container parent takes its container with it
+            productSearchIndex.refreshAfterCommit(List.of(id));
+            barcodeIndex.refreshAfterCommit(List.of(id));
+            log.info("Product with ID {} deleted", id);
 
             return ResponseEntity.ok().build(); // 200 OK
 
         } catch (DataIntegrityViolationException ex) {
             // 5. Handle database constraint violations (e.g., referenced by InventoryStock, OrderItem)
-            System.err.println("DataIntegrityViolationException deleting product ID " + id + ": " + ex.getMessage());
-            ex.printStackTrace();
+            log.warn("Cannot delete product ID {}: {}", id, ex.getMessage());
             return ResponseEntity.status(HttpStatus.CONFLICT)
                     .body(Map.of("error", "Cannot delete product due to existing references (e.g., in inventory stock or orders)."));
         } catch (Exception ex) {
             // 6. Handle any other unexpected errors
-            System.err.println("Error deleting product with ID " + id + ": " + ex.getMessage());
-            ex.printStackTrace();
+            log.error("Error deleting product with ID {}", id, ex);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Map.of("error", "An unexpected error occurred while deleting the product."));
         }
@@ -6,12 +6,17 @@ import com.speedit.inventorysystem.dto.RouteDetails;
 import com.speedit.inventorysystem.dto.ors.OptimizationRequest;
 import com.speedit.inventorysystem.dto.ors.OptimizationResponse;
 import com.speedit.inventorysystem.dto.ors.OrsRouteResponse;
+import com.speedit.inventorysystem.service.routing.OrsEndpoint;
+import com.speedit.inventorysystem.service.routing.OrsGateway;
+import com.speedit.inventorysystem.service.routing.OrsRequestException;
+import com.speedit.inventorysystem.service.routing.RouteEstimator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -20,52 +25,62 @@ import java.util.stream.Collectors;
 @Service
 public class RoutingService {
 
+    private static final Logger log = LoggerFactory.getLogger(RoutingService.class);
+
     @Autowired
     private WebClient webClient;
+    // Rate limiting, bulkhead, timeouts and circuit breaking for every ORS call
+    @Autowired
+    private OrsGateway orsGateway;
+    // Haversine-based answers used when the gateway reports ORS as unavailable
+    @Autowired
+    private RouteEstimator routeEstimator;
     @Value("${ors.api.key}")
     private String orsApiKey;
+    // Scheme + host of the ORS API; point it at a local stand-in to run routing offline
+    @Value("${ors.api.base-url:https://api.openrouteservice.org}")
+    private String orsBaseUrl;
 
     /**
      * Gets simple distance and duration.
+     * Falls back to a straight-line estimate when ORS is unavailable or its answer has no route summary.
      */
     public RouteDetails getRouteDetails(Coordinates start, Coordinates end) {
-        JsonNode response = webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .scheme("https")
-                        .host("api.openrouteservice.org")
-                        .path("/v2/directions/driving-car")
-                        .queryParam("api_key", orsApiKey)
-                        .queryParam("start", start.getLongitude() + "," + start.getLatitude())
-                        .queryParam("end", end.getLongitude() + "," + end.getLatitude())
-                        .build())
-                .retrieve()
-                .bodyToMono(JsonNode.class)
-                .block();
-
-        JsonNode summary = response.get("features").get(0).get("properties").get("summary");
-        double distance = summary.get("distance").asDouble();
-        double duration = summary.get("duration").asDouble();
-        return new RouteDetails(distance, duration);
+        return orsGateway.execute(OrsEndpoint.DIRECTIONS, () -> webClient.get()
+                        .uri(orsBaseUrl + "/v2/directions/driving-car", uriBuilder -> uriBuilder
+                                .queryParam("api_key", orsApiKey)
+                                .queryParam("start", start.getLongitude() + "," + start.getLatitude())
+                                .queryParam("end", end.getLongitude() + "," + end.getLatitude())
+                                .build())
+                        .retrieve()
+                        .bodyToMono(JsonNode.class))
+                .map(response -> {
+                    JsonNode summary = response.path("features").path(0).path("properties").path("summary");
+                    if (!summary.path("distance").isNumber() || !summary.path("duration").isNumber()) {
+                        log.warn("ORS directions response has no route summary, using degraded estimate");
+                        return null; // falls through to the estimate below
+                    }
+                    return new RouteDetails(summary.get("distance").asDouble(), summary.get("duration").asDouble());
+                })
+                .orElseGet(() -> routeEstimator.estimateRoute(start, end));
     }
 
     /**
      * Gets the full route data needed for interpolation.
+     * Falls back to a straight two-point route when ORS is unavailable.
      */
     public OrsRouteResponse getFullRouteData(Coordinates start, Coordinates end) {
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder
-                        .scheme("https")
-                        .host("api.openrouteservice.org")
-                        .path("/v2/directions/driving-car")
-                        .queryParam("api_key", orsApiKey)
-                        .queryParam("start", start.getLongitude() + "," + start.getLatitude())
-                        .queryParam("end", end.getLongitude() + "," + end.getLatitude())
-                        .queryParam("extras", "[\"time\"]") // Request time for each point
-                        .queryParam("geometry_format", "geojson")
-                        .build())
-                .retrieve()
-                .bodyToMono(OrsRouteResponse.class)
-                .block();
+        return orsGateway.execute(OrsEndpoint.DIRECTIONS, () -> webClient.get()
+                        .uri(orsBaseUrl + "/v2/directions/driving-car", uriBuilder -> uriBuilder
+                                .queryParam("api_key", orsApiKey)
+                                .queryParam("start", start.getLongitude() + "," + start.getLatitude())
+                                .queryParam("end", end.getLongitude() + "," + end.getLatitude())
+                                .queryParam("extras", "[\"time\"]") // Request time for each point
+                                .queryParam("geometry_format", "geojson")
+                                .build())
+                        .retrieve()
+                        .bodyToMono(OrsRouteResponse.class))
+                .orElseGet(() -> routeEstimator.estimateFullRoute(start, end));
     }
 
     /**
@@ -146,37 +161,38 @@ public class RoutingService {
 
     /**
      * Helper function to call the ORS API and get the city (locality) for a coordinate.
+     * Returns null when ORS is unavailable, rejects the request or has no locality for the point.
      */
     private String getCityFromCoordinates(Coordinates coords) {
+        JsonNode response;
         try {
-            JsonNode response = webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .scheme("https")
-                            .host("api.openrouteservice.org")
-                            .path("/geocode/reverse")
-                            .queryParam("api_key", orsApiKey)
-                            .queryParam("point.lon", coords.getLongitude())
-                            .queryParam("point.lat", coords.getLatitude())
-                            .queryParam("layers", "locality") // <-- Ask specifically for the city
-                            .queryParam("size", 1)
-                            .build())
-                    .retrieve()
-                    .bodyToMono(JsonNode.class)
-                    .block(); // Blocking for simplicity, consistent with other methods
-
-            if (response != null && response.has("features") && response.get("features").size() > 0) {
-                JsonNode properties = response.get("features").get(0).get("properties");
-
-                // Check if the "locality" field (city) exists and return it
-                if (properties.has("locality")) {
-                    return properties.get("locality").asText();
-                }
+            response = orsGateway.execute(OrsEndpoint.GEOCODE, () -> webClient.get()
+                            .uri(orsBaseUrl + "/geocode/reverse", uriBuilder -> uriBuilder
+                                    .queryParam("api_key", orsApiKey)
+                                    .queryParam("point.lon", coords.getLongitude())
+                                    .queryParam("point.lat", coords.getLatitude())
+                                    .queryParam("layers", "locality") // <-- Ask specifically for the city
+                                    .queryParam("size", 1)
+                                    .build())
+                            .retrieve()
+                            .bodyToMono(JsonNode.class))
+                    .orElse(null);
+        } catch (OrsRequestException e) {
+            // A city is optional here; only the routing callers need to see a rejected request
+            log.warn("Reverse geocoding {},{} was rejected: {}", coords.getLatitude(), coords.getLongitude(), e.getMessage());
+            return null;
+        }
+
+        if (response != null && response.has("features") && response.get("features").size() > 0) {
+            JsonNode properties = response.get("features").get(0).get("properties");
+
+            // Check if the "locality" field (city) exists and return it
+            if (properties != null && properties.has("locality")) {
+                return properties.get("locality").asText();
             }
-            return null; // No city found
-        } catch (Exception e) {
-            // Log the error (e.g., e.printStackTrace())
-            return null; // Return null on API error
+            log.debug("No locality found for {},{}", coords.getLatitude(), coords.getLongitude());
         }
+        return null; // No city found, or ORS unavailable (the gateway has logged why)
     }
 
     /**
@@ -247,6 +263,7 @@ public class RoutingService {
     /**
      * Private helper to build the request and call the ORS Optimization API.
      * The first location in the list is always the start and end point.
+     * Falls back to a nearest-neighbour estimate when ORS is unavailable.
      */
     private OptimizationResponse getOptimizedRoute(List<Coordinates> locations) {
         if (locations == null || locations.isEmpty()) {
@@ -276,13 +293,13 @@ public class RoutingService {
         OptimizationRequest requestBody = new OptimizationRequest(jobs, vehicles);
 
         // Call the ORS Optimization API
-        return webClient.post()
-                .uri("https://api.openrouteservice.org/v2/optimization")
-                .header("Authorization", orsApiKey)
-                .contentType(MediaType.APPLICATION_JSON)
-                .bodyValue(requestBody)
-                .retrieve()
-                .bodyToMono(OptimizationResponse.class)
-                .block();
+        return orsGateway.execute(OrsEndpoint.OPTIMIZATION, () -> webClient.post()
+                        .uri(orsBaseUrl + "/v2/optimization")
+                        .header("Authorization", orsApiKey)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(requestBody)
+                        .retrieve()
+                        .bodyToMono(OptimizationResponse.class))
+                .orElseGet(() -> routeEstimator.estimateOptimizedRoute(locations));
     }
 }
\ No newline at end of file
@@ -0,0 +1,196 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.event.StockChangedEvent;
+import com.speedit.inventorysystem.repository.InventoryStockBulkRepository;
+import com.speedit.inventorysystem.repository.StockCompactionRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps inventory_stock close to one row per live position (inventory, product, order item).
+ *
+ * Partial unloads, deliveries and emptied rows leave rows behind that every stock aggregate still
+ * scans. This job, run nightly and on demand, works in small batches, each in its own short transaction:
+ * 1. delivered rows (no inventory) and empty rows (amount 0) are archived to inventory_stock_history
+ *    and deleted;
+ * 2. positions held by several rows are merged into their oldest row; the others are archived as
+ *    MERGED and deleted.
+ * Rows referenced by stock movements are left alone. Amounts per inventory don't change, so the
+ * occupied volume is unaffected; monitoring clients get a StockChangedEvent per batch.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockCompactionService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockCompactionService.class);
+
+    private final StockCompactionRepository compactionRepository;
+    private final InventoryStockBulkRepository bulkStockRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${inventory.stock-compaction.batch-size:500}")
+    private int batchSize;
+
+    /** What one run did. Bytes are estimated from the table's average row length. */
+    public record CompactionReport(long rowsBefore, long rowsAfter, long archivedDelivered, long archivedEmpty,
+                                   long mergedRows, long mergedPositions, long approxBytesReclaimed, long durationMs) {
+    }
+
+    @Scheduled(cron = "${inventory.stock-compaction.cron:0 30 3 * * *}")
+    public void scheduledCompaction() {
+        CompactionReport report = compact();
+        log.info("Stock compaction: {} -> {} rows ({} delivered, {} empty archived; {} rows merged into {} positions), ~{} bytes reclaimed in {} ms",
+                report.rowsBefore(), report.rowsAfter(), report.archivedDelivered(), report.archivedEmpty(),
+                report.mergedRows(), report.mergedPositions(), report.approxBytesReclaimed(), report.durationMs());
+    }
+
+    /** One full pass; concurrent calls wait for the running one. */
+    public synchronized CompactionReport compact() {
+        long started = System.currentTimeMillis();
+        long rowLength = compactionRepository.averageRowLength();
+        long rowsBefore = compactionRepository.countRows();
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        // 1. Delivered and empty rows
+        long delivered = 0;
+        long empty = 0;
+        while (true) {
+            List<Object[]> rows = tx.execute(status -> {
+                List<Object[]> locked = compactionRepository.lockArchivableRows(batchSize);
+                if (!locked.isEmpty()) {
+                    List<Integer> stockIds = locked.stream().map(row -> (Integer) row[0]).toList();
+                    compactionRepository.archive(stockIds, null);
+                    compactionRepository.delete(stockIds);
+                }
+                return locked;
+            });
+            if (rows == null || rows.isEmpty()) {
+                break;
+            }
+
+            Map<Integer, Set<Integer>> removed = new HashMap<>();
+            Set<Integer> productIds = new HashSet<>();
+            for (Object[] row : rows) {
+                productIds.add((Integer) row[2]);
+                if (row[1] == null) {
+                    delivered++;
+                } else {
+                    empty++;
+                    removed.computeIfAbsent((Integer) row[1], id -> new HashSet<>()).add((Integer) row[0]);
+                }
+            }
+            eventPublisher.publishEvent(new StockChangedEvent(Map.of(), removed, productIds));
+            if (rows.size() < batchSize) {
+                break;
+            }
+        }
+
+        // 2. Duplicate positions
+        long mergedRows = 0;
+        long mergedPositions = 0;
+        while (true) {
+            MergeBatch batch = tx.execute(status -> mergeBatch());
+            if (batch == null || batch.mergedRows == 0) {
+                break; // nothing left, or only rows that can't be merged
+            }
+            mergedRows += batch.mergedRows;
+            mergedPositions += batch.positions;
+            eventPublisher.publishEvent(new StockChangedEvent(batch.upserted, batch.removed, batch.productIds));
+        }
+
+        long rowsAfter = compactionRepository.countRows();
+        return new CompactionReport(rowsBefore, rowsAfter, delivered, empty, mergedRows, mergedPositions,
+                Math.max(0, rowsBefore - rowsAfter) * rowLength, System.currentTimeMillis() - started);
+    }
+
+    // Runs in the caller's transaction
+    private MergeBatch mergeBatch() {
+        List<Object[]> positions = compactionRepository.findDuplicatePositions(batchSize);
+        MergeBatch batch = new MergeBatch();
+        if (positions.isEmpty()) {
+            return batch;
+        }
+
+        Set<List<Integer>> wanted = new HashSet<>();
+        Set<Integer> inventoryIds = new HashSet<>();
+        Set<Integer> productIds = new HashSet<>();
+        for (Object[] position : positions) {
+            wanted.add(Arrays.asList((Integer) position[0], (Integer) position[1], (Integer) position[2]));
+            inventoryIds.add((Integer) position[0]);
+            productIds.add((Integer) position[1]);
+        }
+
+        // Rows of the wanted positions, oldest first (the query over-fetches other positions of these products)
+        Map<List<Integer>, List<Object[]>> rowsByPosition = new LinkedHashMap<>();
+        for (Object[] row : compactionRepository.lockPositionRows(inventoryIds, productIds)) {
+            List<Integer> position = Arrays.asList((Integer) row[1], (Integer) row[2], (Integer) row[3]);
+            if (wanted.contains(position)) {
+                rowsByPosition.computeIfAbsent(position, p -> new ArrayList<>()).add(row);
+            }
+        }
+
+        Map<Integer, Integer> keeperByStockId = new LinkedHashMap<>();
+        List<Integer> keeperIds = new ArrayList<>();
+        List<Integer> keeperDeltas = new ArrayList<>();
+        for (Map.Entry<List<Integer>, List<Object[]>> entry : rowsByPosition.entrySet()) {
+            List<Integer> position = entry.getKey();
+            List<Object[]> rows = entry.getValue();
+            Integer keeperId = (Integer) rows.get(0)[0];
+            int merged = 0;
+            int delta = 0;
+            for (Object[] row : rows.subList(1, rows.size())) {
+                if (!(Boolean) row[5]) { // referenced rows stay
+                    keeperByStockId.put((Integer) row[0], keeperId);
+                    merged++;
+                    delta += (Integer) row[4];
+                    batch.removed.computeIfAbsent(position.get(0), id -> new HashSet<>()).add((Integer) row[0]);
+                }
+            }
+            if (merged == 0) {
+                continue;
+            }
+            if (delta != 0) {
+                keeperIds.add(keeperId);
+                keeperDeltas.add(delta);
+            }
+            batch.positions++;
+            batch.upserted.computeIfAbsent(position.get(0), id -> new HashSet<>()).add(keeperId);
+            batch.productIds.add(position.get(1));
+        }
+        if (keeperByStockId.isEmpty()) {
+            return batch;
+        }
+
+        bulkStockRepository.addToAmounts(keeperIds, keeperDeltas);
+        compactionRepository.archive(keeperByStockId.keySet(), "MERGED");
+        compactionRepository.setMergedInto(keeperByStockId);
+        compactionRepository.delete(keeperByStockId.keySet());
+        batch.mergedRows = keeperByStockId.size();
+        return batch;
+    }
+
+    private static class MergeBatch {
+        private long mergedRows;
+        private long positions;
+        private final Map<Integer, Set<Integer>> upserted = new HashMap<>();
+        private final Map<Integer, Set<Integer>> removed = new HashMap<>();
+        private final Set<Integer> productIds = new HashSet<>();
+    }
+}
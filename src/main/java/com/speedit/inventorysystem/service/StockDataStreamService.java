@@ -0,0 +1,194 @@
+package com.speedit.inventorysystem.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.speedit.inventorysystem.model.Product;
+import com.speedit.inventorysystem.repository.InventoryStockRepository;
+import com.speedit.inventorysystem.repository.OrderItemRepository;
+import com.speedit.inventorysystem.repository.OrderRepository;
+import com.speedit.inventorysystem.repository.ProductRepository;
+import com.speedit.inventorysystem.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Writes the stock monitoring dataset of one inventory (same shape as StockDataJson) straight
+ * to an output stream, so memory use doesn't grow with the inventory size.
+ *
+ * - Stocks, users, orders and order items come from read-only scalar queries streamed row by row.
+ * - Products need entity graphs for their info string, so they are read in keyset-paged chunks
+ *   and the persistence context is cleared after each chunk.
+ * Everything runs in one read-only transaction so the sections are consistent with each other.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockDataStreamService {
+
+    private static final int PRODUCT_CHUNK_SIZE = 200;
+
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+    private final InventoryStockRepository inventoryStockRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ContainerService containerService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public void writeInventoryStockData(Integer inventoryId, OutputStream out) throws IOException {
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET); // the servlet container owns the stream
+            readOnlyTx.executeWithoutResult(status -> {
+                try {
+                    gen.writeStartObject();
+                    writeProducts(gen, inventoryId);
+                    writeInventoryStocks(gen, inventoryId);
+                    writeUsers(gen, inventoryId);
+                    writeOrders(gen, inventoryId);
+                    writeOrderItems(gen, inventoryId);
+                    gen.writeEndObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // ----------------- Sections -----------------
+
+    private void writeProducts(JsonGenerator gen, Integer inventoryId) throws IOException {
+        gen.writeArrayFieldStart("products");
+        int lastProductId = 0;
+        List<Product> chunk;
+        do {
+            chunk = productRepository.findStockedInInventoryAfter(
+                    inventoryId, lastProductId, PageRequest.of(0, PRODUCT_CHUNK_SIZE));
+            Map<Integer, String> productInfo = containerService.buildProductInfoStrings(
+                    chunk.stream().map(Product::getProductId).toList());
+            for (Product p : chunk) {
+                gen.writeStartObject();
+                gen.writeNumberField("productId", p.getProductId());
+                gen.writeStringField("productInfo", productInfo.get(p.getProductId()));
+                writeDecimalField(gen, "price", p.getPrice());
+                gen.writeEndObject();
+                lastProductId = p.getProductId();
+            }
+            entityManager.clear(); // read-only transaction, nothing to flush
+            gen.flush();
+        } while (chunk.size() == PRODUCT_CHUNK_SIZE);
+        gen.writeEndArray();
+    }
+
+    private void writeInventoryStocks(JsonGenerator gen, Integer inventoryId) throws IOException {
+        gen.writeArrayFieldStart("inventory-stocks");
+        try (Stream<Object[]> rows = inventoryStockRepository.streamStockRowsByInventoryId(inventoryId)) {
+            for (Iterator<Object[]> it = rows.iterator(); it.hasNext(); ) {
+                Object[] row = it.next();
+                gen.writeStartObject();
+                writeIntField(gen, "inventoryStockId", row[0]);
+                writeIntField(gen, "inventoryId", row[1]);
+                writeIntField(gen, "productId", row[2]);
+                writeIntField(gen, "orderItemId", row[3]);
+                writeIntField(gen, "amount", row[4]);
+                writeIntField(gen, "employeeId", row[5]);
+                gen.writeEndObject();
+            }
+        }
+        gen.writeEndArray();
+        gen.flush();
+    }
+
+    private void writeUsers(JsonGenerator gen, Integer inventoryId) throws IOException {
+        gen.writeArrayFieldStart("users");
+        try (Stream<Object[]> rows = userRepository.streamUserRowsByInventoryId(inventoryId)) {
+            for (Iterator<Object[]> it = rows.iterator(); it.hasNext(); ) {
+                Object[] row = it.next();
+                gen.writeStartObject();
+                writeIntField(gen, "userId", row[0]);
+                gen.writeStringField("name", (String) row[1]);
+                gen.writeEndObject();
+            }
+        }
+        gen.writeEndArray();
+        gen.flush();
+    }
+
+    private void writeOrders(JsonGenerator gen, Integer inventoryId) throws IOException {
+        gen.writeArrayFieldStart("orders");
+        try (Stream<Object[]> rows = orderRepository.streamOrderRowsByInventoryId(inventoryId)) {
+            for (Iterator<Object[]> it = rows.iterator(); it.hasNext(); ) {
+                Object[] row = it.next();
+                gen.writeStartObject();
+                writeIntField(gen, "orderId", row[0]);
+                gen.writeStringField("status", row[1] != null ? ((Enum<?>) row[1]).name() : null);
+                writeIntField(gen, "clientId", row[2]);
+                writeIntField(gen, "supervisorId", row[3]);
+                gen.writeStringField("deliveryLocation", (String) row[4]);
+                writeIntField(gen, "totalOrderItems", row[5]);
+                writeIntField(gen, "totalOrderItemsQuantities", row[6]);
+                gen.writeEndObject();
+            }
+        }
+        gen.writeEndArray();
+        gen.flush();
+    }
+
+    private void writeOrderItems(JsonGenerator gen, Integer inventoryId) throws IOException {
+        gen.writeArrayFieldStart("order-items");
+        try (Stream<Object[]> rows = orderItemRepository.streamOrderItemRowsByInventoryId(inventoryId)) {
+            for (Iterator<Object[]> it = rows.iterator(); it.hasNext(); ) {
+                Object[] row = it.next();
+                gen.writeStartObject();
+                writeIntField(gen, "orderItemId", row[0]);
+                writeIntField(gen, "orderId", row[1]);
+                writeIntField(gen, "productId", row[2]);
+                writeIntField(gen, "quantity", row[3]);
+                writeIntField(gen, "discount", row[4]);
+                gen.writeEndObject();
+            }
+        }
+        gen.writeEndArray();
+        gen.flush();
+    }
+
+    // ----------------- Helpers -----------------
+
+    /** Writes an integral column (Integer/Long) or null. */
+    private static void writeIntField(JsonGenerator gen, String name, Object value) throws IOException {
+        if (value == null) {
+            gen.writeNullField(name);
+        } else {
+            gen.writeNumberField(name, ((Number) value).longValue());
+        }
+    }
+
+    private static void writeDecimalField(JsonGenerator gen, String name, BigDecimal value) throws IOException {
+        if (value == null) {
+            gen.writeNullField(name);
+        } else {
+            gen.writeNumberField(name, value);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.enums.ImportStatus;
+import com.speedit.inventorysystem.model.StockImport;
+import com.speedit.inventorysystem.repository.InventoryRepository;
+import com.speedit.inventorysystem.repository.ProductRepository;
+import com.speedit.inventorysystem.repository.StockImportRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Streamed CSV stock import for initial migrations and large corrections.
+ *
+ * Lines are {@code inventoryId,productId,amount} (an optional header line is skipped) and are added
+ * to the available stock like the load form does. The body is read line by line and loaded in chunks,
+ * each in its own transaction through {@link InventoryStockService#loadAvailableStock}, so memory
+ * and transaction size stay bounded whatever the file size. Lines are validated against product and
+ * inventory ID sets loaded once per import; invalid lines are skipped and reported.
+ *
+ * Progress lives in stock_import and advances in the same transaction as each chunk. A failed or
+ * interrupted import is resumed by sending the same file again with its import ID: the lines of
+ * committed chunks are skipped, so no line is loaded twice.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockImportService.class);
+
+    private final StockImportRepository stockImportRepository;
+    private final InventoryStockService inventoryStockService;
+    private final ProductRepository productRepository;
+    private final InventoryRepository inventoryRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${stock.import.chunk-size:1000}")
+    private int defaultChunkSize;
+
+    @Value("${stock.import.max-reported-errors:1000}")
+    private int maxReportedErrors;
+
+    /** A rejected line; {@code line} is the 1-based line number in the file. */
+    public record LineError(long line, String message) {
+    }
+
+    /** Outcome of one run. Counts cover the whole import; {@code errors} only this run (capped). */
+    public record ImportReport(Long importId, ImportStatus status, long committedLines, long loadedLines,
+                               long rejectedLines, List<LineError> errors, String failure) {
+    }
+
+    public Optional<StockImport> findImport(Long importId) {
+        return stockImportRepository.findById(importId);
+    }
+
+    /**
+     * Imports (or, with {@code resumeImportId}, resumes importing) a CSV stream.
+     *
+     * @throws IllegalArgumentException if the import to resume doesn't exist
+     * @throws IllegalStateException    if it already completed, or another request resumed it meanwhile
+     */
+    public ImportReport importCsv(InputStream csv, Long resumeImportId, Integer chunkSize) {
+        StockImport stockImport = resumeImportId != null ? resume(resumeImportId) : start();
+        Long importId = stockImport.getImportId();
+        int linesPerChunk = chunkSize != null && chunkSize > 0 ? chunkSize : defaultChunkSize;
+
+        // ID sets loaded once, so validating a line costs no query
+        BitSet productIds = new BitSet();
+        productRepository.findAllProductIds().forEach(productIds::set);
+        BitSet inventoryIds = new BitSet();
+        inventoryRepository.findAllInventoryIds().forEach(inventoryIds::set);
+
+        Chunk chunk = new Chunk(stockImport.getCommittedLines());
+        List<LineError> errors = new ArrayList<>();
+        long lineNo = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(csv, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (lineNo <= stockImport.getCommittedLines()) {
+                    continue; // committed by an earlier run
+                }
+                String error = chunk.add(lineNo, line, productIds, inventoryIds);
+                if (error != null && errors.size() < maxReportedErrors) {
+                    errors.add(new LineError(lineNo, error));
+                }
+                if (chunk.lineCount() >= linesPerChunk) {
+                    commit(importId, chunk, lineNo);
+                    chunk = new Chunk(lineNo);
+                }
+            }
+            commit(importId, chunk, lineNo);
+            stockImportRepository.updateStatus(importId, ImportStatus.COMPLETED, null);
+        } catch (ConcurrentResumeException e) {
+            throw e; // the other request owns the import now, so its status is left alone
+        } catch (IOException | RuntimeException e) {
+            String failure = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            log.warn("Stock import {} failed after line {}, resumable from line {}", importId, lineNo, chunk.startLine + 1, e);
+            stockImportRepository.updateStatus(importId, ImportStatus.FAILED,
+                    failure.length() > 500 ? failure.substring(0, 500) : failure);
+        }
+
+        StockImport done = stockImportRepository.findById(importId).orElseThrow();
+        return new ImportReport(importId, done.getStatus(), done.getCommittedLines(), done.getLoadedLines(),
+                done.getRejectedLines(), errors, done.getLastError());
+    }
+
+    private StockImport start() {
+        StockImport stockImport = new StockImport();
+        stockImport.setStatus(ImportStatus.RUNNING);
+        return stockImportRepository.save(stockImport);
+    }
+
+    private StockImport resume(Long importId) {
+        StockImport stockImport = stockImportRepository.findById(importId)
+                .orElseThrow(() -> new IllegalArgumentException("Import not found with id: " + importId));
+        if (stockImport.getStatus() == ImportStatus.COMPLETED) {
+            throw new IllegalStateException("Import " + importId + " already completed");
+        }
+        stockImportRepository.updateStatus(importId, ImportStatus.RUNNING, null);
+        return stockImport;
+    }
+
+    // Loads one chunk and records it as committed, in one transaction
+    private void commit(Long importId, Chunk chunk, long lastLine) {
+        if (lastLine == chunk.startLine) {
+            return;
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            chunk.amounts.forEach(inventoryStockService::loadAvailableStock);
+            if (stockImportRepository.advance(importId, chunk.startLine, lastLine, chunk.loaded, chunk.rejected) != 1) {
+                throw new ConcurrentResumeException("Import " + importId + " is being resumed by another request");
+            }
+        });
+        log.info("Stock import {}: committed through line {}", importId, lastLine);
+    }
+
+    /** Another request committed lines of the same import since this one read its progress. */
+    private static class ConcurrentResumeException extends IllegalStateException {
+        ConcurrentResumeException(String message) {
+            super(message);
+        }
+    }
+
+    /** Lines after {@code startLine}, merged per inventory and product. */
+    private static class Chunk {
+        private final long startLine;
+        private final Map<Integer, Map<Integer, Integer>> amounts = new LinkedHashMap<>();
+        private long loaded;
+        private long rejected;
+        private long skipped; // header and blank lines
+        private boolean headerChecked;
+
+        Chunk(long startLine) {
+            this.startLine = startLine;
+            this.headerChecked = startLine > 0;
+        }
+
+        long lineCount() {
+            return loaded + rejected + skipped;
+        }
+
+        /** Adds a line; returns why it was rejected, or null. */
+        String add(long lineNo, String line, BitSet productIds, BitSet inventoryIds) {
+            String[] fields = line.split(",", -1);
+            boolean header = !headerChecked && !fields[0].trim().replace("\"", "").matches("-?\\d+");
+            headerChecked = true;
+            if (header || line.isBlank()) {
+                skipped++;
+                return null;
+            }
+
+            String error = null;
+            if (fields.length != 3) {
+                error = "Expected inventoryId,productId,amount";
+            } else {
+                try {
+                    int inventoryId = Integer.parseInt(fields[0].trim().replace("\"", ""));
+                    int productId = Integer.parseInt(fields[1].trim().replace("\"", ""));
+                    int amount = Integer.parseInt(fields[2].trim().replace("\"", ""));
+                    if (inventoryId < 0 || !inventoryIds.get(inventoryId)) {
+                        error = "Unknown inventory " + inventoryId;
+                    } else if (productId < 0 || !productIds.get(productId)) {
+                        error = "Unknown product " + productId;
+                    } else if (amount < 0) {
+                        error = "Amount must be ≥ 0";
+                    } else {
+                        amounts.computeIfAbsent(inventoryId, id -> new HashMap<>()).merge(productId, amount, Math::addExact);
+                    }
+                } catch (NumberFormatException e) {
+                    error = "Not a number: " + line;
+                } catch (ArithmeticException e) {
+                    error = "Amount too large";
+                }
+            }
+
+            if (error != null) {
+                rejected++;
+            } else {
+                loaded++;
+            }
+            return error;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.enums.LedgerReason;
+import com.speedit.inventorysystem.repository.InventoryStockRepository;
+import com.speedit.inventorysystem.repository.StockLedgerRepository;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only history of stock changes, answering "what was where at time T".
+ *
+ * - Every code path that changes stock calls {@link #record} inside its transaction with the signed
+ *   delta per position (inventory, product, order item). Deltas are merged per transaction and
+ *   written as one JDBC batch just before commit, so a rolled-back change leaves no entries.
+ * - A scheduled job folds the ledger into compact snapshots (non-zero positions up to an entry).
+ *   Entries younger than the snapshot lag are left out, so transactions still committing when the
+ *   snapshot is taken are not skipped.
+ * - {@link #positionsAsOf} replays the entries after the nearest snapshot on top of its positions.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockLedgerService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockLedgerService.class);
+
+    // Transaction resource key for the pending entries of the current transaction
+    private static final Object PENDING_ENTRIES_KEY = new Object();
+
+    private final StockLedgerRepository ledgerRepository;
+    private final InventoryStockRepository inventoryStockRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${stock.ledger.snapshot-lag-seconds:300}")
+    private long snapshotLagSeconds;
+
+    @Value("${stock.ledger.snapshot-retain:48}")
+    private int snapshotRetain;
+
+    /** Quantity of one position at a point in time. */
+    public record Position(Integer inventoryId, Integer productId, Integer orderItemId, long amount) {
+    }
+
+    // ----------------- Writes -----------------
+
+    /**
+     * Records that the amount held at a position changed by {@code quantityDelta}.
+     * Must run inside the transaction that changes the stock rows.
+     *
+     * @param orderItemId null for available stock
+     * @param movementId  the stock movement behind the change, if any
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Integer inventoryId, Integer productId, Integer orderItemId, int quantityDelta,
+                       LedgerReason reason, Long movementId) {
+        if (inventoryId == null || quantityDelta == 0) {
+            return; // stock delivered to a client has no inventory; the DELIVERED entry is on the source side
+        }
+        List<Object> key = Arrays.asList(inventoryId, productId, orderItemId, reason, movementId);
+        pendingEntries().merge(key, quantityDelta, Integer::sum);
+    }
+
+    /**
+     * A product is about to be deleted and its stock rows with it (JPA cascade): every position it
+     * still holds goes to zero. Call before the delete, in the same transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onProductDeleted(Integer productId) {
+        for (Object[] row : inventoryStockRepository.sumAmountByPositionForProduct(productId)) {
+            int amount = ((Number) row[2]).intValue();
+            record((Integer) row[0], productId, (Integer) row[1], -amount, LedgerReason.PRODUCT_DELETED, null);
+        }
+    }
+
+    /**
+     * An inventory is about to be deleted and its stock rows with it (JPA cascade): every position
+     * it still holds goes to zero. Call before the delete, in the same transaction.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void onInventoryDeleted(Integer inventoryId) {
+        for (Object[] row : inventoryStockRepository.sumAmountByPositionForInventory(inventoryId)) {
+            int amount = ((Number) row[2]).intValue();
+            record(inventoryId, (Integer) row[0], (Integer) row[1], -amount, LedgerReason.INVENTORY_DELETED, null);
+        }
+    }
+
+    // ----------------- Snapshots -----------------
+
+    @Scheduled(cron = "${stock.ledger.snapshot-cron:0 0 * * * *}")
+    public void scheduledSnapshot() {
+        Long snapshotId = takeSnapshot();
+        if (snapshotId != null) {
+            log.info("Stock ledger snapshot {} taken", snapshotId);
+        }
+    }
+
+    /**
+     * Folds the entries recorded since the last snapshot (up to the lag) into a new snapshot
+     * and drops the oldest ones beyond the retention count.
+     *
+     * @return the new snapshot's ID, or null when nothing changed since the last one
+     */
+    public synchronized Long takeSnapshot() {
+        LocalDateTime cutoff = LocalDateTime.now().minusSeconds(snapshotLagSeconds);
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Object[] last = ledgerRepository.findLastEntryBefore(cutoff).orElse(null);
+            if (last == null) {
+                return null;
+            }
+            long lastEntryId = (Long) last[0];
+            StockLedgerRepository.Snapshot base = ledgerRepository.findLatestSnapshot().orElse(null);
+            if (base != null && base.lastEntryId() >= lastEntryId) {
+                return null;
+            }
+            long snapshotId = ledgerRepository.createSnapshot(base, lastEntryId, (Timestamp) last[1]);
+            ledgerRepository.deleteOldSnapshots(snapshotRetain);
+            return snapshotId;
+        });
+    }
+
+    // ----------------- Reads -----------------
+
+    /**
+     * Non-zero positions as of {@code asOf}, optionally limited to one inventory and/or product.
+     */
+    @Transactional(readOnly = true)
+    public List<Position> positionsAsOf(LocalDateTime asOf, Integer inventoryId, Integer productId) {
+        StockLedgerRepository.Snapshot base = ledgerRepository.findSnapshotCovering(asOf).orElse(null);
+        List<Position> positions = new ArrayList<>();
+        for (Object[] row : ledgerRepository.replayPositions(base, asOf, inventoryId, productId)) {
+            positions.add(new Position((Integer) row[0], (Integer) row[1], (Integer) row[2], (Long) row[3]));
+        }
+        return positions;
+    }
+
+    // ----------------- Helpers -----------------
+
+    /**
+     * Entries of the current transaction: [inventoryId, productId, orderItemId, reason, movementId] -> delta.
+     * The first call in a transaction registers the callback that writes them.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<List<Object>, Integer> pendingEntries() {
+        Map<List<Object>, Integer> pending =
+                (Map<List<Object>, Integer>) TransactionSynchronizationManager.getResource(PENDING_ENTRIES_KEY);
+        if (pending != null) {
+            return pending;
+        }
+
+        Map<List<Object>, Integer> entries = new LinkedHashMap<>();
+        TransactionSynchronizationManager.bindResource(PENDING_ENTRIES_KEY, entries);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                List<StockLedgerRepository.Entry> batch = new ArrayList<>(entries.size());
+                entries.forEach((key, delta) -> {
+                    if (delta != 0) {
+                        batch.add(new StockLedgerRepository.Entry((Integer) key.get(0), (Integer) key.get(1),
+                                (Integer) key.get(2), delta, ((LedgerReason) key.get(3)).name(), (Long) key.get(4)));
+                    }
+                });
+                if (!batch.isEmpty()) {
+                    ledgerRepository.append(batch);
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_ENTRIES_KEY);
+            }
+        });
+        return entries;
+    }
+}
@@ -0,0 +1,288 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.dto.stockmonitoring.*;
+import com.speedit.inventorysystem.event.StockChangedEvent;
+import com.speedit.inventorysystem.model.OrderItem;
+import com.speedit.inventorysystem.model.Product;
+import com.speedit.inventorysystem.model.User;
+import com.speedit.inventorysystem.repository.InventoryStockRepository;
+import com.speedit.inventorysystem.repository.OrderItemRepository;
+import com.speedit.inventorysystem.repository.OrderRepository;
+import com.speedit.inventorysystem.repository.ProductRepository;
+import com.speedit.inventorysystem.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Server-sent events channel per inventory for the stock monitoring page.
+ *
+ * After each committed stock change the affected rows are re-read and pushed to subscribers
+ * as a {@link StockDeltaJson} with a per-inventory sequence number. The last deltas are kept
+ * in a small ring so a reconnecting client (Last-Event-ID / since) can catch up; if it missed
+ * more than that (or the server restarted) it gets a "resync" event and reloads the full dataset.
+ *
+ * Deltas are built and sent on a single background thread so committing requests never wait
+ * on slow clients, and events for an inventory are delivered in sequence order.
+ */
+@Service
+@RequiredArgsConstructor
+public class StockMonitorEventService {
+
+    private static final Logger log = LoggerFactory.getLogger(StockMonitorEventService.class);
+
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L; // client reconnects automatically
+    private static final int REPLAY_CAPACITY = 256;
+
+    private final InventoryStockRepository inventoryStockRepository;
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final ContainerService containerService;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<Integer, Channel> channels = new ConcurrentHashMap<>();
+    private final ExecutorService publisher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "stock-monitor-events");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Latest sequence number of an inventory; a snapshot taken now is current up to this delta. */
+    public long currentSeq(Integer inventoryId) {
+        Channel channel = channels.get(inventoryId);
+        if (channel == null) {
+            return 0;
+        }
+        synchronized (channel) {
+            return channel.seq;
+        }
+    }
+
+    public SseEmitter subscribe(Integer inventoryId, Long since) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Channel channel = channel(inventoryId);
+        emitter.onCompletion(() -> channel.emitters.remove(emitter));
+        emitter.onTimeout(() -> channel.emitters.remove(emitter));
+        emitter.onError(e -> channel.emitters.remove(emitter));
+
+        // Replay and registration under the channel lock, so no delta is skipped or delivered out of order
+        synchronized (channel) {
+            try {
+                if (since != null && since < channel.seq) {
+                    List<StockDeltaJson> missed = channel.deltasAfter(since);
+                    if (missed == null) {
+                        send(emitter, "resync", channel.seq, Map.of("seq", channel.seq));
+                    } else {
+                        for (StockDeltaJson delta : missed) {
+                            send(emitter, "delta", delta.getSeq(), delta);
+                        }
+                    }
+                } else if (since != null && since > channel.seq) {
+                    // Client is ahead of us: the server restarted and sequence numbers were reset
+                    send(emitter, "resync", channel.seq, Map.of("seq", channel.seq));
+                }
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+                return emitter;
+            }
+            channel.emitters.add(emitter);
+        }
+        return emitter;
+    }
+
+    @EventListener
+    public void onStockChanged(StockChangedEvent event) {
+        for (Integer inventoryId : event.inventoryIds()) {
+            Set<Integer> upserted = event.upsertedStockIds().getOrDefault(inventoryId, Set.of());
+            Set<Integer> removed = event.removedStockIds().getOrDefault(inventoryId, Set.of());
+            publisher.execute(() -> {
+                try {
+                    publish(inventoryId, upserted, removed);
+                } catch (RuntimeException e) {
+                    log.warn("Failed to publish stock delta for inventory {}", inventoryId, e);
+                }
+            });
+        }
+    }
+
+    /** Keeps idle connections open through proxies and drops clients that went away. */
+    @Scheduled(fixedRate = 25_000)
+    public void heartbeat() {
+        channels.values().forEach(channel -> {
+            for (SseEmitter emitter : channel.emitters) {
+                try {
+                    emitter.send(SseEmitter.event().comment("keep-alive"));
+                } catch (IOException | IllegalStateException e) {
+                    channel.emitters.remove(emitter);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        publisher.shutdownNow();
+        channels.values().forEach(channel -> channel.emitters.forEach(SseEmitter::complete));
+    }
+
+    // ----------------- Publishing -----------------
+
+    private void publish(Integer inventoryId, Set<Integer> upserted, Set<Integer> removed) {
+        Channel channel = channel(inventoryId);
+
+        // Nobody listening: only advance the sequence. A client that later asks for this
+        // delta gets a resync instead, which is cheaper than building deltas nobody reads.
+        StockDeltaJson delta = channel.emitters.isEmpty() ? null : buildDelta(inventoryId, upserted, removed);
+
+        synchronized (channel) {
+            long seq = ++channel.seq;
+            if (delta != null) {
+                delta.setSeq(seq);
+            }
+            channel.retain(seq, delta);
+            for (SseEmitter emitter : channel.emitters) {
+                try {
+                    if (delta != null) {
+                        send(emitter, "delta", seq, delta);
+                    } else {
+                        // Subscribed while this change was being processed: reload rather than miss it
+                        send(emitter, "resync", seq, Map.of("seq", seq));
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    channel.emitters.remove(emitter);
+                }
+            }
+        }
+    }
+
+    /** Re-reads the changed rows (committed state) and everything the client needs to render them. */
+    private StockDeltaJson buildDelta(Integer inventoryId, Set<Integer> upserted, Set<Integer> removed) {
+        TransactionTemplate readOnlyTx = new TransactionTemplate(transactionManager);
+        readOnlyTx.setReadOnly(true);
+        return readOnlyTx.execute(status -> {
+            StockDeltaJson delta = new StockDeltaJson();
+            delta.setInventoryId(inventoryId);
+            delta.getRemovedInventoryStockIds().addAll(removed);
+
+            Set<Integer> productIds = new HashSet<>();
+            Set<Integer> orderItemIds = new HashSet<>();
+            Set<Integer> userIds = new HashSet<>();
+
+            // 1. Stock rows still in this inventory; anything that moved on since counts as removed
+            if (!upserted.isEmpty()) {
+                for (Object[] row : inventoryStockRepository.findStockRowsByIds(upserted)) {
+                    Integer stockInventoryId = (Integer) row[1];
+                    if (!inventoryId.equals(stockInventoryId)) {
+                        delta.getRemovedInventoryStockIds().add((Integer) row[0]);
+                        continue;
+                    }
+                    InventoryStockJsonDTO dto = InventoryStockJsonDTO.fromRow(row);
+                    delta.getInventoryStocks().add(dto);
+                    productIds.add(dto.getProductId());
+                    if (dto.getOrderItemId() != null) orderItemIds.add(dto.getOrderItemId());
+                    if (dto.getEmployeeId() != null) userIds.add(dto.getEmployeeId());
+                }
+            }
+
+            // 2. Orders touched by the changed rows; those with no stock left here are removed
+            Set<Integer> changedStockIds = new HashSet<>(upserted);
+            changedStockIds.addAll(removed);
+            Set<Integer> orderIds = new HashSet<>(inventoryStockRepository.findOrderIdsByStockIds(changedStockIds));
+            if (!orderIds.isEmpty()) {
+                Set<Integer> stillHere = new HashSet<>();
+                for (Object[] row : orderRepository.findOrderRowsByInventoryIdAndOrderIds(inventoryId, orderIds)) {
+                    OrderJsonDTO dto = OrderJsonDTO.fromRow(row);
+                    delta.getOrders().add(dto);
+                    stillHere.add(dto.getOrderId());
+                    userIds.add(dto.getClientId());
+                    userIds.add(dto.getSupervisorId());
+                }
+                orderIds.stream().filter(id -> !stillHere.contains(id)).forEach(delta.getRemovedOrderIds()::add);
+            }
+
+            // 3. Referenced rows the client may not have yet (new products, order items, users)
+            if (!orderItemIds.isEmpty()) {
+                for (OrderItem oi : orderItemRepository.findAllById(orderItemIds)) {
+                    delta.getOrderItems().add(new OrderItemJsonDTO(
+                            oi.getOrderItemId(), oi.getOrder().getOrderId(), oi.getProduct().getProductId(),
+                            oi.getQuantity(), oi.getDiscount() != null ? oi.getDiscount() : 0L));
+                }
+            }
+            if (!productIds.isEmpty()) {
+                Map<Integer, String> productInfo = containerService.buildProductInfoStrings(productIds);
+                for (Product p : productRepository.findAllById(productIds)) {
+                    delta.getProducts().add(new ProductJsonDTO(
+                            p.getProductId(), productInfo.get(p.getProductId()), p.getPrice()));
+                }
+            }
+            if (!userIds.isEmpty()) {
+                for (User u : userRepository.findAllById(userIds)) {
+                    delta.getUsers().add(new UserJsonDTO(u.getUserId(), u.getName()));
+                }
+            }
+            return delta;
+        });
+    }
+
+    private static void send(SseEmitter emitter, String name, long seq, Object data) throws IOException {
+        emitter.send(SseEmitter.event()
+                .id(String.valueOf(seq))
+                .name(name)
+                .data(data, MediaType.APPLICATION_JSON));
+    }
+
+    private Channel channel(Integer inventoryId) {
+        return channels.computeIfAbsent(inventoryId, id -> new Channel());
+    }
+
+    /** Subscribers, sequence counter and replay ring of one inventory. Guarded by its own monitor. */
+    private static class Channel {
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private final Deque<StockDeltaJson> replay = new ArrayDeque<>();
+        private long seq;
+        private long oldestReplayableSeq = 1; // deltas before this are gone (or were never built)
+
+        void retain(long deltaSeq, StockDeltaJson delta) {
+            if (delta == null) {
+                // Not built: nothing up to here can be replayed
+                replay.clear();
+                oldestReplayableSeq = deltaSeq + 1;
+                return;
+            }
+            replay.addLast(delta);
+            if (replay.size() > REPLAY_CAPACITY) {
+                replay.removeFirst();
+                oldestReplayableSeq = replay.peekFirst().getSeq();
+            }
+        }
+
+        /** Deltas with seq > since, or null if some of them are no longer retained. */
+        List<StockDeltaJson> deltasAfter(long since) {
+            if (since + 1 < oldestReplayableSeq) {
+                return null;
+            }
+            List<StockDeltaJson> result = new ArrayList<>();
+            for (StockDeltaJson delta : replay) {
+                if (delta.getSeq() > since) result.add(delta);
+            }
+            return result;
+        }
+    }
+}
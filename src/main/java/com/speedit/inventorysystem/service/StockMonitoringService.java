@@ -1,22 +1,30 @@
 package com.speedit.inventorysystem.service;
 
+import com.speedit.inventorysystem.dto.ProductStockMonitorDTO;
 import com.speedit.inventorysystem.dto.StockMonitorDTO;
 import com.speedit.inventorysystem.dto.stockmonitoring.*;
 import com.speedit.inventorysystem.model.*;
+import com.speedit.inventorysystem.repository.InventoryRepository;
+import com.speedit.inventorysystem.repository.InventoryStockRepository;
 import com.speedit.inventorysystem.repository.OrderItemRepository;
 import com.speedit.inventorysystem.repository.OrderRepository;
 import com.speedit.inventorysystem.repository.ProductRepository;
 import com.speedit.inventorysystem.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -28,8 +36,18 @@ public class StockMonitoringService {
     @Autowired private UserRepository userRepository;
     @Autowired private OrderRepository orderRepository;
     @Autowired private OrderItemRepository orderItemRepository;
+    @Autowired private OccupiedVolumeService occupiedVolumeService;
+    @Autowired private InventoryStockRepository inventoryStockRepository;
+    @Autowired private ContainerClosureService containerClosureService;
+    @Autowired private InventoryRepository inventoryRepository;
 
-    public Map<String, Object> prepareStockMonitorPageData(Inventory inventory) {
+    /**
+     * Builds the page model. The full JSON dataset is only built when {@code includeJsonData} is set;
+     * large inventories skip it and the page streams it from /monitor-stock/inventory/{id}/data instead.
+     * Read-only transaction: the JSON queries are consumed as streams.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Object> prepareStockMonitorPageData(Inventory inventory, boolean includeJsonData) {
         // 1. Prepare the simple DTO for Thymeleaf
         StockMonitorDTO pageData = new StockMonitorDTO();
         pageData.setInventory(inventory);
@@ -45,34 +63,136 @@ public class StockMonitoringService {
         BigDecimal percentage = ratio.multiply(new BigDecimal("100"));
         pageData.setFillLevelPercentage(percentage.doubleValue());
 
-        // 2. Prepare the large, flat JSON data object for JavaScript
-        StockDataJson jsonData = buildJsonData(inventory.getInventoryStocks());
+        // 2. Return the page data, plus the flat JSON data object for JavaScript if requested
+        Map<String, Object> result = new HashMap<>();
+        result.put("pageData", pageData);
+        if (includeJsonData) {
+            result.put("jsonData", buildJsonData(inventory.getInventoryId()));
+        }
+        return result;
+    }
 
-        // 3. Return both objects in a map
-        return Map.of(
-                "pageData", pageData,
-                "jsonData", jsonData
-        );
+    /**
+     * Builds the product monitor: the product's position in every inventory, available vs reserved,
+     * including units packed inside container parents.
+     *
+     * 1. One closure query gives every container parent holding the product and how many units of the
+     *    product one parent item holds.
+     * 2. One grouped query sums the stock of the product and all those parents per inventory.
+     * 3. Roll the sums up in memory with the multipliers.
+     */
+    public ProductStockMonitorDTO prepareProductStockPageData(Product product) {
+        // 1. productId -> units of the monitored product per item (1 for the product itself)
+        Map<Integer, Long> unitsPerItem = new LinkedHashMap<>();
+        unitsPerItem.put(product.getProductId(), 1L);
+        for (Object[] ancestor : containerClosureService.findAncestorRows(product.getProductId())) {
+            unitsPerItem.put((Integer) ancestor[0], (Long) ancestor[2]);
+        }
+
+        // 2. [inventoryId, productId, available, reserved] for the product and its parents
+        List<Object[]> stockRows = inventoryStockRepository.sumAmountsByInventoryForProducts(unitsPerItem.keySet());
+        Set<Integer> heldProductIds = new HashSet<>();
+        Set<Integer> inventoryIds = new HashSet<>();
+        for (Object[] row : stockRows) {
+            inventoryIds.add((Integer) row[0]);
+            heldProductIds.add((Integer) row[1]);
+        }
+        heldProductIds.add(product.getProductId());
+        Map<Integer, String> productInfo = containerService.buildProductInfoStrings(heldProductIds);
+        Map<Integer, Inventory> inventories = new HashMap<>();
+        inventoryRepository.findAllById(inventoryIds).forEach(inv -> inventories.put(inv.getInventoryId(), inv));
+
+        // 3. Rollup in units of the monitored product
+        ProductStockMonitorDTO pageData = new ProductStockMonitorDTO();
+        pageData.setProduct(product);
+        pageData.setProductInfo(productInfo.get(product.getProductId()));
+
+        Map<Integer, ProductStockMonitorDTO.InventoryPosition> positions = new HashMap<>();
+        for (Object[] row : stockRows) {
+            Integer inventoryId = (Integer) row[0];
+            Integer heldProductId = (Integer) row[1];
+            ProductStockMonitorDTO.InventoryPosition position = positions.computeIfAbsent(inventoryId, id -> {
+                ProductStockMonitorDTO.InventoryPosition p = new ProductStockMonitorDTO.InventoryPosition();
+                Inventory inventory = inventories.get(id);
+                p.setInventoryId(id);
+                p.setInventoryType(inventory != null ? inventory.getInventoryType().getDisplayName() : null);
+                p.setLocation(inventory != null ? inventory.getLocation() : null);
+                return p;
+            });
+
+            ProductStockMonitorDTO.Holding holding = new ProductStockMonitorDTO.Holding();
+            holding.setProductId(heldProductId);
+            holding.setProductInfo(productInfo.get(heldProductId));
+            holding.setUnitsPerItem(unitsPerItem.get(heldProductId));
+            holding.setAvailableItems(((Number) row[2]).longValue());
+            holding.setReservedItems(((Number) row[3]).longValue());
+            position.getHoldings().add(holding);
+
+            position.setAvailable(position.getAvailable() + holding.getAvailableUnits());
+            position.setReserved(position.getReserved() + holding.getReservedUnits());
+        }
+
+        List<ProductStockMonitorDTO.InventoryPosition> sorted = new ArrayList<>(positions.values());
+        sorted.sort(Comparator.comparingLong(ProductStockMonitorDTO.InventoryPosition::getTotal).reversed());
+        for (ProductStockMonitorDTO.InventoryPosition position : sorted) {
+            position.getHoldings().sort(Comparator.comparingLong(ProductStockMonitorDTO.Holding::getUnitsPerItem));
+            pageData.setTotalAvailable(pageData.getTotalAvailable() + position.getAvailable());
+            pageData.setTotalReserved(pageData.getTotalReserved() + position.getReserved());
+        }
+        pageData.setInventories(sorted);
+        return pageData;
     }
 
     /**
      * Calculates the total volume used and the fill level ratio.
      * Returns a Map containing "totalVolume" and "fillLevelRatio".
+     * The volume is the maintained occupied-volume counter, so this is an O(1) read.
      */
     public Map<String, BigDecimal> calculateFillLevel(Inventory inventory) {
-        if (inventory.getCapacity() == null || inventory.getCapacity().compareTo(BigDecimal.ZERO) == 0) {
-            return Map.of(
-                    "totalVolume", BigDecimal.ZERO,
-                    "fillLevelRatio", BigDecimal.ZERO
-            );
+        if (!hasCapacity(inventory)) {
+            return emptyFillMetrics();
+        }
+        BigDecimal totalVolume = occupiedVolumeService.getOccupiedVolume(inventory.getInventoryId());
+        return toFillMetrics(inventory, totalVolume);
+    }
+
+    /**
+     * Bulk variant of {@link #calculateFillLevel}; inventories not yet cached are loaded with one query.
+     * Returns the same metrics map per inventory, keyed by inventory ID.
+     */
+    public Map<Integer, Map<String, BigDecimal>> calculateFillLevels(Collection<Inventory> inventories) {
+        Map<Integer, Map<String, BigDecimal>> result = new HashMap<>();
+        if (inventories.isEmpty()) {
+            return result;
+        }
+
+        Set<Integer> inventoryIds = inventories.stream()
+                .filter(this::hasCapacity)
+                .map(Inventory::getInventoryId)
+                .collect(Collectors.toSet());
+        Map<Integer, BigDecimal> volumes = inventoryIds.isEmpty() ? Map.of() :
+                occupiedVolumeService.getOccupiedVolumes(inventoryIds);
+
+        for (Inventory inventory : inventories) {
+            result.put(inventory.getInventoryId(), hasCapacity(inventory)
+                    ? toFillMetrics(inventory, volumes.getOrDefault(inventory.getInventoryId(), BigDecimal.ZERO))
+                    : emptyFillMetrics());
         }
+        return result;
+    }
 
-        List<InventoryStock> stockRecords = inventory.getInventoryStocks();
+    private boolean hasCapacity(Inventory inventory) {
+        return inventory.getCapacity() != null && inventory.getCapacity().compareTo(BigDecimal.ZERO) != 0;
+    }
 
-        BigDecimal totalVolume = stockRecords.stream()
-                .map(stock -> stock.getProduct().getVolume().multiply(new BigDecimal(stock.getAmount())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    private Map<String, BigDecimal> emptyFillMetrics() {
+        return Map.of(
+                "totalVolume", BigDecimal.ZERO,
+                "fillLevelRatio", BigDecimal.ZERO
+        );
+    }
 
+    private Map<String, BigDecimal> toFillMetrics(Inventory inventory, BigDecimal totalVolume) {
         // Calculate ratio (Volume / Capacity). Using higher scale for precision before percentage calc.
         BigDecimal ratio = totalVolume.divide(inventory.getCapacity(), 6, RoundingMode.HALF_UP);
 
@@ -82,71 +202,36 @@ public class StockMonitoringService {
         );
     }
 
-    private StockDataJson buildJsonData(List<InventoryStock> stockRecords) {
-        // --- Step 1: Collect all unique IDs from the stock records ---
-        Set<Integer> productIds = stockRecords.stream().map(s -> s.getProduct().getProductId()).collect(Collectors.toSet());
-        Set<Integer> employeeIds = stockRecords.stream().map(InventoryStock::getEmployee).filter(Objects::nonNull).map(User::getUserId).collect(Collectors.toSet());
-        Set<Integer> orderItemIds = stockRecords.stream().map(InventoryStock::getOrderItem).filter(Objects::nonNull).map(OrderItem::getOrderItemId).collect(Collectors.toSet());
-
-        // --- Step 2: Fetch related entities in bulk ---
-        List<OrderItem> orderItems = orderItemIds.isEmpty() ? List.of() : orderItemRepository.findAllById(orderItemIds);
-        Set<Integer> orderIds = orderItems.stream().map(oi -> oi.getOrder().getOrderId()).collect(Collectors.toSet());
-        List<Order> orders = orderIds.isEmpty() ? List.of() : orderRepository.findAllById(orderIds);
-        Set<Integer> clientIds = orders.stream().map(o -> o.getClient().getUserId()).collect(Collectors.toSet());
-        Set<Integer> supervisorIds = orders.stream().map(o -> o.getSupervisor().getUserId()).collect(Collectors.toSet());
-
-        Set<Integer> allUserIds = Stream.of(employeeIds, clientIds, supervisorIds).flatMap(Set::stream).collect(Collectors.toSet());
-        List<User> users = allUserIds.isEmpty() ? List.of() : userRepository.findAllById(allUserIds);
-        List<Product> products = productIds.isEmpty() ? List.of() : productRepository.findAllById(productIds);
-
-        // --- Step 3: Map entities to their corresponding JSON DTOs ---
+    /**
+     * Read model for the page's JSON: flat rows from five scalar queries (stocks, order items, orders
+     * with their item totals, users, product prices) plus the bulk product info strings, so the
+     * number of queries doesn't depend on how many stock rows the inventory has.
+     */
+    private StockDataJson buildJsonData(Integer inventoryId) {
         StockDataJson data = new StockDataJson();
 
-        data.setProducts(products.stream().map(p -> new ProductJsonDTO(
-                p.getProductId(),
-                containerService.buildProductInfoString(p),
-                p.getPrice() // Assuming price is stored in dollars
-        )).collect(Collectors.toList()));
-
-        data.setInventoryStocks(stockRecords.stream().map(s -> new InventoryStockJsonDTO(
-                s.getInventoryStockId(),
-                s.getInventory().getInventoryId(),
-                s.getProduct().getProductId(),
-                s.getOrderItem() != null ? s.getOrderItem().getOrderItemId() : null,
-                s.getAmount(),
-                s.getEmployee() != null ? s.getEmployee().getUserId() : null
-        )).collect(Collectors.toList()));
-
-        data.setUsers(users.stream().map(u -> new UserJsonDTO(
-                u.getUserId(),
-                u.getName()
-        )).collect(Collectors.toList()));
+        try (Stream<Object[]> rows = inventoryStockRepository.streamStockRowsByInventoryId(inventoryId)) {
+            data.setInventoryStocks(rows.map(InventoryStockJsonDTO::fromRow).collect(Collectors.toList()));
+        }
+        try (Stream<Object[]> rows = orderItemRepository.streamOrderItemRowsByInventoryId(inventoryId)) {
+            data.setOrderItems(rows.map(OrderItemJsonDTO::fromRow).collect(Collectors.toList()));
+        }
+        try (Stream<Object[]> rows = orderRepository.streamOrderRowsByInventoryId(inventoryId)) {
+            data.setOrders(rows.map(OrderJsonDTO::fromRow).collect(Collectors.toList()));
+        }
+        try (Stream<Object[]> rows = userRepository.streamUserRowsByInventoryId(inventoryId)) {
+            data.setUsers(rows.map(UserJsonDTO::fromRow).collect(Collectors.toList()));
+        }
 
-        // Create a map of OrderItem lists per Order for quick lookup
-        Map<Integer, List<OrderItem>> itemsByOrderId = orderItems.stream().collect(Collectors.groupingBy(oi -> oi.getOrder().getOrderId()));
-
-        data.setOrders(orders.stream().map(o -> {
-            List<OrderItem> itemsForThisOrder = itemsByOrderId.getOrDefault(o.getOrderId(), List.of());
-            int totalQuantities = itemsForThisOrder.stream().mapToInt(OrderItem::getQuantity).sum();
-            return new OrderJsonDTO(
-                    o.getOrderId(),
-                    o.getOrderStatus().name(),
-                    o.getClient().getUserId(),
-                    o.getSupervisor().getUserId(),
-                    o.getDeliveryLocation(),
-                    itemsForThisOrder.size(),
-                    totalQuantities
-            );
-        }).collect(Collectors.toList()));
-
-        data.setOrderItems(orderItems.stream().map(oi -> new OrderItemJsonDTO(
-                oi.getOrderItemId(),
-                oi.getOrder().getOrderId(),
-                oi.getProduct().getProductId(),
-                oi.getQuantity(),
-                oi.getDiscount()
+        List<Object[]> productRows = productRepository.findPriceRowsByInventoryId(inventoryId);
+        Map<Integer, String> productInfo = containerService.buildProductInfoStrings(
+                productRows.stream().map(row -> (Integer) row[0]).toList());
+        data.setProducts(productRows.stream().map(row -> new ProductJsonDTO(
+                (Integer) row[0],
+                productInfo.get((Integer) row[0]),
+                (BigDecimal) row[1]
         )).collect(Collectors.toList()));
 
         return data;
     }
-}
\ No newline at end of file
+}
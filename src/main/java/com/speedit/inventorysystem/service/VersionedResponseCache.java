@@ -0,0 +1,92 @@
+package com.speedit.inventorysystem.service;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Conditional GET and a shared, bounded cache of response bodies keyed by ETag
+ * (see {@link AggregateVersionService#etag}).
+ *
+ * - If-None-Match matches the current ETag: 304, nothing is loaded.
+ * - The cached body was built under the current ETag: it is served without touching JPA.
+ * - Otherwise the loader runs and its result replaces the cached body.
+ * The ETag is read before loading, so a write that commits meanwhile only causes one extra reload.
+ */
+@Component
+public class VersionedResponseCache {
+
+    // Browsers may keep the response but must revalidate it; Spring Security's no-store default is replaced
+    public static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
+    private final Map<String, Entry> entries;
+
+    public VersionedResponseCache(@Value("${cache.versioned-responses.max-entries:1000}") int maxEntries) {
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Answers a GET for one cacheable resource.
+     *
+     * @param cacheKey identifies the resource, e.g. "product-details:42"
+     * @param etag     current ETag of the data behind it
+     * @param loader   builds the body; empty means 404
+     */
+    public <T> ResponseEntity<T> respond(ServletWebRequest request, String cacheKey, String etag,
+                                         Supplier<Optional<T>> loader) {
+        if (checkNotModified(request, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+        }
+
+        T body = cached(cacheKey, etag);
+        if (body == null) {
+            Optional<T> loaded = loader.get();
+            if (loaded.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            body = loaded.get();
+            store(cacheKey, etag, body);
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(body);
+    }
+
+    /**
+     * Sets the revalidation headers and checks If-None-Match. When this returns true the 304 is
+     * already set up and the handler should return without rendering anything.
+     */
+    public boolean checkNotModified(ServletWebRequest request, String etag) {
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, REVALIDATE.getHeaderValue());
+        }
+        return request.checkNotModified(etag);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized <T> T cached(String cacheKey, String etag) {
+        Entry entry = entries.get(cacheKey);
+        return entry != null && entry.etag().equals(etag) ? (T) entry.body() : null;
+    }
+
+    private synchronized void store(String cacheKey, String etag, Object body) {
+        entries.put(cacheKey, new Entry(etag, body));
+    }
+
+    private record Entry(String etag, Object body) {
+    }
+}
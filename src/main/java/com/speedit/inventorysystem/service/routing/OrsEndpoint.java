@@ -0,0 +1,21 @@
+package com.speedit.inventorysystem.service.routing;
+
+/**
+ * The ORS APIs we call. Each one has its own quota on the ORS side, so each gets
+ * its own rate limiter and circuit breaker in {@link OrsGateway}.
+ * Default quotas match the ORS standard (free) plan.
+ */
+public enum OrsEndpoint {
+    DIRECTIONS(40),
+    OPTIMIZATION(40),
+    MATRIX(40),
+    GEOCODE(100);
+
+    private final int defaultRequestsPerMinute;
+
+    OrsEndpoint(int defaultRequestsPerMinute) {
+        this.defaultRequestsPerMinute = defaultRequestsPerMinute;
+    }
+
+    public int getDefaultRequestsPerMinute() { return defaultRequestsPerMinute; }
+}
@@ -0,0 +1,219 @@
+package com.speedit.inventorysystem.service.routing;
+
+import com.speedit.inventorysystem.config.OrsGatewayProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Single entry point for every call to OpenRouteService.
+ *
+ * Each call goes through, in order:
+ *   1. the endpoint's circuit breaker (fail fast while ORS is known to be down),
+ *   2. the endpoint's token bucket, matched to the ORS per-minute quota,
+ *   3. a bulkhead limiting concurrent ORS calls so routing can't take every request thread,
+ *   4. the call itself with a per-attempt timeout, a hedged second request if the first is slow,
+ *      and bounded retries with backoff, all under one overall deadline.
+ *
+ * An empty result means "ORS could not answer in time" — callers fall back to {@link RouteEstimator}.
+ * A request ORS rejects as invalid (4xx other than 429) fails fast with {@link OrsRequestException}.
+ * Every ORS request is an idempotent read, so hedging and retrying are safe.
+ */
+@Component
+public class OrsGateway {
+
+    private static final Logger log = LoggerFactory.getLogger(OrsGateway.class);
+
+    private final OrsGatewayProperties properties;
+    private final Map<OrsEndpoint, TokenBucket> rateLimiters = new EnumMap<>(OrsEndpoint.class);
+    private final Map<OrsEndpoint, CircuitBreaker> breakers = new EnumMap<>(OrsEndpoint.class);
+    private final Semaphore bulkhead;
+
+    public OrsGateway(OrsGatewayProperties properties) {
+        this.properties = properties;
+        this.bulkhead = new Semaphore(properties.getBulkheadMaxConcurrent(), true);
+        for (OrsEndpoint endpoint : OrsEndpoint.values()) {
+            rateLimiters.put(endpoint, new TokenBucket(
+                    properties.getRequestsPerMinute(endpoint), properties.getRateLimitBurst()));
+            breakers.put(endpoint, new CircuitBreaker(
+                    properties.getBreakerWindowSize(),
+                    properties.getBreakerMinimumCalls(),
+                    properties.getBreakerFailureRateThreshold(),
+                    properties.getBreakerOpenDuration()));
+        }
+    }
+
+    /**
+     * Executes an ORS request. The supplier must build a fresh, lazy request each time it is called
+     * (e.g. {@code () -> webClient.get()...bodyToMono(...)}), since hedges and retries call it again.
+     *
+     * @return the response, or empty if ORS is unavailable and the caller should degrade.
+     * @throws OrsRequestException if ORS rejected the request as invalid
+     */
+    public <T> Optional<T> execute(OrsEndpoint endpoint, Supplier<Mono<T>> request) {
+        CircuitBreaker breaker = breakers.get(endpoint);
+        if (!breaker.tryAcquirePermission()) {
+            log.debug("ORS {} circuit open, using degraded estimate", endpoint);
+            return Optional.empty();
+        }
+
+        TokenBucket bucket = rateLimiters.get(endpoint);
+        boolean permitted = false;
+        try {
+            // 1. Rate limit: wait briefly for a token, otherwise degrade rather than queue forever
+            if (!bucket.tryAcquire(properties.getRateLimitMaxWait())) {
+                breaker.releasePermission();
+                log.warn("ORS {} quota exhausted, using degraded estimate", endpoint);
+                return Optional.empty();
+            }
+
+            // 2. Bulkhead
+            permitted = bulkhead.tryAcquire(properties.getBulkheadMaxWait().toMillis(), TimeUnit.MILLISECONDS);
+            if (!permitted) {
+                breaker.releasePermission();
+                log.warn("ORS bulkhead full ({} concurrent calls), using degraded estimate for {}",
+                        properties.getBulkheadMaxConcurrent(), endpoint);
+                return Optional.empty();
+            }
+
+            // 3. Call with hedge, retries and overall deadline
+            T result = hedged(bucket, request)
+                    .retryWhen(Retry.backoff(properties.getMaxRetries(), properties.getRetryBackoff())
+                            .filter(OrsGateway::isRetryable)
+                            .doBeforeRetry(signal -> log.debug("Retrying ORS {} (attempt {}): {}",
+                                    endpoint, signal.totalRetries() + 2, signal.failure().toString())))
+                    .timeout(properties.getDeadline())
+                    .block();
+
+            breaker.recordSuccess();
+            return Optional.ofNullable(result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            breaker.releasePermission();
+            return Optional.empty();
+        } catch (RuntimeException e) {
+            WebClientResponseException rejected = findClientError(e);
+            if (rejected != null) {
+                // Says nothing about ORS health, and an estimate would hide the bad request
+                breaker.releasePermission();
+                throw new OrsRequestException(endpoint, rejected);
+            }
+            if (isLocalRejection(e)) {
+                breaker.releasePermission();
+            } else {
+                breaker.recordFailure();
+            }
+            log.warn("ORS {} call failed, using degraded estimate: {}", endpoint, e.toString());
+            return Optional.empty();
+        } finally {
+            if (permitted) {
+                bulkhead.release();
+            }
+        }
+    }
+
+    /**
+     * One attempt, plus a second identical request if the first hasn't answered within the hedge delay.
+     * The first response wins and the other request is cancelled. Retries and hedges need their own
+     * token; if none is free right away the hedge is skipped and a retry fails fast. A rejected request
+     * ends the race at once instead of waiting for the other attempt.
+     */
+    private <T> Mono<T> hedged(TokenBucket bucket, Supplier<Mono<T>> request) {
+        AtomicBoolean firstAttempt = new AtomicBoolean(true);
+        Mono<T> primary = Mono.defer(() -> {
+            if (!firstAttempt.getAndSet(false) && !bucket.tryAcquire()) {
+                return Mono.error(new RateLimitedException());
+            }
+            return request.get().timeout(properties.getAttemptTimeout());
+        });
+
+        if (properties.getHedgeDelay().isNegative() || properties.getHedgeDelay().isZero()) {
+            return primary;
+        }
+
+        Mono<T> hedge = Mono.delay(properties.getHedgeDelay())
+                .flatMap(tick -> bucket.tryAcquire()
+                        ? request.get().timeout(properties.getAttemptTimeout())
+                        : Mono.<T>empty());
+        return Mono.defer(() -> {
+            Sinks.One<T> rejection = Sinks.one();
+            Mono<T> race = Mono.firstWithValue(
+                    primary.doOnError(OrsGateway::isClientError, rejection::tryEmitError),
+                    hedge.doOnError(OrsGateway::isClientError, rejection::tryEmitError));
+            return Mono.firstWithSignal(race, rejection.asMono());
+        });
+    }
+
+    /** Timeouts, connection errors, 5xx and 429 are worth retrying; other 4xx responses are not. */
+    private static boolean isRetryable(Throwable t) {
+        if (t instanceof RateLimitedException) {
+            return false;
+        }
+        if (t instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status == 429 || status >= 500;
+        }
+        // Mono.firstWithValue reports both branches' errors as suppressed exceptions
+        for (Throwable suppressed : t.getSuppressed()) {
+            if (!isRetryable(suppressed)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isClientError(Throwable t) {
+        if (t instanceof WebClientResponseException response) {
+            int status = response.getStatusCode().value();
+            return status >= 400 && status < 500 && status != 429;
+        }
+        return false;
+    }
+
+    /** The 4xx response behind a failed call, looking through causes and suppressed hedge errors. */
+    private static WebClientResponseException findClientError(Throwable t) {
+        if (t == null) {
+            return null;
+        }
+        if (isClientError(t)) {
+            return (WebClientResponseException) t;
+        }
+        for (Throwable suppressed : t.getSuppressed()) {
+            WebClientResponseException found = findClientError(suppressed);
+            if (found != null) {
+                return found;
+            }
+        }
+        return t.getCause() != t ? findClientError(t.getCause()) : null;
+    }
+
+    private static boolean isLocalRejection(Throwable t) {
+        Throwable cause = t;
+        while (cause != null) {
+            if (cause instanceof RateLimitedException) {
+                return true;
+            }
+            cause = cause.getCause();
+        }
+        return false;
+    }
+
+    /** A retry found no free token; not an ORS failure, so it doesn't count against the breaker. */
+    private static class RateLimitedException extends RuntimeException {
+        RateLimitedException() {
+            super("ORS rate limit reached", null, false, false);
+        }
+    }
+}
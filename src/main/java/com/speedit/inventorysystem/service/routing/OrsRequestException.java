@@ -0,0 +1,23 @@
+package com.speedit.inventorysystem.service.routing;
+
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+/**
+ * ORS rejected the request itself (a 4xx other than 429, e.g. a bad key or invalid coordinates).
+ * Retrying or estimating would only hide the problem, so {@link OrsGateway} reports it to the caller
+ * instead of degrading, and it does not count against the circuit breaker.
+ */
+public class OrsRequestException extends RuntimeException {
+
+    private final int statusCode;
+
+    OrsRequestException(OrsEndpoint endpoint, WebClientResponseException cause) {
+        super("ORS " + endpoint + " rejected the request: " + cause.getStatusCode().value() + " "
+                + cause.getResponseBodyAsString(), cause);
+        this.statusCode = cause.getStatusCode().value();
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
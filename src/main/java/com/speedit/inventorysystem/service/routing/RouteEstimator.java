@@ -0,0 +1,128 @@
+package com.speedit.inventorysystem.service.routing;
+
+import com.speedit.inventorysystem.config.OrsGatewayProperties;
+import com.speedit.inventorysystem.dto.Coordinates;
+import com.speedit.inventorysystem.dto.RouteDetails;
+import com.speedit.inventorysystem.dto.ors.OptimizationResponse;
+import com.speedit.inventorysystem.dto.ors.OrsRouteResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Degraded-mode answers used when ORS is unavailable (breaker open, quota exhausted, timeouts).
+ * Road distance is approximated as the great-circle (haversine) distance times a detour factor,
+ * driven at a constant average speed. Results have the same shape as the real ORS responses
+ * so callers don't need to know which one they got.
+ */
+@Component
+public class RouteEstimator {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_000.0;
+
+    private final double detourFactor;
+    private final double averageSpeedMps;
+
+    public RouteEstimator(OrsGatewayProperties properties) {
+        this.detourFactor = properties.getFallbackDetourFactor();
+        this.averageSpeedMps = properties.getFallbackAverageSpeedKmh() * 1000.0 / 3600.0;
+    }
+
+    /** Estimated road distance (meters) and driving time (seconds). */
+    public RouteDetails estimateRoute(Coordinates start, Coordinates end) {
+        double distance = roadDistance(start, end);
+        return new RouteDetails(distance, distance / averageSpeedMps);
+    }
+
+    /** A straight two-point route, enough for findLocationAfterDuration to interpolate along. */
+    public OrsRouteResponse estimateFullRoute(Coordinates start, Coordinates end) {
+        RouteDetails details = estimateRoute(start, end);
+
+        OrsRouteResponse.RouteGeometry geometry = new OrsRouteResponse.RouteGeometry();
+        geometry.setCoordinates(new ArrayList<>(List.of(
+                List.of(start.getLongitude(), start.getLatitude()),
+                List.of(end.getLongitude(), end.getLatitude()))));
+
+        OrsRouteResponse.TimeInfo time = new OrsRouteResponse.TimeInfo();
+        time.setValues(new ArrayList<>(List.of(List.of(0.0, 1.0, details.getDurationInSeconds()))));
+        OrsRouteResponse.Extras extras = new OrsRouteResponse.Extras();
+        extras.setTime(time);
+
+        OrsRouteResponse.Summary summary = new OrsRouteResponse.Summary();
+        summary.setDistance(details.getDistanceInMeters());
+        summary.setDuration(details.getDurationInSeconds());
+
+        OrsRouteResponse.RouteProperties properties = new OrsRouteResponse.RouteProperties();
+        properties.setExtras(extras);
+        properties.setSummary(summary);
+
+        OrsRouteResponse.RouteFeature feature = new OrsRouteResponse.RouteFeature();
+        feature.setGeometry(geometry);
+        feature.setProperties(properties);
+
+        OrsRouteResponse response = new OrsRouteResponse();
+        response.setFeatures(List.of(feature));
+        return response;
+    }
+
+    /**
+     * Nearest-neighbour round trip starting and ending at the first location.
+     * Not optimal, but stable, which matters more for overhead comparisons.
+     */
+    public OptimizationResponse estimateOptimizedRoute(List<Coordinates> locations) {
+        Coordinates depot = locations.get(0);
+        List<Coordinates> remaining = new ArrayList<>(locations.subList(1, locations.size()));
+
+        List<OptimizationResponse.Step> steps = new ArrayList<>();
+        steps.add(step("start", depot));
+
+        double distance = 0;
+        Coordinates current = depot;
+        while (!remaining.isEmpty()) {
+            int nearest = 0;
+            double nearestDistance = roadDistance(current, remaining.get(0));
+            for (int i = 1; i < remaining.size(); i++) {
+                double d = roadDistance(current, remaining.get(i));
+                if (d < nearestDistance) {
+                    nearest = i;
+                    nearestDistance = d;
+                }
+            }
+            current = remaining.remove(nearest);
+            distance += nearestDistance;
+            steps.add(step("job", current));
+        }
+        distance += roadDistance(current, depot);
+        steps.add(step("end", depot));
+
+        OptimizationResponse.Summary summary = new OptimizationResponse.Summary();
+        summary.setDistance(distance);
+        summary.setDuration(distance / averageSpeedMps);
+        OptimizationResponse.Route route = new OptimizationResponse.Route();
+        route.setSteps(steps);
+
+        OptimizationResponse response = new OptimizationResponse();
+        response.setSummary(summary);
+        response.setRoutes(List.of(route));
+        return response;
+    }
+
+    /** Haversine distance in meters, stretched by the detour factor. */
+    public double roadDistance(Coordinates a, Coordinates b) {
+        double lat1 = Math.toRadians(a.getLatitude());
+        double lat2 = Math.toRadians(b.getLatitude());
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(b.getLongitude() - a.getLongitude());
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(h)) * detourFactor;
+    }
+
+    private static OptimizationResponse.Step step(String type, Coordinates coords) {
+        OptimizationResponse.Step step = new OptimizationResponse.Step();
+        step.setType(type);
+        step.setLocation(new double[]{coords.getLongitude(), coords.getLatitude()});
+        return step;
+    }
+}
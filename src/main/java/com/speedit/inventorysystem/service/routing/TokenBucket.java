@@ -0,0 +1,67 @@
+package com.speedit.inventorysystem.service.routing;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket rate limiter. Refills continuously at the configured rate up to the burst size.
+ * A caller willing to wait reserves a token in advance (the balance may go negative),
+ * so concurrent waiters are queued fairly instead of all waking at once.
+ */
+class TokenBucket {
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final LongSupplier nanoClock;
+    private double tokens;
+    private long lastRefillNanos;
+
+    TokenBucket(int requestsPerMinute, int burst) {
+        this(requestsPerMinute, burst, System::nanoTime);
+    }
+
+    // The clock is a parameter so tests can control refills
+    TokenBucket(int requestsPerMinute, int burst, LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+        this.capacity = Math.max(1, burst);
+        this.tokensPerNano = requestsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.tokens = capacity;
+        this.lastRefillNanos = nanoClock.getAsLong();
+    }
+
+    /** Takes a token if one is available right now. */
+    synchronized boolean tryAcquire() {
+        refill();
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    /** Takes a token, sleeping until it is available if that takes no longer than maxWait. */
+    boolean tryAcquire(Duration maxWait) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            waitNanos = (long) ((1 - tokens) / tokensPerNano);
+            if (waitNanos > maxWait.toNanos()) {
+                return false;
+            }
+            tokens -= 1; // reserve the token we are about to wait for
+        }
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+        return true;
+    }
+
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
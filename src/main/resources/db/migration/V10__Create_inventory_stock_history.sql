@@ -0,0 +1,22 @@
+-- Stock rows removed from inventory_stock by StockCompactionService, kept for audit:
+-- DELIVERED = left with a client (inventory_id was NULL), EMPTY = amount had dropped to 0,
+-- MERGED = a duplicate position whose amount was added to merged_into_stock_id.
+-- No foreign keys: history must outlive the products, inventories and order items it mentions.
+CREATE TABLE inventory_stock_history (
+    inventory_stock_id   INT          NOT NULL PRIMARY KEY,
+    inventory_id         INT          NULL,
+    product_id           INT          NOT NULL,
+    order_item_id        INT          NULL,
+    amount               INT          NOT NULL,
+    employee_id          INT          NULL,
+    created_at           DATETIME(6)  NULL,
+    created_by           VARCHAR(255) NULL,
+    updated_at           DATETIME(6)  NULL,
+    updated_by           VARCHAR(255) NULL,
+    archive_reason       VARCHAR(20)  NOT NULL,
+    merged_into_stock_id INT          NULL,
+    archived_at          DATETIME(6)  NOT NULL,
+    INDEX idx_inventory_stock_history_product (product_id, archived_at),
+    INDEX idx_inventory_stock_history_inventory (inventory_id, archived_at)
+);
+
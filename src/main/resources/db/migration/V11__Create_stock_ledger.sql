@@ -0,0 +1,46 @@
+-- Append-only ledger of stock changes: one signed quantity delta per position
+-- (inventory, product, order item) and reason, optionally referencing the stock movement behind it.
+-- Written by StockLedgerService, one batch per transaction; rows are never updated or deleted.
+CREATE TABLE stock_ledger (
+    entry_id       BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    inventory_id   INT          NOT NULL,
+    product_id     INT          NOT NULL,
+    order_item_id  INT          NULL,
+    quantity_delta INT          NOT NULL,
+    reason         VARCHAR(20)  NOT NULL,
+    movement_id    BIGINT       NULL,
+    recorded_at    DATETIME(6)  NOT NULL,
+    recorded_by    VARCHAR(255) NULL,
+    INDEX idx_stock_ledger_recorded_at (recorded_at),
+    INDEX idx_stock_ledger_position (inventory_id, product_id, entry_id)
+);
+
+-- Periodic snapshots: all non-zero positions after applying every entry up to last_entry_id,
+-- so a point-in-time query only replays the entries after the nearest snapshot.
+CREATE TABLE stock_snapshot (
+    snapshot_id    BIGINT      NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    last_entry_id  BIGINT      NOT NULL,
+    covers_until   DATETIME(6) NOT NULL, -- recorded_at of last_entry_id
+    position_count INT         NOT NULL,
+    taken_at       DATETIME(6) NOT NULL,
+    INDEX idx_stock_snapshot_covers_until (covers_until)
+);
+
+CREATE TABLE stock_snapshot_position (
+    snapshot_id   BIGINT NOT NULL,
+    inventory_id  INT    NOT NULL,
+    product_id    INT    NOT NULL,
+    order_item_id INT    NULL,
+    amount        BIGINT NOT NULL,
+    INDEX idx_stock_snapshot_position (snapshot_id, inventory_id, product_id),
+    CONSTRAINT fk_stock_snapshot_position_snapshot
+        FOREIGN KEY (snapshot_id) REFERENCES stock_snapshot (snapshot_id) ON DELETE CASCADE
+);
+
+-- Opening balances, so the ledger adds up to the current stock from the start.
+INSERT INTO stock_ledger (inventory_id, product_id, order_item_id, quantity_delta, reason, movement_id, recorded_at, recorded_by)
+SELECT inventory_id, product_id, order_item_id, SUM(amount), 'OPENING', NULL, NOW(6), NULL
+FROM inventory_stock
+WHERE inventory_id IS NOT NULL
+GROUP BY inventory_id, product_id, order_item_id
+HAVING SUM(amount) <> 0;
@@ -0,0 +1,5 @@
+-- Supports the per-inventory SUM(product.volume * amount) fill level query.
+-- With (inventory_id, product_id, amount) the stock side of the aggregation is read
+-- from the index alone; the product volume comes from the product primary key.
+CREATE INDEX idx_inventory_stock_inventory_product_amount
+    ON inventory_stock (inventory_id, product_id, amount);
@@ -0,0 +1,12 @@
+-- Step 1: Add the maintained occupied-volume counter (cm³), zero for new inventories.
+ALTER TABLE inventory
+ADD COLUMN occupied_volume_cc DECIMAL(30, 10) NOT NULL DEFAULT 0;
+
+-- Step 2: Backfill from the current stock (available + reserved rows).
+UPDATE inventory i
+SET occupied_volume_cc = (
+    SELECT COALESCE(SUM(p.volume * s.amount), 0)
+    FROM inventory_stock s
+    JOIN product p ON p.product_id = s.product_id
+    WHERE s.inventory_id = i.inventory_id
+);
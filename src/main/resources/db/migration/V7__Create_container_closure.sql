@@ -0,0 +1,32 @@
+-- Closure of the container hierarchy: one row per (ancestor, descendant) pair of products where
+-- the ancestor is a container parent that holds the descendant, directly (depth 1) or through
+-- nested containers. multiplier = units of the descendant in one ancestor item.
+-- Maintained by ContainerClosureService on container create/update/delete; rows of deleted
+-- products are removed by the foreign keys.
+CREATE TABLE container_closure (
+    ancestor_product_id   INT    NOT NULL,
+    descendant_product_id INT    NOT NULL,
+    depth                 INT    NOT NULL,
+    multiplier            BIGINT NOT NULL,
+    PRIMARY KEY (ancestor_product_id, descendant_product_id),
+    INDEX idx_container_closure_descendant (descendant_product_id, depth),
+    CONSTRAINT fk_container_closure_ancestor
+        FOREIGN KEY (ancestor_product_id) REFERENCES product (product_id) ON DELETE CASCADE,
+    CONSTRAINT fk_container_closure_descendant
+        FOREIGN KEY (descendant_product_id) REFERENCES product (product_id) ON DELETE CASCADE
+);
+
+-- Backfill from the existing containers (depth guard in case the data has a cycle).
+INSERT INTO container_closure (ancestor_product_id, descendant_product_id, depth, multiplier)
+WITH RECURSIVE paths (ancestor_id, descendant_id, depth, multiplier) AS (
+    SELECT parent_product_id, child_product_id, 1, CAST(quantity AS SIGNED)
+    FROM container
+    UNION ALL
+    SELECT p.ancestor_id, c.child_product_id, p.depth + 1, p.multiplier * c.quantity
+    FROM paths p
+    JOIN container c ON c.parent_product_id = p.descendant_id
+    WHERE p.depth < 50
+)
+SELECT ancestor_id, descendant_id, MIN(depth), MIN(multiplier)
+FROM paths
+GROUP BY ancestor_id, descendant_id;
@@ -0,0 +1,26 @@
+-- Step 1: Canonical option-set key of base products (SHA-256 hex of the sorted option IDs).
+-- NULL for container parents, which carry no options; NULLs do not collide in the unique index.
+ALTER TABLE product
+ADD COLUMN option_signature CHAR(64) NULL;
+
+-- Step 2: Backfill base products. Where existing products already share an option set,
+-- only the oldest one gets the signature so the unique index can be created.
+UPDATE product p
+JOIN (
+    SELECT product_id, signature,
+           ROW_NUMBER() OVER (PARTITION BY signature ORDER BY product_id) AS rn
+    FROM (
+        SELECT pr.product_id,
+               SHA2(COALESCE(GROUP_CONCAT(DISTINCT pom.option_id ORDER BY pom.option_id SEPARATOR ','), ''), 256) AS signature
+        FROM product pr
+        LEFT JOIN product_option_mapping pom ON pom.product_id = pr.product_id
+        WHERE NOT EXISTS (SELECT 1 FROM container c WHERE c.parent_product_id = pr.product_id)
+        GROUP BY pr.product_id
+    ) sig
+) ranked ON ranked.product_id = p.product_id
+SET p.option_signature = ranked.signature
+WHERE ranked.rn = 1;
+
+-- Step 3: Enforce one product per option set.
+ALTER TABLE product
+ADD CONSTRAINT uk_product_option_signature UNIQUE (option_signature);
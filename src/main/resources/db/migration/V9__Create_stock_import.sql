@@ -0,0 +1,15 @@
+-- Progress of streamed CSV stock imports (POST /inventory-stock/import). committed_lines is the
+-- number of file lines (header and rejected lines included) whose stock is committed; it advances
+-- in the same transaction as each chunk's stock writes, so a resumed import skips exactly those lines.
+CREATE TABLE stock_import (
+    import_id       BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    status          VARCHAR(20)  NOT NULL,
+    committed_lines BIGINT       NOT NULL DEFAULT 0,
+    loaded_lines    BIGINT       NOT NULL DEFAULT 0,
+    rejected_lines  BIGINT       NOT NULL DEFAULT 0,
+    last_error      VARCHAR(500) NULL,
+    created_at      DATETIME(6)  NULL,
+    created_by      VARCHAR(255) NULL,
+    updated_at      DATETIME(6)  NULL,
+    updated_by      VARCHAR(255) NULL
+);
@@ -2,8 +2,35 @@
 // Specific logic for the /monitor-stock/inventory/{id} page
 
 document.addEventListener('DOMContentLoaded', function() {
+    // Small inventories ship the data inline; large ones load it from the streaming endpoint
+    if (stockDataJson !== null) {
+        initStockView(JSON.parse(stockDataJson), initialStockSeq);
+        return;
+    }
+    loadStockData()
+        .then(({ data, seq }) => initStockView(data, seq))
+        .catch(error => {
+            console.error('Failed to load stock data:', error);
+            document.getElementById('level-2-container').innerHTML =
+                '<div class="error-message">Could not load stock data. Please refresh the page.</div>';
+        });
+});
+
+/**
+ * Fetches the full dataset from the streaming endpoint, along with the
+ * delta sequence number it is current up to (X-Stock-Seq header).
+ */
+function loadStockData() {
+    return fetch(stockDataUrl, { headers: { 'Accept': 'application/json' } })
+        .then(response => {
+            if (!response.ok) throw new Error('HTTP ' + response.status);
+            const seq = parseInt(response.headers.get('X-Stock-Seq') || '0', 10);
+            return response.json().then(data => ({ data, seq }));
+        });
+}
+
+function initStockView(data, initialSeq) {
     // --- STATE ---
-    const data = JSON.parse(stockDataJson);
     let currentViewBy = initialViewBy;
     
     // --- DOM REFERENCES ---
@@ -20,6 +47,79 @@ document.addEventListener('DOMContentLoaded', function() {
     // --- INITIALIZATION ---
     render();
     setupEventListeners();
+    subscribeToStockEvents(initialSeq);
+
+    // --- LIVE UPDATES (server-sent events) ---
+    /**
+     * Applies stock deltas pushed by the server. Each delta carries the next sequence number;
+     * a gap means we missed something, so we reload the full dataset and subscribe again.
+     */
+    function subscribeToStockEvents(fromSeq) {
+        let lastSeq = fromSeq;
+        const source = new EventSource(stockEventsUrl + '?since=' + lastSeq);
+
+        source.addEventListener('delta', (e) => {
+            const delta = JSON.parse(e.data);
+            if (delta.seq <= lastSeq) return;       // already applied (replay overlap)
+            if (delta.seq !== lastSeq + 1) {        // missed a delta
+                resync();
+                return;
+            }
+            applyDelta(delta);
+            lastSeq = delta.seq;
+            render();
+        });
+        source.addEventListener('resync', () => resync());
+
+        function resync() {
+            source.close();
+            loadStockData()
+                .then(({ data: fresh, seq }) => {
+                    replaceData(fresh);
+                    render();
+                    subscribeToStockEvents(seq);
+                })
+                .catch(error => console.error('Failed to resync stock data:', error));
+        }
+    }
+
+    function applyDelta(delta) {
+        upsertRows('products', delta.products, 'productId', productsMap);
+        upsertRows('users', delta.users, 'userId', usersMap);
+        upsertRows('order-items', delta['order-items'], 'orderItemId', orderItemsMap);
+        upsertRows('orders', delta.orders, 'orderId', ordersMap);
+        upsertRows('inventory-stocks', delta['inventory-stocks'], 'inventoryStockId', null);
+
+        const removedStocks = new Set(delta['removed-inventory-stocks']);
+        data['inventory-stocks'] = data['inventory-stocks'].filter(s => !removedStocks.has(s.inventoryStockId));
+
+        const removedOrders = new Set(delta['removed-orders']);
+        data.orders = data.orders.filter(o => !removedOrders.has(o.orderId));
+        removedOrders.forEach(id => ordersMap.delete(id));
+    }
+
+    function upsertRows(key, rows, idField, lookupMap) {
+        if (!rows || rows.length === 0) return;
+        const byId = new Map(data[key].map(row => [row[idField], row]));
+        rows.forEach(row => {
+            byId.set(row[idField], row);
+            if (lookupMap) lookupMap.set(row[idField], row);
+        });
+        data[key] = Array.from(byId.values());
+    }
+
+    function replaceData(fresh) {
+        Object.keys(fresh).forEach(key => { data[key] = fresh[key]; });
+        resetMap(productsMap, data.products, 'productId');
+        resetMap(usersMap, data.users, 'userId');
+        resetMap(ordersMap, data.orders, 'orderId');
+        resetMap(orderItemsMap, data['order-items'], 'orderItemId');
+    }
+
+    function resetMap(map, rows, idField) {
+        map.clear();
+        rows.forEach(row => map.set(row[idField], row));
+    }
 
     // --- EVENT LISTENERS ---
     function setupEventListeners() {
@@ -319,4 +419,4 @@ document.addEventListener('DOMContentLoaded', function() {
         // If it's not a container, return the original string.
         return productInfo;
     }
-});
\ No newline at end of file
+}
@@ -0,0 +1,310 @@
+package com.speedit.inventorysystem.ors;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the OpenRouteService API, used to exercise RoutingService offline.
+ * Serves /v2/directions, /v2/optimization, /v2/matrix and /geocode/reverse with
+ * deterministic synthetic data derived from straight-line (haversine) distances.
+ *
+ * Latency and error injection are configurable so load tests can simulate a slow or
+ * flaky provider. Point the application at it with ors.api.base-url=http://localhost:{port}.
+ */
+public class OrsStubServer implements AutoCloseable {
+
+    // Synthetic road network: roads are ~30% longer than the straight line, driven at ~40 km/h
+    private static final double DETOUR_FACTOR = 1.3;
+    private static final double AVERAGE_SPEED_MPS = 40_000.0 / 3600.0;
+    private static final int ROUTE_POINTS = 10;
+    // Reverse geocoding splits the map into 0.5° cells, each one a "city"
+    private static final double CITY_CELL_DEGREES = 0.5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, AtomicLong> callCounts = new ConcurrentHashMap<>();
+    private final HttpServer server;
+
+    private volatile Duration latency = Duration.ZERO;
+    private volatile double errorRate = 0.0;
+    private final Random errorRandom = new Random(42);
+
+    public OrsStubServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/v2/directions", exchange -> handle(exchange, "directions", this::directions));
+        server.createContext("/v2/optimization", exchange -> handle(exchange, "optimization", this::optimization));
+        server.createContext("/v2/matrix", exchange -> handle(exchange, "matrix", this::matrix));
+        server.createContext("/geocode/reverse", exchange -> handle(exchange, "geocode", this::reverseGeocode));
+    }
+
+    /** Starts on an ephemeral port. */
+    public static OrsStubServer start() throws IOException {
+        OrsStubServer stub = new OrsStubServer(0);
+        stub.server.start();
+        return stub;
+    }
+
+    /** Runs the stub standalone, e.g. to back a local application run: {@code OrsStubServer [port]}. */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8089;
+        OrsStubServer stub = new OrsStubServer(port);
+        stub.server.start();
+        System.out.println("ORS stub listening on " + stub.getBaseUrl());
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /** Fixed delay added before every response. */
+    public OrsStubServer withLatency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /** Fraction (0..1) of requests answered with 503 instead of a body. */
+    public OrsStubServer withErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    public long getCallCount(String endpoint) {
+        AtomicLong count = callCounts.get(endpoint);
+        return count != null ? count.get() : 0;
+    }
+
+    public Map<String, Long> getCallCounts() {
+        Map<String, Long> snapshot = new HashMap<>();
+        callCounts.forEach((endpoint, count) -> snapshot.put(endpoint, count.get()));
+        return snapshot;
+    }
+
+    public long getTotalCallCount() {
+        return callCounts.values().stream().mapToLong(AtomicLong::get).sum();
+    }
+
+    public void resetCallCounts() {
+        callCounts.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    // ----------------- request plumbing -----------------
+
+    @FunctionalInterface
+    private interface Handler {
+        JsonNode respond(HttpExchange exchange) throws IOException;
+    }
+
+    private void handle(HttpExchange exchange, String endpoint, Handler handler) throws IOException {
+        callCounts.computeIfAbsent(endpoint, e -> new AtomicLong()).incrementAndGet();
+        try {
+            if (!latency.isZero()) {
+                Thread.sleep(latency.toMillis());
+            }
+            boolean fail;
+            synchronized (errorRandom) {
+                fail = errorRate > 0 && errorRandom.nextDouble() < errorRate;
+            }
+            if (fail) {
+                write(exchange, 503, objectMapper.createObjectNode().put("error", "injected failure"));
+                return;
+            }
+            write(exchange, 200, handler.respond(exchange));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            write(exchange, 503, objectMapper.createObjectNode().put("error", "interrupted"));
+        } catch (RuntimeException e) {
+            write(exchange, 400, objectMapper.createObjectNode().put("error", String.valueOf(e.getMessage())));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void write(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    private Map<String, String> queryParams(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private JsonNode readBody(HttpExchange exchange) throws IOException {
+        try (InputStream is = exchange.getRequestBody()) {
+            return objectMapper.readTree(is);
+        }
+    }
+
+    // ----------------- endpoints -----------------
+
+    /** GeoJSON route with interpolated geometry and cumulative per-point times. */
+    private JsonNode directions(HttpExchange exchange) {
+        Map<String, String> params = queryParams(exchange);
+        double[] start = parseLonLat(params.get("start"));
+        double[] end = parseLonLat(params.get("end"));
+
+        double distance = roadDistance(start, end);
+        double duration = distance / AVERAGE_SPEED_MPS;
+
+        ArrayNode coordinates = objectMapper.createArrayNode();
+        ArrayNode timeValues = objectMapper.createArrayNode();
+        for (int i = 0; i < ROUTE_POINTS; i++) {
+            double f = (double) i / (ROUTE_POINTS - 1);
+            coordinates.add(objectMapper.createArrayNode()
+                    .add(start[0] + (end[0] - start[0]) * f)
+                    .add(start[1] + (end[1] - start[1]) * f));
+            if (i > 0) {
+                timeValues.add(objectMapper.createArrayNode().add(i - 1).add(i).add(duration * f));
+            }
+        }
+
+        ObjectNode feature = objectMapper.createObjectNode();
+        feature.putObject("geometry").put("type", "LineString").set("coordinates", coordinates);
+        ObjectNode properties = feature.putObject("properties");
+        properties.putObject("summary").put("distance", distance).put("duration", duration);
+        properties.putObject("extras").putObject("time").set("values", timeValues);
+
+        ObjectNode response = objectMapper.createObjectNode().put("type", "FeatureCollection");
+        response.putArray("features").add(feature);
+        return response;
+    }
+
+    /** Nearest-neighbour tour from the vehicle start through every job and back. */
+    private JsonNode optimization(HttpExchange exchange) throws IOException {
+        JsonNode request = readBody(exchange);
+        JsonNode vehicle = request.get("vehicles").get(0);
+        double[] depot = toLonLat(vehicle.get("start"));
+
+        List<double[]> remaining = new ArrayList<>();
+        for (JsonNode job : request.get("jobs")) {
+            remaining.add(toLonLat(job.get("location")));
+        }
+
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode steps = objectMapper.createArrayNode();
+        steps.add(step("start", depot));
+
+        double distance = 0;
+        double[] current = depot;
+        while (!remaining.isEmpty()) {
+            int nearest = 0;
+            for (int i = 1; i < remaining.size(); i++) {
+                if (roadDistance(current, remaining.get(i)) < roadDistance(current, remaining.get(nearest))) {
+                    nearest = i;
+                }
+            }
+            double[] next = remaining.remove(nearest);
+            distance += roadDistance(current, next);
+            steps.add(step("job", next));
+            current = next;
+        }
+        distance += roadDistance(current, depot);
+        steps.add(step("end", depot));
+
+        response.putObject("summary").put("distance", distance).put("duration", distance / AVERAGE_SPEED_MPS);
+        response.putArray("routes").addObject().set("steps", steps);
+        return response;
+    }
+
+    private JsonNode matrix(HttpExchange exchange) throws IOException {
+        JsonNode request = readBody(exchange);
+        List<double[]> locations = new ArrayList<>();
+        for (JsonNode location : request.get("locations")) {
+            locations.add(toLonLat(location));
+        }
+
+        ObjectNode response = objectMapper.createObjectNode();
+        ArrayNode distances = response.putArray("distances");
+        ArrayNode durations = response.putArray("durations");
+        for (double[] from : locations) {
+            ArrayNode distanceRow = distances.addArray();
+            ArrayNode durationRow = durations.addArray();
+            for (double[] to : locations) {
+                double d = roadDistance(from, to);
+                distanceRow.add(d);
+                durationRow.add(d / AVERAGE_SPEED_MPS);
+            }
+        }
+        return response;
+    }
+
+    /** Every 0.5° x 0.5° cell is reported as its own locality. */
+    private JsonNode reverseGeocode(HttpExchange exchange) {
+        Map<String, String> params = queryParams(exchange);
+        double lon = Double.parseDouble(params.get("point.lon"));
+        double lat = Double.parseDouble(params.get("point.lat"));
+        String city = "City-" + (long) Math.floor(lat / CITY_CELL_DEGREES) + "-" + (long) Math.floor(lon / CITY_CELL_DEGREES);
+
+        ObjectNode response = objectMapper.createObjectNode();
+        ObjectNode properties = response.putArray("features").addObject().putObject("properties");
+        properties.put("locality", city);
+        properties.put("label", String.format("Stub Street, %s (%.5f, %.5f)", city, lat, lon));
+        return response;
+    }
+
+    // ----------------- geometry helpers -----------------
+
+    private ObjectNode step(String type, double[] lonLat) {
+        ObjectNode step = objectMapper.createObjectNode().put("type", type);
+        step.putArray("location").add(lonLat[0]).add(lonLat[1]);
+        return step;
+    }
+
+    private static double[] parseLonLat(String value) {
+        String[] parts = value.split(",");
+        return new double[]{Double.parseDouble(parts[0]), Double.parseDouble(parts[1])};
+    }
+
+    private static double[] toLonLat(JsonNode node) {
+        return new double[]{node.get(0).asDouble(), node.get(1).asDouble()};
+    }
+
+    /** Haversine distance in meters, stretched by the detour factor. */
+    private static double roadDistance(double[] a, double[] b) {
+        double lat1 = Math.toRadians(a[1]);
+        double lat2 = Math.toRadians(b[1]);
+        double dLat = lat2 - lat1;
+        double dLon = Math.toRadians(b[0] - a[0]);
+        double h = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(lat1) * Math.cos(lat2) * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * 6_371_000.0 * Math.asin(Math.sqrt(h)) * DETOUR_FACTOR;
+    }
+}
@@ -0,0 +1,181 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.enums.AuditOverflowPolicy;
+import com.speedit.inventorysystem.event.AuditEvent;
+import com.speedit.inventorysystem.repository.TransactionLogRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AuditLogServiceTest {
+
+    private final TransactionLogRepository transactionLogRepository = mock(TransactionLogRepository.class);
+    private final List<TransactionLogRepository.Row> written = new ArrayList<>();
+
+    // ----------------- Ring -----------------
+
+    @Test
+    void ringIsEmptyUntilOfferedAndRoundsCapacityUpToAPowerOfTwo() {
+        AuditLogService.Ring<Integer> ring = new AuditLogService.Ring<>(3);
+        assertNull(ring.poll());
+        assertEquals(0, ring.size());
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(4)); // full at 4
+        assertEquals(4, ring.size());
+    }
+
+    @Test
+    void ringKeepsFifoOrderAcrossWraparound() {
+        AuditLogService.Ring<Integer> ring = new AuditLogService.Ring<>(4);
+        List<Integer> taken = new ArrayList<>();
+        // Ten laps over four slots, with the ring alternately filled and drained
+        for (int lap = 0; lap < 10; lap++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(ring.offer(lap * 4 + i));
+            }
+            assertFalse(ring.offer(-1));
+            for (int i = 0; i < 4; i++) {
+                taken.add(ring.poll());
+            }
+            assertNull(ring.poll());
+        }
+        assertEquals(IntStream.range(0, 40).boxed().toList(), taken);
+    }
+
+    @Test
+    void ringFreesASlotPerPoll() {
+        AuditLogService.Ring<Integer> ring = new AuditLogService.Ring<>(2);
+        ring.offer(1);
+        ring.offer(2);
+        assertEquals(1, ring.poll());
+        assertTrue(ring.offer(3));
+        assertFalse(ring.offer(4));
+        assertEquals(2, ring.poll());
+        assertEquals(3, ring.poll());
+        assertEquals(0, ring.size());
+    }
+
+    // ----------------- Overflow policies -----------------
+
+    @Test
+    void dropNewestKeepsTheBufferedEntries() throws InterruptedException {
+        AuditLogService service = service(4, AuditOverflowPolicy.DROP_NEWEST);
+        recordAll(service, 6);
+
+        assertEquals(2, service.droppedCount());
+        service.start();
+        service.shutdown();
+        assertEquals(List.of("action 0", "action 1", "action 2", "action 3"), writtenActions());
+    }
+
+    @Test
+    void dropOldestMakesRoomForTheNewEntries() throws InterruptedException {
+        AuditLogService service = service(4, AuditOverflowPolicy.DROP_OLDEST);
+        recordAll(service, 6);
+
+        assertEquals(2, service.droppedCount());
+        service.start();
+        service.shutdown();
+        assertEquals(List.of("action 2", "action 3", "action 4", "action 5"), writtenActions());
+    }
+
+    @Test
+    void blockDropsTheNewEntryWhenTheWriterDoesNotMakeRoomInTime() throws InterruptedException {
+        AuditLogService service = service(2, AuditOverflowPolicy.BLOCK);
+        ReflectionTestUtils.setField(service, "blockTimeoutMs", 20L);
+        recordAll(service, 3); // no writer running
+
+        assertEquals(1, service.droppedCount());
+        service.start();
+        service.shutdown();
+        assertEquals(List.of("action 0", "action 1"), writtenActions());
+    }
+
+    @Test
+    void blockWaitsForTheWriterToMakeRoom() throws InterruptedException {
+        AuditLogService service = service(2, AuditOverflowPolicy.BLOCK);
+        ReflectionTestUtils.setField(service, "blockTimeoutMs", 10_000L);
+        recordAll(service, 2);
+        service.start(); // drains right away, or when the blocked producer wakes it; never waits for the flush interval
+
+        service.record("action 2");
+        service.shutdown();
+        assertEquals(0, service.droppedCount());
+        assertEquals(List.of("action 0", "action 1", "action 2"), writtenActions());
+    }
+
+    // ----------------- Writer -----------------
+
+    @Test
+    void shutdownFlushesEverythingStillBuffered() throws InterruptedException {
+        AuditLogService service = service(64, AuditOverflowPolicy.DROP_NEWEST);
+        service.start();
+        recordAll(service, 25); // more than one batch, all waiting for the next flush interval
+        service.onAuditEvent(new AuditEvent("Allocated order #5"));
+
+        service.shutdown();
+
+        List<String> expected = new ArrayList<>(IntStream.range(0, 25).mapToObj(i -> "action " + i).toList());
+        expected.add("Allocated order #5");
+        assertEquals(expected, writtenActions());
+        assertEquals(0, service.droppedCount());
+    }
+
+    @Test
+    void entriesWithoutAnyUserAreSkipped() throws InterruptedException {
+        AuditLogService service = service(8, AuditOverflowPolicy.DROP_NEWEST);
+        ReflectionTestUtils.setField(service, "systemUserId", null);
+        service.start();
+        recordAll(service, 3);
+        service.shutdown();
+
+        assertEquals(List.of(), writtenActions());
+        assertEquals(3, service.skippedCount());
+    }
+
+    private AuditLogService service(int capacity, AuditOverflowPolicy policy) {
+        @SuppressWarnings("unchecked")
+        AuditorAware<String> auditorAware = mock(AuditorAware.class);
+        when(auditorAware.getCurrentAuditor()).thenReturn(Optional.empty());
+        when(transactionLogRepository.findUserIdsByEmails(anyCollection())).thenReturn(Map.of());
+        doAnswer(invocation -> written.addAll(invocation.getArgument(0)))
+                .when(transactionLogRepository).insertAll(anyList());
+
+        AuditLogService service = new AuditLogService(transactionLogRepository, auditorAware, capacity, policy);
+        ReflectionTestUtils.setField(service, "batchSize", 10);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", 60_000L); // only shutdown or BLOCK wakes the writer
+        ReflectionTestUtils.setField(service, "blockTimeoutMs", 50L);
+        ReflectionTestUtils.setField(service, "shutdownTimeoutMs", 10_000L);
+        ReflectionTestUtils.setField(service, "systemUserId", 1);
+        return service;
+    }
+
+    private static void recordAll(AuditLogService service, int count) {
+        for (int i = 0; i < count; i++) {
+            service.record("action " + i);
+        }
+    }
+
+    private List<String> writtenActions() {
+        return written.stream().map(TransactionLogRepository.Row::action).toList();
+    }
+}
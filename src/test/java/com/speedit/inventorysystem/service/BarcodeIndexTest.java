@@ -0,0 +1,121 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BarcodeIndexTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private BarcodeIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new BarcodeIndex(productRepository, mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(index, "countryPrefix", "628");
+        ReflectionTestUtils.setField(index, "companyPrefix", "1234");
+    }
+
+    // ----------------- LongIntTable -----------------
+
+    @Test
+    void tableGrowsPastItsInitialCapacity() {
+        BarcodeIndex.LongIntTable table = new BarcodeIndex.LongIntTable(0);
+        for (int i = 1; i <= 1000; i++) {
+            table.put(6281234000000L + i, i);
+        }
+
+        assertEquals(1000, table.size());
+        for (int i = 1; i <= 1000; i++) {
+            assertEquals(i, table.get(6281234000000L + i));
+        }
+        assertEquals(BarcodeIndex.NOT_FOUND, table.get(6281234001001L));
+    }
+
+    @Test
+    void putReplacesTheValueOfAnExistingKey() {
+        BarcodeIndex.LongIntTable table = new BarcodeIndex.LongIntTable(4);
+        table.put(6281234000017L, 1);
+        table.put(6281234000017L, 2);
+
+        assertEquals(1, table.size());
+        assertEquals(2, table.get(6281234000017L));
+    }
+
+    @Test
+    void removeKeepsCollidingKeysReachable() {
+        // Far more keys than slots in the initial table, so probe runs form and wrap around;
+        // checked against a HashMap after every removal
+        BarcodeIndex.LongIntTable table = new BarcodeIndex.LongIntTable(0);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 5000; i++) {
+            long key = 6281234000000L + random.nextInt(100_000);
+            table.put(key, i);
+            expected.put(key, i);
+        }
+
+        List<Long> keys = new ArrayList<>(expected.keySet());
+        for (int i = 0; i < keys.size(); i += 2) {
+            table.remove(keys.get(i));
+            expected.remove(keys.get(i));
+        }
+        table.remove(6281234999999L); // absent, no-op
+
+        assertEquals(expected.size(), table.size());
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(expected.getOrDefault(keys.get(i), BarcodeIndex.NOT_FOUND), table.get(keys.get(i)));
+        }
+    }
+
+    // ----------------- Index -----------------
+
+    @Test
+    void buildsOnFirstLookupAndSkipsProductsWithoutChecksum() {
+        when(productRepository.findAllBarcodeChecksums()).thenReturn(List.of(
+                new Object[]{1, 7},
+                new Object[]{2, null}));
+
+        assertEquals(1, index.lookup(index.barcodeOf(1, 7)));
+        assertEquals(BarcodeIndex.NOT_FOUND, index.lookup(index.barcodeOf(1, 6)));
+        assertEquals(BarcodeIndex.NOT_FOUND, index.lookup(index.barcodeOf(2, 0)));
+        verify(productRepository, times(1)).findAllBarcodeChecksums();
+    }
+
+    @Test
+    void refreshDropsDeletedProductsAndAddsNewOnes() {
+        when(productRepository.findAllBarcodeChecksums()).thenReturn(List.of(
+                new Object[]{1, 7},
+                new Object[]{2, 4}));
+        index.lookup(0L);
+
+        // Product 1 deleted, product 3 created; no transaction, so the refresh is immediate
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{3, 5});
+        when(productRepository.findBarcodeChecksums(List.of(1, 3))).thenReturn(rows);
+        index.refreshAfterCommit(List.of(1, 3));
+
+        assertEquals(BarcodeIndex.NOT_FOUND, index.lookup(index.barcodeOf(1, 7)));
+        assertEquals(2, index.lookup(index.barcodeOf(2, 4)));
+        assertEquals(3, index.lookup(index.barcodeOf(3, 5)));
+    }
+
+    @Test
+    void barcodeOfPadsTheProductReference() {
+        assertEquals(6281234000427L, index.barcodeOf(42, 7));
+    }
+}
@@ -0,0 +1,127 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.dto.ScanResultDTO;
+import com.speedit.inventorysystem.dto.ScanResultDTO.Status;
+import com.speedit.inventorysystem.enums.UnitType;
+import com.speedit.inventorysystem.repository.InventoryStockRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BarcodeScanServiceTest {
+
+    private static final int BASE_PRODUCT = 10;
+    private static final int BOX_PRODUCT = 20;
+
+    private final BarcodeIndex barcodeIndex = mock(BarcodeIndex.class);
+    private final ContainerService containerService = mock(ContainerService.class);
+    private final ContainerGraphService containerGraphService = mock(ContainerGraphService.class);
+    private final ContainerClosureService containerClosureService = mock(ContainerClosureService.class);
+    private final InventoryStockRepository inventoryStockRepository = mock(InventoryStockRepository.class);
+    private final ProductService productService = new ProductService();
+    private BarcodeScanService scanService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(productService, "countryPrefix", "628");
+        ReflectionTestUtils.setField(productService, "companyPrefix", "1234");
+        scanService = new BarcodeScanService(barcodeIndex, productService, containerService,
+                containerGraphService, containerClosureService, inventoryStockRepository);
+        ReflectionTestUtils.setField(scanService, "countryPrefix", "628");
+        ReflectionTestUtils.setField(scanService, "companyPrefix", "1234");
+
+        // BOX_PRODUCT is a box of 12 BASE_PRODUCT
+        List<Object[]> links = new ArrayList<>();
+        links.add(new Object[]{BOX_PRODUCT, UnitType.BOX, 12, BASE_PRODUCT});
+        when(containerGraphService.current()).thenReturn(ContainerGraph.build(1, links, Map.of()));
+        when(barcodeIndex.lookup(anyLong())).thenReturn(BarcodeIndex.NOT_FOUND);
+        when(barcodeIndex.lookup(Long.parseLong(code(BASE_PRODUCT)))).thenReturn(BASE_PRODUCT);
+        when(barcodeIndex.lookup(Long.parseLong(code(BOX_PRODUCT)))).thenReturn(BOX_PRODUCT);
+    }
+
+    @Test
+    void resolvesMixedProductAndContainerBatchWithOneQueryEach() {
+        when(inventoryStockRepository.sumAmountsByInventoryForProducts(Set.of(BASE_PRODUCT, BOX_PRODUCT)))
+                .thenReturn(List.of(
+                        new Object[]{1, BASE_PRODUCT, 30L, 5L},
+                        new Object[]{2, BASE_PRODUCT, 10L, null},
+                        new Object[]{1, BOX_PRODUCT, 4L, 1L}));
+        List<Object[]> ancestors = new ArrayList<>();
+        ancestors.add(new Object[]{BASE_PRODUCT, BOX_PRODUCT});
+        when(containerClosureService.findAncestorRowsOf(Set.of(BASE_PRODUCT, BOX_PRODUCT))).thenReturn(ancestors);
+        when(containerService.buildProductInfoStrings(Set.of(BASE_PRODUCT, BOX_PRODUCT)))
+                .thenReturn(Map.of(BASE_PRODUCT, "Chocolate", BOX_PRODUCT, "BOX contains 12"));
+
+        List<ScanResultDTO> results = scanService.resolve(
+                List.of(code(BASE_PRODUCT), " " + code(BOX_PRODUCT) + " ", code(BASE_PRODUCT)));
+
+        assertEquals(3, results.size());
+        ScanResultDTO base = results.get(0);
+        assertEquals(Status.FOUND, base.getStatus());
+        assertFalse(base.isContainer());
+        assertEquals(BASE_PRODUCT, base.getLeafProductId());
+        assertEquals(1L, base.getUnitsPerItem());
+        assertEquals(40L, base.getAvailableItems());
+        assertEquals(5L, base.getReservedItems());
+        assertEquals(List.of(BOX_PRODUCT), base.getHeldIn());
+
+        ScanResultDTO box = results.get(1);
+        assertEquals(code(BOX_PRODUCT), box.getCode());
+        assertTrue(box.isContainer());
+        assertEquals("BOX contains 12", box.getProductInfo());
+        assertEquals(BASE_PRODUCT, box.getLeafProductId());
+        assertEquals(12L, box.getUnitsPerItem());
+        assertEquals(4L, box.getAvailableItems());
+        assertEquals(List.of(), box.getHeldIn());
+
+        assertEquals(BASE_PRODUCT, results.get(2).getProductId()); // duplicates resolved again, not dropped
+    }
+
+    @Test
+    void reportsWhyEachUnresolvedCodeFailed() {
+        String valid = code(BASE_PRODUCT);
+        char wrongDigit = (char) ('0' + (valid.charAt(12) - '0' + 1) % 10);
+        String badChecksum = valid.substring(0, 12) + wrongDigit;
+
+        List<ScanResultDTO> results = scanService.resolve(
+                List.of("62812340001", "9991234000105", badChecksum, code(99), "", valid));
+
+        assertEquals(Status.INVALID_FORMAT, results.get(0).getStatus());
+        assertEquals(Status.UNKNOWN_PREFIX, results.get(1).getStatus());
+        assertEquals(Status.CHECKSUM_MISMATCH, results.get(2).getStatus());
+        assertEquals(Status.NOT_FOUND, results.get(3).getStatus());
+        assertNull(results.get(3).getProductId());
+        assertEquals(Status.INVALID_FORMAT, results.get(4).getStatus());
+        assertEquals(Status.FOUND, results.get(5).getStatus());
+        verify(barcodeIndex, never()).lookup(Long.parseLong(badChecksum));
+    }
+
+    @Test
+    void batchWithoutKnownProductsSkipsTheStockQueries() {
+        List<ScanResultDTO> results = scanService.resolve(List.of(code(99)));
+
+        assertEquals(Status.NOT_FOUND, results.get(0).getStatus());
+        verify(inventoryStockRepository, never()).sumAmountsByInventoryForProducts(anyCollection());
+        verify(containerService, never()).buildProductInfoStrings(anyCollection());
+    }
+
+    private String code(int productId) {
+        return "6281234" + String.format("%05d", productId) + productService.calculateChecksumDigit(productId);
+    }
+}
@@ -0,0 +1,66 @@
+package com.speedit.inventorysystem.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BarcodeServiceTest {
+
+    private static final String CODE = "6281234000105";
+
+    @TempDir
+    Path diskDir;
+
+    private BarcodeService barcodeService;
+
+    @AfterEach
+    void tearDown() {
+        if (barcodeService != null) {
+            barcodeService.shutdown();
+        }
+    }
+
+    @Test
+    void defaultSizeIsKeptOnDiskAcrossRestarts() throws Exception {
+        barcodeService = new BarcodeService(10, diskDir.toString());
+        byte[] image = barcodeService.getBarcodeImage(CODE, BarcodeService.DEFAULT_WIDTH, BarcodeService.DEFAULT_HEIGHT);
+
+        Path file = diskDir.resolve(
+                barcodeService.cacheKey(CODE, BarcodeService.DEFAULT_WIDTH, BarcodeService.DEFAULT_HEIGHT) + ".png");
+        assertTrue(Files.isRegularFile(file));
+        assertEquals(1, cacheFiles());
+
+        // A fresh instance (empty memory tier) serves the stored file
+        barcodeService.shutdown();
+        barcodeService = new BarcodeService(10, diskDir.toString());
+        Files.write(file, new byte[]{1, 2, 3});
+        assertArrayEquals(new byte[]{1, 2, 3},
+                barcodeService.getBarcodeImage(CODE, BarcodeService.DEFAULT_WIDTH, BarcodeService.DEFAULT_HEIGHT));
+        assertTrue(image.length > 3);
+    }
+
+    @Test
+    void otherSizesStayInMemoryOnly() throws Exception {
+        barcodeService = new BarcodeService(10, diskDir.toString());
+        byte[] first = barcodeService.getBarcodeImage(CODE, 600, 160);
+        barcodeService.getBarcodeImage(CODE, 400, 100);
+
+        assertEquals(0, cacheFiles());
+        assertArrayEquals(first, barcodeService.getBarcodeImage(CODE, 600, 160));
+    }
+
+    private long cacheFiles() throws IOException {
+        try (Stream<Path> files = Files.list(diskDir)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.enums.UnitType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContainerGraphTest {
+
+    // CASE 30 holds 4 BOX 20, which holds 12 PACK 10, which holds 6 of base product 1
+    private static List<Object[]> links(UnitType caseUnit) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{10, UnitType.PACK, 6, 1});
+        rows.add(new Object[]{20, UnitType.BOX, 12, 10});
+        rows.add(new Object[]{30, caseUnit, 4, 20});
+        return rows;
+    }
+
+    @Test
+    void precomputesTheChainDownToTheLeaf() {
+        ContainerGraph graph = ContainerGraph.build(1, links(UnitType.CASE), Map.of(1, "Break, Chocolate"));
+
+        ContainerGraph.Node node = graph.node(30);
+        assertEquals(3, node.depth());
+        assertEquals(1, node.leafProductId());
+        assertEquals(4L * 12 * 6, node.multiplier());
+        assertEquals(List.of(30, 20, 10), node.chain().stream().map(ContainerGraph.Link::parentProductId).toList());
+        assertEquals("CASE contains 4 -> BOX contains 12 -> PACK contains 6 -> Break, Chocolate", node.infoString());
+        assertEquals("PACK contains 6 -> Break, Chocolate", graph.node(10).infoString());
+    }
+
+    @Test
+    void baseProductsHaveNoNode() {
+        ContainerGraph graph = ContainerGraph.build(1, links(UnitType.CASE), Map.of());
+
+        assertNull(graph.node(1));
+        assertFalse(graph.isContainer(1));
+        assertTrue(graph.isContainer(20));
+        assertEquals("BOX contains 12 -> PACK contains 6", graph.node(20).infoString());
+        assertEquals(Set.of(1), ContainerGraph.leafProductIds(links(UnitType.CASE)));
+    }
+
+    @Test
+    void unitChangesShowInTheRebuiltInfoStrings() {
+        ContainerGraph before = ContainerGraph.build(1, links(UnitType.CASE), Map.of());
+        ContainerGraph after = ContainerGraph.build(2, links(UnitType.BOX), Map.of());
+
+        assertEquals("CASE contains 4 -> BOX contains 12 -> PACK contains 6", before.node(30).infoString());
+        assertEquals("BOX contains 4 -> BOX contains 12 -> PACK contains 6", after.node(30).infoString());
+        assertEquals(UnitType.BOX, after.node(30).chain().get(0).unit());
+    }
+
+    @Test
+    void cyclicLinksEndTheChainInsteadOfLooping() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{10, UnitType.PACK, 2, 20});
+        rows.add(new Object[]{20, UnitType.BOX, 3, 10});
+
+        ContainerGraph graph = ContainerGraph.build(1, rows, Map.of());
+        assertEquals(2, graph.node(10).depth());
+        assertEquals(6L, graph.node(10).multiplier());
+    }
+}
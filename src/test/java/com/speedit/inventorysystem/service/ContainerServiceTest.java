@@ -0,0 +1,95 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.dto.ContainerRequestDTO;
+import com.speedit.inventorysystem.enums.UnitType;
+import com.speedit.inventorysystem.model.Container;
+import com.speedit.inventorysystem.model.Product;
+import com.speedit.inventorysystem.repository.ContainerRepository;
+import com.speedit.inventorysystem.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Which derived views {@link ContainerService#updateContainer} refreshes for each kind of edit. */
+class ContainerServiceTest {
+
+    private final ContainerRepository containerRepository = mock(ContainerRepository.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ContainerClosureService containerClosureService = mock(ContainerClosureService.class);
+    private final ContainerGraphService containerGraphService = mock(ContainerGraphService.class);
+    private final ProductSearchIndex productSearchIndex = mock(ProductSearchIndex.class);
+    private final ContainerService containerService = new ContainerService();
+
+    private Container container;
+    private Product child;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(containerService, "containerRepository", containerRepository);
+        ReflectionTestUtils.setField(containerService, "productRepository", productRepository);
+        ReflectionTestUtils.setField(containerService, "occupiedVolumeService", mock(OccupiedVolumeService.class));
+        ReflectionTestUtils.setField(containerService, "containerClosureService", containerClosureService);
+        ReflectionTestUtils.setField(containerService, "containerGraphService", containerGraphService);
+        ReflectionTestUtils.setField(containerService, "productSearchIndex", productSearchIndex);
+
+        Product parent = new Product();
+        parent.setProductId(20);
+        parent.setVolume(new BigDecimal("1000"));
+        child = new Product();
+        child.setProductId(10);
+        container = new Container();
+        container.setParentProduct(parent);
+        container.setChildProduct(child);
+        container.setQuantity(12);
+        container.setUnit(UnitType.BOX);
+
+        when(containerRepository.findByParentProduct_ProductId(20)).thenReturn(Optional.of(container));
+        when(productRepository.findById(10)).thenReturn(Optional.of(child));
+        when(containerRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void unitOnlyEditRebuildsTheGraphWithoutRelinking() {
+        containerService.updateContainer(20, request(10, 12, UnitType.CASE));
+
+        assertEquals(UnitType.CASE, container.getUnit());
+        verify(containerGraphService).rebuildAfterCommit();
+        verify(productSearchIndex).refreshAfterCommit(List.of(20));
+        verify(containerClosureService, never()).relink(anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    @Test
+    void quantityEditRelinksAndRebuilds() {
+        containerService.updateContainer(20, request(10, 24, UnitType.BOX));
+
+        verify(containerClosureService).relink(20, 10, 10, 24);
+        verify(containerGraphService).rebuildAfterCommit();
+        verify(productSearchIndex).refreshAfterCommit(List.of(20));
+    }
+
+    @Test
+    void dimensionsOnlyEditLeavesTheLinkViewsAlone() {
+        containerService.updateContainer(20, request(10, 12, UnitType.BOX));
+
+        verify(containerGraphService, never()).rebuildAfterCommit();
+        verify(productSearchIndex, never()).refreshAfterCommit(any());
+        verify(containerClosureService, never()).relink(anyInt(), anyInt(), anyInt(), anyInt());
+    }
+
+    private static ContainerRequestDTO request(Integer childProductId, Integer quantity, UnitType unit) {
+        return new ContainerRequestDTO(new BigDecimal("9.99"), "centimeter", BigDecimal.TEN, BigDecimal.TEN,
+                BigDecimal.TEN, childProductId, quantity, unit);
+    }
+}
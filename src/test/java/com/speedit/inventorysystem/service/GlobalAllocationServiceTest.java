@@ -0,0 +1,123 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.dto.allocation.AllocationChunk;
+import com.speedit.inventorysystem.dto.allocation.GlobalAllocationPlan;
+import com.speedit.inventorysystem.dto.allocation.OrderItemAllocationPlan;
+import com.speedit.inventorysystem.dto.allocation.PathCandidateDto;
+import com.speedit.inventorysystem.enums.LedgerReason;
+import com.speedit.inventorysystem.event.AuditEvent;
+import com.speedit.inventorysystem.model.Inventory;
+import com.speedit.inventorysystem.model.InventoryStock;
+import com.speedit.inventorysystem.model.Order;
+import com.speedit.inventorysystem.model.OrderItem;
+import com.speedit.inventorysystem.model.Product;
+import com.speedit.inventorysystem.model.StockMovement;
+import com.speedit.inventorysystem.repository.InventoryStockRepository;
+import com.speedit.inventorysystem.repository.OrderRepository;
+import com.speedit.inventorysystem.repository.StockMovementRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GlobalAllocationServiceTest {
+
+    private final InventoryStockRepository stockRepository = mock(InventoryStockRepository.class);
+    private final StockMovementRepository movementRepository = mock(StockMovementRepository.class);
+    private final StockLedgerService stockLedgerService = mock(StockLedgerService.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final GlobalAllocationService allocationService = new GlobalAllocationService(
+            mock(CandidateGeneratorService.class), stockRepository, movementRepository, mock(OrderRepository.class),
+            stockLedgerService, eventPublisher);
+
+    private InventoryStock available;
+    private OrderItem item;
+
+    @BeforeEach
+    void setUp() {
+        Inventory warehouse = new Inventory();
+        warehouse.setInventoryId(1);
+        Product product = new Product();
+        product.setProductId(10);
+        available = new InventoryStock();
+        available.setInventoryStockId(50);
+        available.setInventory(warehouse);
+        available.setProduct(product);
+        available.setAmount(10);
+
+        Order order = new Order();
+        order.setOrderId(5);
+        item = new OrderItem();
+        item.setOrderItemId(100);
+        item.setOrder(order);
+
+        when(stockRepository.findById(50)).thenReturn(Optional.of(available));
+        when(stockRepository.findReservedByOrderItemAndInventoryAndProduct(item, warehouse, product))
+                .thenReturn(Optional.empty());
+        when(stockRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(movementRepository.save(any())).thenAnswer(invocation -> {
+            StockMovement movement = invocation.getArgument(0);
+            movement.setMovementId(77L);
+            return movement;
+        });
+    }
+
+    @Test
+    void commitRecordsTheReservationAsAvailableOutReservedIn() {
+        allocationService.commitGlobalPlan(plan(4, true));
+
+        assertEquals(6, available.getAmount());
+        verify(stockLedgerService).record(1, 10, null, -4, LedgerReason.RESERVED, 77L);
+        verify(stockLedgerService).record(1, 10, 100, 4, LedgerReason.RESERVED, 77L);
+    }
+
+    @Test
+    void commitAuditsEachAllocatedOrder() {
+        allocationService.commitGlobalPlan(plan(4, true));
+
+        verify(eventPublisher).publishEvent(new AuditEvent("Allocated order #5"));
+    }
+
+    @Test
+    void rejectedPlanRecordsNothing() {
+        assertThrows(IllegalStateException.class, () -> allocationService.commitGlobalPlan(plan(4, false)));
+        assertThrows(IllegalStateException.class, () -> allocationService.commitGlobalPlan(plan(11, true)));
+
+        verify(stockLedgerService, never()).record(any(), any(), any(), anyInt(), any(), any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    private GlobalAllocationPlan plan(int quantity, boolean fullyAllocated) {
+        PathCandidateDto candidate = PathCandidateDto.builder()
+                .primaryInventoryStock(available)
+                .productId(10)
+                .movements(List.of(StockMovement.builder().build()))
+                .build();
+        AllocationChunk chunk = AllocationChunk.builder()
+                .orderItem(item)
+                .candidate(candidate)
+                .quantity(quantity)
+                .build();
+        OrderItemAllocationPlan itemPlan = OrderItemAllocationPlan.builder()
+                .orderItem(item)
+                .requestedQuantity(quantity)
+                .allocatedQuantity(quantity)
+                .chunks(List.of(chunk))
+                .build();
+        return GlobalAllocationPlan.builder()
+                .itemPlans(List.of(itemPlan))
+                .fullyAllocated(fullyAllocated)
+                .build();
+    }
+}
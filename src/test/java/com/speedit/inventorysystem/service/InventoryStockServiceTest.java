@@ -0,0 +1,203 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.dto.OrderDTO;
+import com.speedit.inventorysystem.dto.ProductUnloadDTO;
+import com.speedit.inventorysystem.dto.UnloadRequestDTO;
+import com.speedit.inventorysystem.enums.LedgerReason;
+import com.speedit.inventorysystem.model.Inventory;
+import com.speedit.inventorysystem.model.InventoryStock;
+import com.speedit.inventorysystem.model.OrderItem;
+import com.speedit.inventorysystem.model.Product;
+import com.speedit.inventorysystem.repository.InventoryRepository;
+import com.speedit.inventorysystem.repository.InventoryStockBulkRepository;
+import com.speedit.inventorysystem.repository.InventoryStockRepository;
+import com.speedit.inventorysystem.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** Stock rows and ledger entries written by the stock-changing paths of {@link InventoryStockService}. */
+class InventoryStockServiceTest {
+
+    private final InventoryStockRepository stockRepo = mock(InventoryStockRepository.class);
+    private final InventoryRepository invRepo = mock(InventoryRepository.class);
+    private final ProductRepository prodRepo = mock(ProductRepository.class);
+    private final InventoryStockBulkRepository bulkStockRepo = mock(InventoryStockBulkRepository.class);
+    private final StockLedgerService stockLedgerService = mock(StockLedgerService.class);
+    private final InventoryStockService stockService = new InventoryStockService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(stockService, "stockRepo", stockRepo);
+        ReflectionTestUtils.setField(stockService, "invRepo", invRepo);
+        ReflectionTestUtils.setField(stockService, "prodRepo", prodRepo);
+        ReflectionTestUtils.setField(stockService, "bulkStockRepo", bulkStockRepo);
+        ReflectionTestUtils.setField(stockService, "occupiedVolumeService", mock(OccupiedVolumeService.class));
+        ReflectionTestUtils.setField(stockService, "eventPublisher", mock(ApplicationEventPublisher.class));
+        ReflectionTestUtils.setField(stockService, "stockLedgerService", stockLedgerService);
+    }
+
+    @Test
+    void loadRecordsOneLoadEntryPerProduct() {
+        List<Object[]> volumes = new ArrayList<>();
+        volumes.add(new Object[]{10, new BigDecimal("100")});
+        volumes.add(new Object[]{11, new BigDecimal("250")});
+        when(prodRepo.findVolumesByIds(Set.of(10, 11))).thenReturn(volumes);
+        when(bulkStockRepo.lockAvailableStockIds(1, Set.of(10, 11))).thenReturn(Map.of(10, 500));
+        when(bulkStockRepo.insertAvailable(1, List.of(11), List.of(3))).thenReturn(List.of(501));
+
+        Map<Integer, Integer> amounts = new LinkedHashMap<>();
+        amounts.put(10, 5);
+        amounts.put(11, 3);
+        stockService.loadAvailableStock(1, amounts);
+
+        verify(stockLedgerService).record(1, 10, null, 5, LedgerReason.LOAD, null);
+        verify(stockLedgerService).record(1, 11, null, 3, LedgerReason.LOAD, null);
+    }
+
+    @Test
+    void transferRecordsTheAmountLeavingAndEnteringPerPosition() {
+        Inventory warehouse = inventory(1);
+        Inventory van = inventory(2);
+        OrderItem item = new OrderItem();
+        item.setOrderItemId(100);
+        InventoryStock reserved = stock(warehouse, product(10), item, 8);
+        when(stockRepo.findUnloadRows(1, Set.of(10), 7)).thenReturn(List.of(reserved));
+        when(invRepo.findById(2)).thenReturn(Optional.of(van));
+        when(stockRepo.findUnloadRows(2, Set.of(10), 7)).thenReturn(List.of());
+        when(bulkStockRepo.insertRows(any(), any(), any(), any())).thenReturn(List.of(600));
+
+        UnloadRequestDTO request = unloadRequest(1, "inventory", 2, 10, 3);
+        request.setOrder(new OrderDTO(7, "Client", "Somewhere"));
+        stockService.unloadProducts(request);
+
+        verify(stockLedgerService).record(1, 10, 100, -3, LedgerReason.TRANSFER_OUT, null);
+        verify(stockLedgerService).record(2, 10, 100, 3, LedgerReason.TRANSFER_IN, null);
+    }
+
+    @Test
+    void deliveryToClientRecordsOnlyTheSourceSide() {
+        OrderItem item = new OrderItem();
+        item.setOrderItemId(100);
+        InventoryStock reserved = stock(inventory(2), product(10), item, 4);
+        when(stockRepo.findUnloadRows(2, Set.of(10), 7)).thenReturn(List.of(reserved));
+        when(bulkStockRepo.insertRows(any(), any(), any(), any())).thenReturn(List.of());
+
+        UnloadRequestDTO request = unloadRequest(2, "client", null, 10, 4);
+        request.setOrder(new OrderDTO(7, "Client", "Somewhere"));
+        stockService.unloadProducts(request);
+
+        verify(stockLedgerService).record(2, 10, 100, -4, LedgerReason.DELIVERED, null);
+        verify(stockLedgerService, never()).record(any(), any(), any(), anyInt(), eq(LedgerReason.TRANSFER_IN), any());
+    }
+
+    @Test
+    void partialTransferStaysWithTheOrderItemItWasReservedFor() {
+        OrderItem first = orderItem(100);
+        OrderItem second = orderItem(101);
+        Product product = product(10);
+        InventoryStock sourceFirst = stock(inventory(1), product, first, 3);
+        InventoryStock sourceSecond = stock(inventory(1), product, second, 5);
+        Inventory van = inventory(2);
+        InventoryStock targetFirst = stock(van, product, first, 4);
+        InventoryStock targetSecond = stock(van, product, second, 2);
+        when(stockRepo.findUnloadRows(1, Set.of(10), 7)).thenReturn(List.of(sourceFirst, sourceSecond));
+        when(invRepo.findById(2)).thenReturn(Optional.of(van));
+        when(stockRepo.findUnloadRows(2, Set.of(10), 7)).thenReturn(List.of(targetFirst, targetSecond));
+        when(bulkStockRepo.insertRows(any(), any(), any(), any())).thenReturn(List.of());
+
+        UnloadRequestDTO request = unloadRequest(1, "inventory", 2, 10, 6);
+        request.setOrder(new OrderDTO(7, "Client", "Somewhere"));
+        stockService.unloadProducts(request);
+
+        // The first item's row moves whole; the rest comes out of the second item's row and joins its target
+        assertSame(van, sourceFirst.getInventory());
+        assertEquals(3, sourceFirst.getAmount());
+        assertEquals(2, sourceSecond.getAmount());
+        assertEquals(4, targetFirst.getAmount());
+        assertEquals(5, targetSecond.getAmount());
+        verify(bulkStockRepo).insertRows(2, List.of(), List.of(), List.of());
+        verify(stockLedgerService).record(1, 10, 100, -3, LedgerReason.TRANSFER_OUT, null);
+        verify(stockLedgerService).record(2, 10, 100, 3, LedgerReason.TRANSFER_IN, null);
+        verify(stockLedgerService).record(1, 10, 101, -3, LedgerReason.TRANSFER_OUT, null);
+        verify(stockLedgerService).record(2, 10, 101, 3, LedgerReason.TRANSFER_IN, null);
+    }
+
+    @Test
+    void transportAmountIsCheckedAgainstAllRowsOfTheProduct() {
+        Product product = product(10);
+        when(stockRepo.findUnloadRows(1, Set.of(10), 7)).thenReturn(List.of(
+                stock(inventory(1), product, orderItem(100), 3),
+                stock(inventory(1), product, orderItem(101), 5)));
+        when(invRepo.findById(2)).thenReturn(Optional.of(inventory(2)));
+        when(stockRepo.findUnloadRows(2, Set.of(10), 7)).thenReturn(List.of());
+
+        UnloadRequestDTO request = unloadRequest(1, "inventory", 2, 10, 9);
+        request.setOrder(new OrderDTO(7, "Client", "Somewhere"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> stockService.unloadProducts(request));
+
+        assertEquals("Transport amount (9) exceeds available stock (8) for product: 10", e.getMessage());
+        verify(stockLedgerService, never()).record(any(), any(), any(), anyInt(), any(), any());
+    }
+
+    private static OrderItem orderItem(Integer id) {
+        OrderItem item = new OrderItem();
+        item.setOrderItemId(id);
+        return item;
+    }
+
+    private static UnloadRequestDTO unloadRequest(Integer sourceId, String destinationType, Integer destinationId,
+                                                  Integer productId, int amount) {
+        ProductUnloadDTO line = new ProductUnloadDTO();
+        line.setProductId(productId);
+        line.setAmount(amount);
+        UnloadRequestDTO request = new UnloadRequestDTO();
+        request.setSourceInventoryId(sourceId);
+        request.setDestinationType(destinationType);
+        request.setDestinationInventoryId(destinationId);
+        request.setProducts(List.of(line));
+        return request;
+    }
+
+    private static Inventory inventory(Integer id) {
+        Inventory inventory = new Inventory();
+        inventory.setInventoryId(id);
+        return inventory;
+    }
+
+    private static Product product(Integer id) {
+        Product product = new Product();
+        product.setProductId(id);
+        product.setVolume(new BigDecimal("100"));
+        return product;
+    }
+
+    private static InventoryStock stock(Inventory inventory, Product product, OrderItem item, int amount) {
+        InventoryStock stock = new InventoryStock();
+        stock.setInventory(inventory);
+        stock.setProduct(product);
+        stock.setOrderItem(item);
+        stock.setAmount(amount);
+        return stock;
+    }
+}
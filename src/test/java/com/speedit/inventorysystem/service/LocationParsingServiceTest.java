@@ -0,0 +1,56 @@
+package com.speedit.inventorysystem.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.speedit.inventorysystem.dto.ParsedLocationData;
+import com.speedit.inventorysystem.service.routing.OrsEndpoint;
+import com.speedit.inventorysystem.service.routing.OrsGateway;
+import com.speedit.inventorysystem.service.routing.OrsRequestException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocationParsingServiceTest {
+
+    private static final String LINK = "https://www.google.com/maps/place/Store/@24.7136,46.6753,17z";
+
+    private final OrsGateway orsGateway = mock(OrsGateway.class);
+    private final LocationParsingService parsingService = new LocationParsingService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(parsingService, "orsGateway", orsGateway);
+    }
+
+    @Test
+    void usesTheGeocodedLabel() throws Exception {
+        when(orsGateway.execute(eq(OrsEndpoint.GEOCODE), any())).thenReturn(Optional.of(new ObjectMapper().readTree(
+                "{\"features\": [{\"properties\": {\"label\": \"King Fahd Road, Riyadh\"}}]}")));
+
+        ParsedLocationData parsed = parsingService.parseGoogleMapsLink(LINK);
+        assertEquals("King Fahd Road, Riyadh", parsed.getDescription());
+        assertEquals(24.7136, parsed.getLatitude());
+        assertEquals(46.6753, parsed.getLongitude());
+    }
+
+    @Test
+    void rejectedGeocodingFallsBackToTheCoordinates() {
+        when(orsGateway.execute(eq(OrsEndpoint.GEOCODE), any())).thenThrow(mock(OrsRequestException.class));
+
+        assertEquals("Location at 24.7136,46.6753", parsingService.parseGoogleMapsLink(LINK).getDescription());
+    }
+
+    @Test
+    void unavailableGeocodingFallsBackToTheCoordinates() {
+        when(orsGateway.execute(eq(OrsEndpoint.GEOCODE), any())).thenReturn(Optional.empty());
+
+        assertEquals("Location at 24.7136,46.6753", parsingService.parseGoogleMapsLink(LINK).getDescription());
+    }
+}
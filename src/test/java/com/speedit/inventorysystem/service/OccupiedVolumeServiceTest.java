@@ -0,0 +1,129 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.repository.InventoryRepository;
+import com.speedit.inventorysystem.repository.InventoryStockRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OccupiedVolumeServiceTest {
+
+    private final InventoryRepository inventoryRepository = mock(InventoryRepository.class);
+    private final AggregateVersionService aggregateVersionService = mock(AggregateVersionService.class);
+    private final OccupiedVolumeService volumeService = new OccupiedVolumeService(
+            inventoryRepository, mock(InventoryStockRepository.class), aggregateVersionService);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void committedDeltasAreWrittenOncePerInventoryAndApplied() {
+        when(inventoryRepository.findOccupiedVolumeById(1)).thenReturn(new BigDecimal("100"));
+        assertEquals(new BigDecimal("100"), volumeService.getOccupiedVolume(1)); // seeds the view
+
+        begin();
+        volumeService.recordDelta(1, new BigDecimal("5.0"));
+        volumeService.recordDelta(1, new BigDecimal("2.5"));
+        volumeService.recordDelta(2, new BigDecimal("3"));
+        volumeService.recordDelta(2, new BigDecimal("-3")); // nets to zero
+        verify(inventoryRepository, never()).addOccupiedVolume(any(), any());
+        beforeCommit();
+        afterCompletion(true);
+
+        verify(inventoryRepository).addOccupiedVolume(1, new BigDecimal("7.5"));
+        verify(inventoryRepository, never()).addOccupiedVolume(eq(2), any());
+        verify(aggregateVersionService).bump(AggregateVersionService.inventoryKey(1));
+        assertEquals(new BigDecimal("107.500"), volumeService.getOccupiedVolume(1));
+        verify(inventoryRepository, times(1)).findOccupiedVolumeById(1); // served from the view
+    }
+
+    @Test
+    void rolledBackDeltasLeaveTheDatabaseAndTheViewAlone() {
+        when(inventoryRepository.findOccupiedVolumeById(1)).thenReturn(new BigDecimal("100"));
+        volumeService.getOccupiedVolume(1);
+
+        begin();
+        volumeService.recordDelta(1, new BigDecimal("5"));
+        afterCompletion(false);
+
+        verify(inventoryRepository, never()).addOccupiedVolume(any(), any());
+        verify(aggregateVersionService, never()).bump(anyString());
+        assertEquals(new BigDecimal("100.000"), volumeService.getOccupiedVolume(1));
+    }
+
+    @Test
+    void commitFailingAfterTheWriteLeavesTheView() {
+        when(inventoryRepository.findOccupiedVolumeById(1)).thenReturn(new BigDecimal("100"));
+        volumeService.getOccupiedVolume(1);
+
+        begin();
+        volumeService.recordDelta(1, new BigDecimal("5"));
+        beforeCommit();
+        afterCompletion(false);
+
+        verify(inventoryRepository).addOccupiedVolume(1, new BigDecimal("5"));
+        assertEquals(new BigDecimal("100.000"), volumeService.getOccupiedVolume(1));
+    }
+
+    @Test
+    void valueReadWhileACommitIsInFlightIsNotCached() {
+        when(inventoryRepository.findOccupiedVolumeById(1)).thenReturn(new BigDecimal("100"));
+
+        begin();
+        volumeService.recordDelta(1, new BigDecimal("5"));
+        beforeCommit();
+        // May or may not include the delta being committed, so it is returned but not cached
+        assertEquals(new BigDecimal("100"), volumeService.getOccupiedVolume(1));
+        when(inventoryRepository.findOccupiedVolumeById(1)).thenReturn(new BigDecimal("105"));
+        afterCompletion(true);
+
+        assertEquals(new BigDecimal("105"), volumeService.getOccupiedVolume(1));
+        assertEquals(new BigDecimal("105.000"), volumeService.getOccupiedVolume(1));
+        verify(inventoryRepository, times(2)).findOccupiedVolumeById(1);
+    }
+
+    @Test
+    void reconcileDropsTheViewSoTheNextReadIsSeededAgain() {
+        when(inventoryRepository.findOccupiedVolumeById(1)).thenReturn(new BigDecimal("100"));
+        volumeService.getOccupiedVolume(1);
+        when(inventoryRepository.reconcileOccupiedVolumes()).thenReturn(1);
+        when(inventoryRepository.findOccupiedVolumeById(1)).thenReturn(new BigDecimal("90"));
+
+        volumeService.reconcile();
+
+        assertEquals(new BigDecimal("90"), volumeService.getOccupiedVolume(1));
+        verify(aggregateVersionService).invalidateAll();
+    }
+
+    // Stands in for the transaction manager: the service only relies on its synchronizations
+    private static void begin() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    private static void beforeCommit() {
+        TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.beforeCommit(false));
+    }
+
+    private static void afterCompletion(boolean committed) {
+        TransactionSynchronizationManager.getSynchronizations().forEach(s -> s.afterCompletion(committed
+                ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
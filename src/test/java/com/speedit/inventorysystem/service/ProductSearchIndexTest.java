@@ -0,0 +1,125 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.dto.ProductSummaryDTO;
+import com.speedit.inventorysystem.enums.UnitType;
+import com.speedit.inventorysystem.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductSearchIndexTest {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ContainerGraphService containerGraphService = mock(ContainerGraphService.class);
+    private final ContainerClosureService containerClosureService = mock(ContainerClosureService.class);
+    private final ProductSearchIndex index = new ProductSearchIndex(productRepository, containerGraphService,
+            containerClosureService, mock(PlatformTransactionManager.class));
+
+    @BeforeEach
+    void setUp() {
+        // Products 1 and 2 are base products; 10 is a PACK of 6 x product 1
+        when(productRepository.findAllProductIds()).thenReturn(List.of(1, 2, 10));
+        when(productRepository.findAllOptionValueRows()).thenReturn(rows(
+                new Object[]{1, "Chocolate"}, new Object[]{1, "250g"}, new Object[]{2, "Vanilla"}));
+        when(containerGraphService.current()).thenReturn(graph(UnitType.PACK, "Chocolate, 250g"));
+    }
+
+    @Test
+    void matchesPrefixesAndSubstringsInProductIdOrder() {
+        assertEquals(List.of(1, 10), ids("choc"));
+        assertEquals(List.of(1, 10), ids("late, 25"));
+        assertEquals(List.of(10), ids("pack contains"));
+        assertEquals(List.of(1, 2, 10), ids(""));
+        assertEquals(List.of(), ids("strawberry"));
+        assertEquals("10 - PACK contains 6 -> \nChocolate, 250g", page("pack").get(0).getDisplayText());
+    }
+
+    @Test
+    void pagesThroughTheMatches() {
+        Map<String, Object> first = index.search("", 0, 2);
+        Map<String, Object> second = index.search("", 1, 2);
+
+        assertEquals(List.of(1, 2), ids(first));
+        assertTrue((Boolean) first.get("hasMore"));
+        assertEquals(List.of(10), ids(second));
+        assertFalse((Boolean) second.get("hasMore"));
+    }
+
+    @Test
+    void refreshAddsReplacesAndRemovesEntriesIncrementally() {
+        ids(""); // build
+
+        // Product 11 created, product 2 renamed: no transaction, so the refresh is immediate
+        when(containerClosureService.findAncestorsOf(List.of(11, 2))).thenReturn(List.of());
+        List<Integer> existing = List.of(2, 11);
+        when(productRepository.findExistingProductIds(Set.of(2, 11))).thenReturn(existing);
+        when(productRepository.findOptionValueRowsByProductIds(existing)).thenReturn(rows(
+                new Object[]{2, "Strawberry"}, new Object[]{11, "Caramel"}));
+        index.refreshAfterCommit(List.of(11, 2));
+
+        assertEquals(List.of(11), ids("cara"));
+        assertEquals(List.of(2), ids("straw"));
+        assertEquals(List.of(), ids("vanil")); // the old text's grams are gone
+        assertEquals(List.of(1, 2, 10, 11), ids(""));
+
+        // Product 2 deleted
+        when(containerClosureService.findAncestorsOf(List.of(2))).thenReturn(List.of());
+        when(productRepository.findExistingProductIds(Set.of(2))).thenReturn(List.of());
+        index.refreshAfterCommit(List.of(2));
+
+        assertEquals(List.of(), ids("straw"));
+        assertEquals(List.of(1, 10, 11), ids(""));
+        verify(productRepository, times(1)).findAllProductIds(); // never rebuilt from scratch
+    }
+
+    @Test
+    void refreshReloadsTheContainersHoldingAChangedProduct() {
+        ids(""); // build
+
+        // Product 1's options change; container 10 prints them through the graph
+        when(containerGraphService.current()).thenReturn(graph(UnitType.PACK, "Dark"));
+        when(containerClosureService.findAncestorsOf(List.of(1))).thenReturn(List.of(10));
+        List<Integer> existing = List.of(1, 10);
+        when(productRepository.findExistingProductIds(Set.of(1, 10))).thenReturn(existing);
+        when(productRepository.findOptionValueRowsByProductIds(existing)).thenReturn(rows(new Object[]{1, "Dark"}));
+        index.refreshAfterCommit(List.of(1));
+
+        assertEquals(List.of(1, 10), ids("dark"));
+        assertEquals(List.of(), ids("choc"));
+    }
+
+    private List<Integer> ids(String term) {
+        return page(term).stream().map(ProductSummaryDTO::getProductId).toList();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ProductSummaryDTO> page(String term) {
+        return (List<ProductSummaryDTO>) index.search(term, 0, 20).get("content");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Integer> ids(Map<String, Object> response) {
+        return ((List<ProductSummaryDTO>) response.get("content")).stream().map(ProductSummaryDTO::getProductId).toList();
+    }
+
+    private static ContainerGraph graph(UnitType unit, String leafOptions) {
+        return ContainerGraph.build(1, rows(new Object[]{10, unit, 6, 1}), Map.of(1, leafOptions));
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+}
@@ -0,0 +1,217 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.config.OrsGatewayProperties;
+import com.speedit.inventorysystem.dto.allocation.GlobalAllocationPlan;
+import com.speedit.inventorysystem.enums.InventoryTypeEnum;
+import com.speedit.inventorysystem.model.Inventory;
+import com.speedit.inventorysystem.model.InventoryStock;
+import com.speedit.inventorysystem.model.Order;
+import com.speedit.inventorysystem.model.OrderItem;
+import com.speedit.inventorysystem.model.Product;
+import com.speedit.inventorysystem.ors.OrsStubServer;
+import com.speedit.inventorysystem.repository.InventoryRepository;
+import com.speedit.inventorysystem.repository.InventoryStockRepository;
+import com.speedit.inventorysystem.repository.OrderRepository;
+import com.speedit.inventorysystem.repository.StockMovementRepository;
+import com.speedit.inventorysystem.service.routing.OrsGateway;
+import com.speedit.inventorysystem.service.routing.RouteEstimator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives GlobalAllocationService.planGlobal against the local ORS stub and reports
+ * latency percentiles and ORS calls per plan. Repositories are mocked so only routing
+ * cost is measured.
+ *
+ * Opt-in, since it is a measurement rather than a check:
+ *   mvn test -Dtest=RoutingLoadTest -Dors.loadtest=true [-Dors.loadtest.iterations=50 -Dors.loadtest.latencyMs=20 -Dors.loadtest.errorRate=0.0]
+ *
+ * The gateway runs with default settings except the rate limit, which is lifted so the
+ * numbers show routing cost rather than quota waits. Raise errorRate or latencyMs past the
+ * attempt timeout to watch the breaker open and plans fall back to estimates.
+ */
+@EnabledIfSystemProperty(named = "ors.loadtest", matches = "true")
+class RoutingLoadTest {
+
+    private static final int WAREHOUSES = 2;
+    private static final int VANS = 4;
+    private static final int ORDERS = 3;
+    private static final int ITEMS_PER_ORDER = 2;
+
+    private OrsStubServer stub;
+    private GlobalAllocationService allocationService;
+    private List<Order> orders;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = OrsStubServer.start()
+                .withLatency(Duration.ofMillis(Long.getLong("ors.loadtest.latencyMs", 0L)))
+                .withErrorRate(Double.parseDouble(System.getProperty("ors.loadtest.errorRate", "0.0")));
+
+        RoutingService routingService = new RoutingService();
+        ReflectionTestUtils.setField(routingService, "webClient", WebClient.builder().build());
+        ReflectionTestUtils.setField(routingService, "orsApiKey", "stub-key");
+        ReflectionTestUtils.setField(routingService, "orsBaseUrl", stub.getBaseUrl());
+        OrsGatewayProperties gatewayProperties = new OrsGatewayProperties();
+        gatewayProperties.setRateLimitBurst(Integer.MAX_VALUE);
+        ReflectionTestUtils.setField(routingService, "orsGateway", new OrsGateway(gatewayProperties));
+        ReflectionTestUtils.setField(routingService, "routeEstimator", new RouteEstimator(gatewayProperties));
+
+        // --- Fixture: warehouses and vans around Riyadh, every product stocked everywhere ---
+        List<Inventory> warehouses = new ArrayList<>();
+        List<Inventory> vans = new ArrayList<>();
+        for (int i = 0; i < WAREHOUSES; i++) {
+            warehouses.add(inventory(100 + i, InventoryTypeEnum.WAREHOUSE, 24.70 + i * 0.02, 46.65 + i * 0.03));
+        }
+        for (int i = 0; i < VANS; i++) {
+            vans.add(inventory(200 + i, InventoryTypeEnum.VAN, 24.68 + i * 0.015, 46.70 + i * 0.01));
+        }
+
+        InventoryStockRepository stockRepository = mock(InventoryStockRepository.class);
+        InventoryRepository inventoryRepository = mock(InventoryRepository.class);
+        StockMovementRepository movementRepository = mock(StockMovementRepository.class);
+        StockMonitoringService stockMonitoringService = mock(StockMonitoringService.class);
+
+        orders = new ArrayList<>();
+        int stockId = 1;
+        int itemId = 1;
+        for (int o = 0; o < ORDERS; o++) {
+            Order order = new Order();
+            order.setOrderId(o + 1);
+            order.setLatitude(BigDecimal.valueOf(24.72 + o * 0.01));
+            order.setLongitude(BigDecimal.valueOf(46.68 + o * 0.02));
+
+            for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                Product product = new Product();
+                product.setProductId(itemId);
+                product.setVolume(new BigDecimal("500"));
+
+                List<InventoryStock> stocks = new ArrayList<>();
+                for (Inventory inv : warehouses) stocks.add(stock(stockId++, inv, product, 100));
+                for (Inventory inv : vans) stocks.add(stock(stockId++, inv, product, 5));
+                when(stockRepository.findAvailableByProductAndTypes(eq(product.getProductId()), anyList()))
+                        .thenReturn(stocks);
+
+                OrderItem item = new OrderItem();
+                item.setOrderItemId(itemId++);
+                item.setOrder(order);
+                item.setProduct(product);
+                item.setQuantity(8);
+                item.setDiscount(0L);
+                order.getOrderItems().add(item);
+            }
+            orders.add(order);
+        }
+
+        when(inventoryRepository.findActiveByType(InventoryTypeEnum.VAN)).thenReturn(vans);
+        when(movementRepository.findLatestByInventoryAndStatus(any(), any())).thenReturn(List.of());
+        Map<String, BigDecimal> emptyFill = Map.of(
+                "totalVolume", BigDecimal.ZERO,
+                "fillLevelRatio", BigDecimal.ZERO);
+        when(stockMonitoringService.calculateFillLevel(any())).thenReturn(emptyFill);
+        when(stockMonitoringService.calculateFillLevels(any())).thenAnswer(invocation -> {
+            Map<Integer, Map<String, BigDecimal>> fills = new HashMap<>();
+            for (Inventory inv : invocation.<Collection<Inventory>>getArgument(0)) {
+                fills.put(inv.getInventoryId(), emptyFill);
+            }
+            return fills;
+        });
+
+        CandidateGeneratorService candidateGenerator = new CandidateGeneratorService(
+                stockRepository, inventoryRepository, movementRepository, routingService, stockMonitoringService);
+        allocationService = new GlobalAllocationService(candidateGenerator, stockRepository, movementRepository,
+                mock(OrderRepository.class), mock(StockLedgerService.class), mock(ApplicationEventPublisher.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void planGlobalLatencyAndCallsPerPlan() {
+        int iterations = Integer.getInteger("ors.loadtest.iterations", 20);
+        int warmup = Math.max(1, iterations / 10);
+
+        for (int i = 0; i < warmup; i++) {
+            allocationService.planGlobal(orders);
+        }
+        stub.resetCallCounts();
+
+        long[] latenciesNanos = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            GlobalAllocationPlan plan = allocationService.planGlobal(orders);
+            latenciesNanos[i] = System.nanoTime() - start;
+            assertNotNull(plan);
+        }
+
+        Arrays.sort(latenciesNanos);
+        System.out.printf("planGlobal over %d iterations (%d orders x %d items, %d warehouses, %d vans)%n",
+                iterations, ORDERS, ITEMS_PER_ORDER, WAREHOUSES, VANS);
+        System.out.printf("  p50 = %.1f ms, p99 = %.1f ms, max = %.1f ms%n",
+                percentileMillis(latenciesNanos, 0.50),
+                percentileMillis(latenciesNanos, 0.99),
+                latenciesNanos[latenciesNanos.length - 1] / 1_000_000.0);
+        System.out.printf("  ORS calls per plan = %.1f %s%n",
+                (double) stub.getTotalCallCount() / iterations, perPlan(stub.getCallCounts(), iterations));
+    }
+
+    // ----------------- helpers -----------------
+
+    private static double percentileMillis(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1_000_000.0;
+    }
+
+    private static String perPlan(Map<String, Long> counts, int iterations) {
+        StringBuilder sb = new StringBuilder("(");
+        counts.forEach((endpoint, count) -> {
+            if (sb.length() > 1) sb.append(", ");
+            sb.append(endpoint).append(" = ").append(String.format("%.1f", (double) count / iterations));
+        });
+        return sb.append(")").toString();
+    }
+
+    private static Inventory inventory(int id, InventoryTypeEnum type, double lat, double lon) {
+        Inventory inv = new Inventory();
+        inv.setInventoryId(id);
+        inv.setInventoryType(type);
+        inv.setLocation(type.getDisplayName() + " #" + id);
+        inv.setLatitude(BigDecimal.valueOf(lat));
+        inv.setLongitude(BigDecimal.valueOf(lon));
+        inv.setStatus(true);
+        inv.setCapacity(new BigDecimal("5000000"));
+        return inv;
+    }
+
+    private static InventoryStock stock(int id, Inventory inv, Product product, int amount) {
+        InventoryStock stock = new InventoryStock();
+        stock.setInventoryStockId(id);
+        stock.setInventory(inv);
+        stock.setProduct(product);
+        stock.setAmount(amount);
+        return stock;
+    }
+}
@@ -0,0 +1,85 @@
+package com.speedit.inventorysystem.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.speedit.inventorysystem.config.OrsGatewayProperties;
+import com.speedit.inventorysystem.dto.Coordinates;
+import com.speedit.inventorysystem.dto.RouteDetails;
+import com.speedit.inventorysystem.service.routing.OrsEndpoint;
+import com.speedit.inventorysystem.service.routing.OrsGateway;
+import com.speedit.inventorysystem.service.routing.OrsRequestException;
+import com.speedit.inventorysystem.service.routing.RouteEstimator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RoutingServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Coordinates start = new Coordinates(24.70, 46.65);
+    private final Coordinates end = new Coordinates(24.75, 46.70);
+
+    private RoutingService routingService;
+    private OrsGateway orsGateway;
+    private RouteEstimator routeEstimator;
+
+    @BeforeEach
+    void setUp() {
+        orsGateway = mock(OrsGateway.class);
+        routeEstimator = new RouteEstimator(new OrsGatewayProperties());
+        routingService = new RoutingService();
+        ReflectionTestUtils.setField(routingService, "orsGateway", orsGateway);
+        ReflectionTestUtils.setField(routingService, "routeEstimator", routeEstimator);
+    }
+
+    @Test
+    void readsDistanceAndDurationFromTheSummary() throws Exception {
+        respondWith("""
+                {"features": [{"properties": {"summary": {"distance": 1200.5, "duration": 300.0}}}]}
+                """);
+        RouteDetails details = routingService.getRouteDetails(start, end);
+        assertEquals(1200.5, details.getDistanceInMeters());
+        assertEquals(300.0, details.getDurationInSeconds());
+    }
+
+    @Test
+    void malformedResponsesFallBackToTheEstimate() throws Exception {
+        RouteDetails estimate = routeEstimator.estimateRoute(start, end);
+        for (String body : new String[]{"{}", "{\"features\": []}", "{\"features\": [{\"properties\": {}}]}",
+                "{\"features\": [{\"properties\": {\"summary\": {\"distance\": \"n/a\"}}}]}"}) {
+            respondWith(body);
+            RouteDetails details = routingService.getRouteDetails(start, end);
+            assertEquals(estimate.getDistanceInMeters(), details.getDistanceInMeters(), body);
+            assertEquals(estimate.getDurationInSeconds(), details.getDurationInSeconds(), body);
+        }
+    }
+
+    @Test
+    void rejectedGeocodingCountsAsUnknownCity() {
+        when(orsGateway.execute(eq(OrsEndpoint.GEOCODE), any())).thenThrow(mock(OrsRequestException.class));
+
+        assertFalse(routingService.isInDifferentCities(start, end));
+    }
+
+    @Test
+    void rejectedRoutingRequestsPropagate() {
+        when(orsGateway.execute(eq(OrsEndpoint.DIRECTIONS), any())).thenThrow(mock(OrsRequestException.class));
+
+        assertThrows(OrsRequestException.class, () -> routingService.getRouteDetails(start, end));
+    }
+
+    private void respondWith(String json) throws Exception {
+        JsonNode body = objectMapper.readTree(json);
+        when(orsGateway.execute(eq(OrsEndpoint.DIRECTIONS), any())).thenReturn(Optional.of(body));
+    }
+}
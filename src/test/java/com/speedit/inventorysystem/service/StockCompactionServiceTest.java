@@ -0,0 +1,123 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.event.StockChangedEvent;
+import com.speedit.inventorysystem.repository.InventoryStockBulkRepository;
+import com.speedit.inventorysystem.repository.StockCompactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockCompactionServiceTest {
+
+    private final StockCompactionRepository compactionRepository = mock(StockCompactionRepository.class);
+    private final InventoryStockBulkRepository bulkStockRepository = mock(InventoryStockBulkRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final StockCompactionService compactionService = new StockCompactionService(
+            compactionRepository, bulkStockRepository, mock(PlatformTransactionManager.class), eventPublisher);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(compactionService, "batchSize", 10);
+        when(compactionRepository.averageRowLength()).thenReturn(100L);
+    }
+
+    @Test
+    void duplicatesAreMergedIntoTheOldestRowWithTheirAmounts() {
+        // Position (1, 10, available) is held by rows 5, 8 and 9; row 6 is another position of the same product
+        when(compactionRepository.findDuplicatePositions(10)).thenReturn(rows(new Object[]{1, 10, null}), List.of());
+        when(compactionRepository.lockPositionRows(Set.of(1), Set.of(10))).thenReturn(rows(
+                new Object[]{5, 1, 10, null, 3, false},
+                new Object[]{6, 1, 10, 100, 7, false},
+                new Object[]{8, 1, 10, null, 4, false},
+                new Object[]{9, 1, 10, null, 2, false}));
+        when(compactionRepository.countRows()).thenReturn(4L, 2L);
+
+        StockCompactionService.CompactionReport report = compactionService.compact();
+
+        // The oldest row takes 4 + 2, so the position still holds 3 + 4 + 2
+        verify(bulkStockRepository).addToAmounts(List.of(5), List.of(6));
+        verify(compactionRepository).archive(Set.of(8, 9), "MERGED");
+        verify(compactionRepository).setMergedInto(Map.of(8, 5, 9, 5));
+        verify(compactionRepository).delete(Set.of(8, 9));
+        verify(eventPublisher).publishEvent(new StockChangedEvent(Map.of(1, Set.of(5)), Map.of(1, Set.of(8, 9)), Set.of(10)));
+        assertEquals(2, report.mergedRows());
+        assertEquals(1, report.mergedPositions());
+        assertEquals(200, report.approxBytesReclaimed());
+    }
+
+    @Test
+    void rowsReferencedByMovementsStay() {
+        when(compactionRepository.findDuplicatePositions(10)).thenReturn(rows(new Object[]{1, 10, 100}), List.of());
+        when(compactionRepository.lockPositionRows(Set.of(1), Set.of(10))).thenReturn(rows(
+                new Object[]{5, 1, 10, 100, 3, false},
+                new Object[]{8, 1, 10, 100, 4, true},
+                new Object[]{9, 1, 10, 100, 2, false}));
+        when(compactionRepository.countRows()).thenReturn(3L, 2L);
+
+        StockCompactionService.CompactionReport report = compactionService.compact();
+
+        verify(bulkStockRepository).addToAmounts(List.of(5), List.of(2));
+        verify(compactionRepository).setMergedInto(Map.of(9, 5));
+        verify(compactionRepository).delete(Set.of(9));
+        assertEquals(1, report.mergedRows());
+    }
+
+    @Test
+    void loopStopsAtABatchWithNothingToMerge() {
+        // Every row besides the oldest became referenced after the positions were found
+        when(compactionRepository.findDuplicatePositions(10)).thenReturn(rows(new Object[]{1, 10, null}));
+        when(compactionRepository.lockPositionRows(Set.of(1), Set.of(10))).thenReturn(rows(
+                new Object[]{5, 1, 10, null, 3, false},
+                new Object[]{8, 1, 10, null, 4, true}));
+        when(compactionRepository.countRows()).thenReturn(2L, 2L);
+
+        StockCompactionService.CompactionReport report = compactionService.compact();
+
+        verify(compactionRepository, times(1)).findDuplicatePositions(10);
+        verify(bulkStockRepository, never()).addToAmounts(anyList(), anyList());
+        verify(compactionRepository, never()).delete(anyCollection());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+        assertEquals(0, report.mergedRows());
+        assertEquals(0, report.approxBytesReclaimed());
+    }
+
+    @Test
+    void deliveredAndEmptyRowsAreArchivedBatchByBatch() {
+        ReflectionTestUtils.setField(compactionService, "batchSize", 2);
+        when(compactionRepository.lockArchivableRows(2)).thenReturn(
+                rows(new Object[]{3, null, 10}, new Object[]{4, 1, 10}),
+                rows(new Object[]{7, 2, 11}));
+        when(compactionRepository.countRows()).thenReturn(5L, 2L);
+
+        StockCompactionService.CompactionReport report = compactionService.compact();
+
+        verify(compactionRepository).archive(List.of(3, 4), null);
+        verify(compactionRepository).archive(List.of(7), null);
+        verify(compactionRepository, times(2)).lockArchivableRows(anyInt()); // a short batch is the last one
+        verify(eventPublisher).publishEvent(new StockChangedEvent(Map.of(), Map.of(1, Set.of(4)), Set.of(10)));
+        assertEquals(1, report.archivedDelivered());
+        assertEquals(2, report.archivedEmpty());
+    }
+
+    private static List<Object[]> rows(Object[]... rows) {
+        return new ArrayList<>(List.of(rows));
+    }
+}
@@ -0,0 +1,132 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.enums.ImportStatus;
+import com.speedit.inventorysystem.model.StockImport;
+import com.speedit.inventorysystem.repository.InventoryRepository;
+import com.speedit.inventorysystem.repository.ProductRepository;
+import com.speedit.inventorysystem.repository.StockImportRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockImportServiceTest {
+
+    private static final Long IMPORT_ID = 7L;
+
+    private final StockImportRepository stockImportRepository = mock(StockImportRepository.class);
+    private final InventoryStockService inventoryStockService = mock(InventoryStockService.class);
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final InventoryRepository inventoryRepository = mock(InventoryRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final StockImportService importService = new StockImportService(stockImportRepository,
+            inventoryStockService, productRepository, inventoryRepository, transactionManager);
+
+    private final StockImport stockImport = new StockImport();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(importService, "defaultChunkSize", 1000);
+        ReflectionTestUtils.setField(importService, "maxReportedErrors", 1000);
+        when(productRepository.findAllProductIds()).thenReturn(List.of(10, 11));
+        when(inventoryRepository.findAllInventoryIds()).thenReturn(List.of(1, 2));
+
+        stockImport.setImportId(IMPORT_ID);
+        stockImport.setStatus(ImportStatus.RUNNING);
+        when(stockImportRepository.save(any())).thenReturn(stockImport);
+        when(stockImportRepository.findById(IMPORT_ID)).thenReturn(Optional.of(stockImport));
+        when(stockImportRepository.advance(anyLong(), anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(1);
+    }
+
+    @Test
+    void resumeSkipsTheLinesOfCommittedChunks() {
+        stockImport.setStatus(ImportStatus.FAILED);
+        stockImport.setCommittedLines(2); // the header and the first data line
+
+        importService.importCsv(csv("inventoryId,productId,amount\n1,10,5\n1,11,3\n2,10,4\n"), IMPORT_ID, null);
+
+        verify(inventoryStockService).loadAvailableStock(1, Map.of(11, 3));
+        verify(inventoryStockService).loadAvailableStock(2, Map.of(10, 4));
+        verify(inventoryStockService, times(2)).loadAvailableStock(any(), anyMap());
+        verify(stockImportRepository).advance(IMPORT_ID, 2, 4, 2, 0);
+        verify(stockImportRepository).updateStatus(IMPORT_ID, ImportStatus.RUNNING, null);
+        verify(stockImportRepository).updateStatus(IMPORT_ID, ImportStatus.COMPLETED, null);
+    }
+
+    @Test
+    void onlyTheFirstLineOfTheFileCanBeAHeader() {
+        StockImportService.ImportReport report = importService.importCsv(
+                csv("inventoryId,productId,amount\n1,10,5\nfoo,10,1\n"), null, null);
+
+        verify(inventoryStockService).loadAvailableStock(1, Map.of(10, 5));
+        verify(stockImportRepository).advance(IMPORT_ID, 0, 3, 1, 1);
+        assertEquals(List.of(new StockImportService.LineError(3, "Not a number: foo,10,1")), report.errors());
+    }
+
+    @Test
+    void numericFirstLineIsData() {
+        importService.importCsv(csv("1,10,5\n2,11,3\n"), null, null);
+
+        verify(inventoryStockService).loadAvailableStock(1, Map.of(10, 5));
+        verify(inventoryStockService).loadAvailableStock(2, Map.of(11, 3));
+        verify(stockImportRepository).advance(IMPORT_ID, 0, 2, 2, 0);
+    }
+
+    @Test
+    void chunkEndingOnTheLastLineIsCommittedOnce() {
+        importService.importCsv(csv("1,10,5\n1,11,3\n2,10,4\n2,11,1\n"), null, 2);
+
+        verify(stockImportRepository).advance(IMPORT_ID, 0, 2, 2, 0);
+        verify(stockImportRepository).advance(IMPORT_ID, 2, 4, 2, 0);
+        verify(stockImportRepository, times(2)).advance(anyLong(), anyLong(), anyLong(), anyLong(), anyLong());
+        verify(transactionManager, times(2)).getTransaction(any()); // no empty trailing chunk
+        verify(stockImportRepository).updateStatus(IMPORT_ID, ImportStatus.COMPLETED, null);
+    }
+
+    @Test
+    void concurrentResumeRollsBackTheChunkAndLeavesTheStatusAlone() {
+        stockImport.setStatus(ImportStatus.FAILED);
+        stockImport.setCommittedLines(1);
+        when(stockImportRepository.advance(anyLong(), anyLong(), anyLong(), anyLong(), anyLong())).thenReturn(0);
+
+        assertThrows(IllegalStateException.class,
+                () -> importService.importCsv(csv("1,10,5\n1,11,3\n"), IMPORT_ID, null));
+
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(stockImportRepository, never()).updateStatus(eq(IMPORT_ID), eq(ImportStatus.FAILED), any());
+        verify(stockImportRepository, never()).updateStatus(eq(IMPORT_ID), eq(ImportStatus.COMPLETED), any());
+    }
+
+    @Test
+    void completedImportCannotBeResumed() {
+        stockImport.setStatus(ImportStatus.COMPLETED);
+
+        assertThrows(IllegalStateException.class, () -> importService.importCsv(csv("1,10,5\n"), IMPORT_ID, null));
+        verify(inventoryStockService, never()).loadAvailableStock(anyInt(), anyMap());
+    }
+
+    private static InputStream csv(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+}
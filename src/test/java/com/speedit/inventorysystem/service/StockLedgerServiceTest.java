@@ -0,0 +1,182 @@
+package com.speedit.inventorysystem.service;
+
+import com.speedit.inventorysystem.enums.LedgerReason;
+import com.speedit.inventorysystem.repository.InventoryStockRepository;
+import com.speedit.inventorysystem.repository.StockLedgerRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockLedgerServiceTest {
+
+    private final StockLedgerRepository ledgerRepository = mock(StockLedgerRepository.class);
+    private final InventoryStockRepository stockRepository = mock(InventoryStockRepository.class);
+    private final StockLedgerService ledgerService =
+            new StockLedgerService(ledgerRepository, stockRepository, mock(PlatformTransactionManager.class));
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void mergesDeltasPerPositionAndWritesThemBeforeCommit() {
+        begin();
+        ledgerService.record(1, 10, null, 5, LedgerReason.LOAD, null);
+        ledgerService.record(1, 10, null, 3, LedgerReason.LOAD, null);
+        ledgerService.record(1, 10, null, -2, LedgerReason.RESERVED, 7L);
+        ledgerService.record(1, 10, 100, 2, LedgerReason.RESERVED, 7L);
+        ledgerService.record(1, 11, null, 4, LedgerReason.LOAD, null);
+        ledgerService.record(1, 11, null, -4, LedgerReason.LOAD, null); // nets to zero
+        ledgerService.record(null, 10, 100, -2, LedgerReason.DELIVERED, null); // left the inventories
+        ledgerService.record(1, 12, null, 0, LedgerReason.LOAD, null);
+        verify(ledgerRepository, never()).append(anyList());
+        complete(true);
+
+        ArgumentCaptor<List<StockLedgerRepository.Entry>> batch = ArgumentCaptor.forClass(List.class);
+        verify(ledgerRepository).append(batch.capture());
+        assertEquals(List.of(
+                new StockLedgerRepository.Entry(1, 10, null, 8, "LOAD", null),
+                new StockLedgerRepository.Entry(1, 10, null, -2, "RESERVED", 7L),
+                new StockLedgerRepository.Entry(1, 10, 100, 2, "RESERVED", 7L)), batch.getValue());
+
+        // The next transaction starts with no pending entries
+        begin();
+        ledgerService.record(2, 10, null, 1, LedgerReason.LOAD, null);
+        complete(true);
+        verify(ledgerRepository).append(List.of(new StockLedgerRepository.Entry(2, 10, null, 1, "LOAD", null)));
+    }
+
+    @Test
+    void rolledBackTransactionWritesNothing() {
+        begin();
+        ledgerService.record(1, 10, null, 5, LedgerReason.LOAD, null);
+        complete(false);
+
+        verify(ledgerRepository, never()).append(anyList());
+    }
+
+    @Test
+    void deletingAProductZeroesEveryPositionItHolds() {
+        List<Object[]> positions = new ArrayList<>();
+        positions.add(new Object[]{1, null, 6L});
+        positions.add(new Object[]{2, 100, 4L});
+        when(stockRepository.sumAmountByPositionForProduct(10)).thenReturn(positions);
+
+        begin();
+        ledgerService.onProductDeleted(10);
+        complete(true);
+
+        verify(ledgerRepository).append(List.of(
+                new StockLedgerRepository.Entry(1, 10, null, -6, "PRODUCT_DELETED", null),
+                new StockLedgerRepository.Entry(2, 10, 100, -4, "PRODUCT_DELETED", null)));
+    }
+
+    @Test
+    void deletingAnInventoryZeroesEveryPositionInIt() {
+        List<Object[]> positions = new ArrayList<>();
+        positions.add(new Object[]{10, null, 6L});
+        positions.add(new Object[]{11, 100, 4L});
+        when(stockRepository.sumAmountByPositionForInventory(1)).thenReturn(positions);
+
+        begin();
+        ledgerService.onInventoryDeleted(1);
+        complete(true);
+
+        verify(ledgerRepository).append(List.of(
+                new StockLedgerRepository.Entry(1, 10, null, -6, "INVENTORY_DELETED", null),
+                new StockLedgerRepository.Entry(1, 11, 100, -4, "INVENTORY_DELETED", null)));
+    }
+
+    @Test
+    void replayRebuildsThePositionsOfRecordedMovements() {
+        List<StockLedgerRepository.Entry> ledger = new ArrayList<>();
+        doAnswer(invocation -> ledger.addAll(invocation.getArgument(0))).when(ledgerRepository).append(anyList());
+
+        // Load 10 into inventory 1, reserve 4 for order item 100, move the reservation to inventory 2
+        begin();
+        ledgerService.record(1, 10, null, 10, LedgerReason.LOAD, null);
+        complete(true);
+        begin();
+        ledgerService.record(1, 10, null, -4, LedgerReason.RESERVED, 7L);
+        ledgerService.record(1, 10, 100, 4, LedgerReason.RESERVED, 7L);
+        complete(true);
+        begin();
+        ledgerService.record(1, 10, 100, -4, LedgerReason.TRANSFER_OUT, null);
+        ledgerService.record(2, 10, 100, 4, LedgerReason.TRANSFER_IN, null);
+        complete(true);
+
+        // Replay from the start of the ledger, summed per position as the repository's query does
+        LocalDateTime asOf = LocalDateTime.now();
+        when(ledgerRepository.findSnapshotCovering(asOf)).thenReturn(Optional.empty());
+        when(ledgerRepository.replayPositions(null, asOf, null, null)).thenAnswer(invocation -> {
+            Map<List<Integer>, Long> sums = new LinkedHashMap<>();
+            for (StockLedgerRepository.Entry e : ledger) {
+                sums.merge(Arrays.asList(e.inventoryId(), e.productId(), e.orderItemId()), (long) e.quantityDelta(), Long::sum);
+            }
+            List<Object[]> rows = new ArrayList<>();
+            sums.forEach((position, amount) -> {
+                if (amount != 0) {
+                    rows.add(new Object[]{position.get(0), position.get(1), position.get(2), amount});
+                }
+            });
+            return rows;
+        });
+
+        assertEquals(List.of(
+                new StockLedgerService.Position(1, 10, null, 6L),
+                new StockLedgerService.Position(2, 10, 100, 4L)), ledgerService.positionsAsOf(asOf, null, null));
+        assertEquals(5, ledger.size());
+    }
+
+    @Test
+    void replayStartsFromTheNewestCoveringSnapshot() {
+        LocalDateTime asOf = LocalDateTime.of(2025, 6, 1, 12, 0);
+        StockLedgerRepository.Snapshot snapshot = new StockLedgerRepository.Snapshot(3L, 120L);
+        when(ledgerRepository.findSnapshotCovering(asOf)).thenReturn(Optional.of(snapshot));
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1, 10, null, 6L});
+        when(ledgerRepository.replayPositions(snapshot, asOf, 1, null)).thenReturn(rows);
+
+        assertEquals(List.of(new StockLedgerService.Position(1, 10, null, 6L)), ledgerService.positionsAsOf(asOf, 1, null));
+        verify(ledgerRepository, times(1)).replayPositions(snapshot, asOf, 1, null);
+    }
+
+    // Stands in for the transaction manager: the service only relies on its synchronizations
+    private static void begin() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    private static void complete(boolean commit) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        if (commit) {
+            synchronizations.forEach(s -> s.beforeCommit(false));
+        }
+        synchronizations.forEach(s -> s.afterCompletion(commit
+                ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+}
@@ -0,0 +1,117 @@
+package com.speedit.inventorysystem.service.routing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+
+    private final AtomicLong clock = new AtomicLong();
+    private CircuitBreaker breaker;
+
+    @BeforeEach
+    void setUp() {
+        // Window of 4 calls, evaluated from the 4th call on, opens at 50% failures
+        breaker = new CircuitBreaker(4, 4, 0.5, OPEN_DURATION, clock::get);
+    }
+
+    @Test
+    void staysClosedUntilMinimumCallsRecorded() {
+        call(false);
+        call(false);
+        call(false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        call(true);
+        call(false);
+        call(false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        call(true);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission());
+    }
+
+    @Test
+    void oldFailuresLeaveTheWindow() {
+        call(true);
+        call(false);
+        call(false);
+        call(false); // 1 of 4 failed
+        call(true);  // the first failure is evicted: still 1 of 4
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void halfOpenAfterOpenDurationLetsOneTrialThrough() {
+        open();
+        clock.addAndGet(OPEN_DURATION.toNanos() - 1);
+        assertFalse(breaker.tryAcquirePermission());
+
+        clock.addAndGet(1);
+        assertTrue(breaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission(), "only one trial call at a time");
+    }
+
+    @Test
+    void successfulTrialClosesWithFreshWindow() {
+        open();
+        clock.addAndGet(OPEN_DURATION.toNanos());
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // The failures from before are forgotten
+        call(true);
+        call(true);
+        call(false);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void failedTrialReopens() {
+        open();
+        clock.addAndGet(OPEN_DURATION.toNanos());
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquirePermission(), "open duration restarts from the failed trial");
+    }
+
+    @Test
+    void releasedTrialFreesTheSlot() {
+        open();
+        clock.addAndGet(OPEN_DURATION.toNanos());
+        assertTrue(breaker.tryAcquirePermission());
+        breaker.releasePermission();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquirePermission());
+    }
+
+    private void call(boolean failure) {
+        assertTrue(breaker.tryAcquirePermission());
+        if (failure) {
+            breaker.recordFailure();
+        } else {
+            breaker.recordSuccess();
+        }
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
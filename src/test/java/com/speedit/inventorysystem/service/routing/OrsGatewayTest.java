@@ -0,0 +1,120 @@
+package com.speedit.inventorysystem.service.routing;
+
+import com.speedit.inventorysystem.config.OrsGatewayProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrsGatewayTest {
+
+    private OrsGatewayProperties properties;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        properties = new OrsGatewayProperties();
+        properties.setAttemptTimeout(Duration.ofSeconds(2));
+        properties.setDeadline(Duration.ofSeconds(5));
+        properties.setMaxRetries(2);
+        properties.setRetryBackoff(Duration.ofMillis(10));
+        properties.setHedgeDelay(Duration.ZERO);
+        properties.setRateLimitBurst(100);
+        // Any recorded failure opens the breaker
+        properties.setBreakerWindowSize(2);
+        properties.setBreakerMinimumCalls(1);
+        properties.setBreakerFailureRateThreshold(0.5);
+        properties.setBreakerOpenDuration(Duration.ofMinutes(1));
+    }
+
+    @Test
+    void retriesServerErrors() {
+        OrsGateway gateway = new OrsGateway(properties);
+        Optional<String> result = gateway.execute(OrsEndpoint.DIRECTIONS, () -> calls.incrementAndGet() == 1
+                ? Mono.error(status(503))
+                : Mono.just("route"));
+        assertEquals(Optional.of("route"), result);
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void degradesWhenRetriesAreExhausted() {
+        OrsGateway gateway = new OrsGateway(properties);
+        Optional<String> result = gateway.execute(OrsEndpoint.DIRECTIONS, () -> {
+            calls.incrementAndGet();
+            return Mono.error(status(502));
+        });
+        assertTrue(result.isEmpty());
+        assertEquals(1 + properties.getMaxRetries(), calls.get());
+    }
+
+    @Test
+    void openBreakerDegradesWithoutCallingOrs() {
+        OrsGateway gateway = new OrsGateway(properties);
+        gateway.execute(OrsEndpoint.MATRIX, () -> Mono.error(status(500)));
+
+        Optional<String> result = gateway.execute(OrsEndpoint.MATRIX, () -> {
+            calls.incrementAndGet();
+            return Mono.just("matrix");
+        });
+        assertTrue(result.isEmpty());
+        assertEquals(0, calls.get());
+
+        // Breakers are per endpoint
+        assertEquals(Optional.of("route"), gateway.execute(OrsEndpoint.DIRECTIONS, () -> Mono.just("route")));
+    }
+
+    @Test
+    void hedgeAnswersWhenTheFirstAttemptIsSlow() {
+        properties.setHedgeDelay(Duration.ofMillis(50));
+        OrsGateway gateway = new OrsGateway(properties);
+        long started = System.nanoTime();
+        Optional<String> result = gateway.execute(OrsEndpoint.DIRECTIONS, () -> calls.incrementAndGet() == 1
+                ? Mono.just("slow").delayElement(Duration.ofSeconds(1))
+                : Mono.just("hedge"));
+        assertEquals(Optional.of("hedge"), result);
+        assertEquals(2, calls.get());
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).compareTo(Duration.ofSeconds(1)) < 0);
+    }
+
+    @Test
+    void clientErrorFailsFastAndLeavesTheBreakerClosed() {
+        properties.setHedgeDelay(Duration.ofSeconds(1));
+        OrsGateway gateway = new OrsGateway(properties);
+        long started = System.nanoTime();
+        OrsRequestException e = assertThrows(OrsRequestException.class,
+                () -> gateway.execute(OrsEndpoint.DIRECTIONS, () -> {
+                    calls.incrementAndGet();
+                    return Mono.error(status(400));
+                }));
+        assertEquals(400, e.getStatusCode());
+        assertEquals(1, calls.get(), "no retry and no hedge");
+        assertTrue(Duration.ofNanos(System.nanoTime() - started).compareTo(properties.getHedgeDelay()) < 0,
+                "the rejection must not wait for the hedge");
+
+        // Not counted as a failure: the next call still reaches ORS
+        assertEquals(Optional.of("route"), gateway.execute(OrsEndpoint.DIRECTIONS, () -> Mono.just("route")));
+    }
+
+    @Test
+    void tooManyRequestsIsRetried() {
+        OrsGateway gateway = new OrsGateway(properties);
+        Optional<String> result = gateway.execute(OrsEndpoint.GEOCODE, () -> calls.incrementAndGet() == 1
+                ? Mono.error(status(429))
+                : Mono.just("city"));
+        assertEquals(Optional.of("city"), result);
+    }
+
+    private static WebClientResponseException status(int code) {
+        return WebClientResponseException.create(code, "status " + code, HttpHeaders.EMPTY, new byte[0], null);
+    }
+}
@@ -0,0 +1,68 @@
+package com.speedit.inventorysystem.service.routing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void startsFullAndRejectsWhenEmpty() {
+        TokenBucket bucket = new TokenBucket(60, 2, clock::get);
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void refillsAtTheConfiguredRate() {
+        TokenBucket bucket = new TokenBucket(60, 2, clock::get); // one token per second
+        bucket.tryAcquire();
+        bucket.tryAcquire();
+
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertFalse(bucket.tryAcquire());
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void refillIsCappedAtBurst() {
+        TokenBucket bucket = new TokenBucket(60, 2, clock::get);
+        bucket.tryAcquire();
+        bucket.tryAcquire();
+
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    void waitingCallerGivesUpWhenTheWaitIsTooLong() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(60, 1, clock::get);
+        bucket.tryAcquire();
+        assertFalse(bucket.tryAcquire(Duration.ofMillis(500)));
+        assertFalse(bucket.tryAcquire(), "a refused wait must not reserve a token");
+    }
+
+    @Test
+    void waitingCallerReservesTheNextToken() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(60_000, 1, clock::get); // one token per millisecond
+        bucket.tryAcquire();
+        assertTrue(bucket.tryAcquire(Duration.ofMillis(100)));
+
+        // The token was reserved for the waiter, so the clock has to move on for the next one
+        assertFalse(bucket.tryAcquire());
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(2));
+        assertTrue(bucket.tryAcquire());
+    }
+}